@@ -0,0 +1,144 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.openjdk.jmh.annotations.*;
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.Chars;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time per character of matching a long name with
+ * the {@code FirstOf} of {@code CharRange}s that {@link XPathParser}
+ * used to match names, and with {@link CharClassMatcher}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(CharClassBenchmark.NAME_LENGTH)
+public class CharClassBenchmark {
+
+    static final int NAME_LENGTH = 1024;
+
+    public enum Alphabet {
+        /**
+         * Characters matched by the first ranges of the {@code FirstOf}.
+         */
+        LATIN("abcdefghijklmnopqrstuvwxyz-0123456789."),
+
+        /**
+         * Characters matched by the last ranges of the {@code FirstOf}.
+         */
+        CJK("\u4E00\u4E8C\u4E09\u56DB\u4E94\u516D\u4E03\u516B\u4E5D\u5341");
+
+        private final String chars;
+
+        Alphabet(final String chars) {
+            this.chars = chars;
+        }
+    }
+
+    public static class NameParser extends BaseParser<Object> {
+
+        public Rule CharRangesName() {
+            return Sequence(CharRangesNameStartChar(), ZeroOrMore(CharRangesNameChar()), EOI);
+        }
+
+        public Rule CharRangesNameStartChar() {
+            return FirstOf(
+                    CharRange('A', 'Z'),
+                    '_',
+                    CharRange('a', 'z'),
+                    CharRange('\u00C0', '\u00D6'),
+                    CharRange('\u00D8', '\u00F6'),
+                    CharRange('\u00F8', '\u02FF'),
+                    CharRange('\u0370', '\u037D'),
+                    CharRange('\u037F', '\u1FFF'),
+                    CharRange('\u200C', '\u200D'),
+                    CharRange('\u2070', '\u218F'),
+                    CharRange('\u2C00', '\u2FEF'),
+                    CharRange('\u3001', '\uD7FF'),
+                    CharRange('\uF900', '\uFDCF'),
+                    CharRange('\uFDF0', '\uFFFD')
+            );
+        }
+
+        public Rule CharRangesNameChar() {
+            return FirstOf(
+                    CharRangesNameStartChar(),
+                    '-',
+                    '.',
+                    CharRange('0', '9'),
+                    '\u00B7',
+                    CharRange('\u0300', '\u036F'),
+                    CharRange('\u203F', '\u2040')
+            );
+        }
+
+        public Rule CharClassName() {
+            return Sequence(
+                    new CharClassMatcher(CharClass.NAME_START_CHAR),
+                    ZeroOrMore(new CharClassMatcher(CharClass.NAME_CHAR)),
+                    EOI
+            );
+        }
+    }
+
+    @Param
+    public Alphabet alphabet;
+
+    private Rule charRanges;
+    private Rule charClass;
+    private String input;
+
+    @Setup
+    public void setup() {
+        final NameParser parser = Parboiled.createParser(NameParser.class);
+        this.charRanges = parser.CharRangesName();
+        this.charClass = parser.CharClassName();
+
+        final StringBuilder builder = new StringBuilder("n");
+        for(int i = 1; i < NAME_LENGTH; i++) {
+            builder.append(alphabet.chars.charAt(i % alphabet.chars.length()));
+        }
+        this.input = builder.append(Chars.EOI).toString();
+
+        if(!charRanges() || !charClass()) {
+            throw new IllegalStateException("Name was not matched");
+        }
+    }
+
+    @Benchmark
+    public boolean charRanges() {
+        return new BasicParseRunner<Object>(charRanges).run(input).matched;
+    }
+
+    @Benchmark
+    public boolean charClass() {
+        return new BasicParseRunner<Object>(charClass).run(input).matched;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to parse a catalog of expressions
+ * with an {@link XPathBatchParser}, and likewise a single XPath which
+ * is a sequence of the entire catalog, to show how they scale with
+ * the parallelism of its pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XPathBatchParserBenchmark {
+
+    private static final int CATALOG_SIZE = 1000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param
+    public XPathParserBackend backend;
+
+    private ForkJoinPool pool;
+    private XPathExpressionParser parser;
+    private XPathBatchParser batchParser;
+    private List<String> catalog;
+    private String sequence;
+
+    @Setup
+    public void setup() {
+        this.pool = new ForkJoinPool(parallelism);
+        this.parser = backend.newParser();
+        this.batchParser = new XPathBatchParser(parser, pool);
+
+        final XPathCorpus[] corpus = XPathCorpus.values();
+        this.catalog = new ArrayList<String>(CATALOG_SIZE);
+        for(int i = 0; i < CATALOG_SIZE; i++) {
+            catalog.add(corpus[i % corpus.length].getXPath());
+        }
+        this.sequence = String.join(", ", catalog);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Either<XPathParseException, Expr>> parseAll() {
+        return batchParser.parseAll(catalog);
+    }
+
+    @Benchmark
+    public Expr parseSequence() throws XPathParseException {
+        return parser.parseExpr(sequence);
+    }
+
+    @Benchmark
+    public Expr parseSequenceInParallel() throws XPathParseException {
+        return batchParser.parseExpr(sequence);
+    }
+}
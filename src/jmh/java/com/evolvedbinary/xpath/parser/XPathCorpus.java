@@ -0,0 +1,210 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+/**
+ * A representative corpus of XPath expressions for benchmarking.
+ */
+public enum XPathCorpus {
+
+    /**
+     * A single short name test, e.g. {@code a}.
+     */
+    NAME_TEST {
+        @Override
+        String build() {
+            return "a";
+        }
+    },
+
+    /**
+     * A path whose steps have long predicates.
+     */
+    LONG_PREDICATES {
+        @Override
+        String build() {
+            final StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 10; i++) {
+                builder
+                        .append("/ns:item")
+                        .append(i)
+                        .append("[@id = 'x")
+                        .append(i)
+                        .append("' and position() < ")
+                        .append(i + 10)
+                        .append(" or fn:contains(title, \"y\")][child/@attr != 1.5e")
+                        .append(i)
+                        .append("]");
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Arithmetic nested in parentheses, e.g. {@code ((1 + 2) * 3) - 4}.
+     */
+    NESTED_ARITHMETIC {
+        @Override
+        String build() {
+            final String[] ops = { "+", "*", "-", "div", "idiv", "mod" };
+            final StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 20; i++) {
+                builder.append('(');
+            }
+            builder.append("1");
+            for(int i = 0; i < 20; i++) {
+                builder
+                        .append(' ')
+                        .append(ops[i % ops.length])
+                        .append(' ')
+                        .append(i + 2)
+                        .append(')');
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * A large {@code Expr} sequence of comma separated expressions.
+     */
+    BIG_SEQUENCE {
+        @Override
+        String build() {
+            final StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 200; i++) {
+                if(i > 0) {
+                    builder.append(", ");
+                }
+                switch(i % 4) {
+                    case 0:
+                        builder.append(i);
+                        break;
+                    case 1:
+                        builder.append("'s").append(i).append('\'');
+                        break;
+                    case 2:
+                        builder.append("a/b").append(i);
+                        break;
+                    default:
+                        builder.append("$v").append(i);
+                        break;
+                }
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * An expression whose operands are followed by (nested) comments.
+     */
+    COMMENT_HEAVY {
+        @Override
+        String build() {
+            final StringBuilder builder = new StringBuilder("a");
+            for(int i = 0; i < 50; i++) {
+                builder
+                        .append(" (: comment ")
+                        .append(i)
+                        .append(" (: nested :) :) + b")
+                        .append(i);
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Location paths of name tests, with and without explicit axes.
+     */
+    LOCATION_PATHS {
+        @Override
+        String build() {
+            final StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 10; i++) {
+                if(i > 0) {
+                    builder.append(" | ");
+                }
+                builder
+                        .append("/root/section")
+                        .append(i)
+                        .append("//para/child::ns:title/descendant-or-self::node()/@id/parent::*/following-sibling::*/ns:*/text()");
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Predicates comparing with integer, decimal and double literals, as in generated filters.
+     */
+    NUMERIC_PREDICATES {
+        @Override
+        String build() {
+            final StringBuilder builder = new StringBuilder("//item");
+            for(int i = 0; i < 20; i++) {
+                builder
+                        .append("[@price > ")
+                        .append(i * 10 + 5)
+                        .append(".25 and @qty <= ")
+                        .append(i * 100)
+                        .append(" or @rate = ")
+                        .append(i + 1)
+                        .append(".5e-")
+                        .append(i % 10)
+                        .append("][")
+                        .append(i + 1)
+                        .append(']');
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * A path of long prefixed names, e.g. {@code /ns-prefix:element-name.0/@attribute_name-0}.
+     */
+    NAME_HEAVY {
+        @Override
+        String build() {
+            final StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 20; i++) {
+                builder
+                        .append("/namespace-prefix.")
+                        .append(i)
+                        .append(":some-rather_long.element-name")
+                        .append(i)
+                        .append("[@attribute_name-")
+                        .append(i)
+                        .append(" = $variable.name_")
+                        .append(i)
+                        .append(']');
+            }
+            return builder.toString();
+        }
+    };
+
+    private final String xpath = build();
+
+    abstract String build();
+
+    /**
+     * @return The XPath expression
+     */
+    public String getXPath() {
+        return xpath;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.ASTNode;
+import org.openjdk.jmh.annotations.*;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.Chars;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput and latency of parsing each
+ * expression of the {@link XPathCorpus} with an already
+ * constructed {@link XPathParser}.
+ *
+ * The parser either builds the AST, or with {@code enableActions = false}
+ * only recognizes the expression. Neither builds a parse tree.
+ *
+ * Run with {@code -prof gc} to also measure the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XPathParserBenchmark {
+
+    @Param
+    public XPathCorpus corpus;
+
+    @Param({"true", "false"})
+    public boolean enableActions;
+
+    private Rule rule;
+    private String input;
+
+    @Setup
+    public void setup() {
+        final XPathParser parser = Parboiled.createParser(XPathParser.class, enableActions);
+        this.rule = parser.withEOI(parser.XPath()).suppressNode();
+        this.input = corpus.getXPath() + Chars.EOI;
+
+        if(!parse().matched) {
+            throw new IllegalStateException("Invalid XPath in corpus: " + corpus);
+        }
+    }
+
+    @Benchmark
+    public ParsingResult<ASTNode> parse() {
+        return new BasicParseRunner<ASTNode>(rule).run(input);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.openjdk.jmh.annotations.*;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to construct an {@link XPathParser}
+ * and build its {@code withEOI(XPath())} rule tree,
+ * which is separate from the time to parse with it.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class XPathParserConstructionBenchmark {
+
+    /**
+     * The first construction in a JVM, which also loads the
+     * parser's classes generated by {@link XPathParserGenerator}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public Rule coldConstruction() {
+        return construct();
+    }
+
+    /**
+     * Subsequent constructions, which reuse the
+     * parser's previously loaded classes.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public Rule warmConstruction() {
+        return construct();
+    }
+
+    private static Rule construct() {
+        final XPathParser parser = Parboiled.createParser(XPathParser.class, Boolean.TRUE);
+        return parser.withEOI(parser.XPath());
+    }
+}
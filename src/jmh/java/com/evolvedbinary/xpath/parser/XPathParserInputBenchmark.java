@@ -0,0 +1,107 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of parsing an XPath which is held in a
+ * range of a larger character buffer, for example one from
+ * the buffer pool of a network framework, either by first copying
+ * it into a String or by parsing the characters directly.
+ *
+ * Run with {@code -prof gc} to also measure the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XPathParserInputBenchmark {
+
+    private static final int OFFSET = 16;
+
+    public enum Input {
+        /**
+         * The characters are copied into a String which is then parsed.
+         */
+        STRING,
+
+        /**
+         * The range of the {@code char[]} is parsed directly.
+         */
+        CHAR_ARRAY,
+
+        /**
+         * A direct {@link CharBuffer} is parsed directly.
+         */
+        DIRECT_CHAR_BUFFER
+    }
+
+    @Param
+    public XPathCorpus corpus;
+
+    @Param
+    public XPathParserBackend backend;
+
+    @Param
+    public Input input;
+
+    private XPathExpressionParser parser;
+    private char[] chars;
+    private int length;
+    private CharBuffer charBuffer;
+
+    @Setup
+    public void setup() throws XPathParseException {
+        this.parser = backend.newParser();
+
+        final String xpath = corpus.getXPath();
+        this.length = xpath.length();
+        this.chars = new char[OFFSET + length + OFFSET];
+        xpath.getChars(0, length, chars, OFFSET);
+
+        this.charBuffer = ByteBuffer.allocateDirect(chars.length * 2).asCharBuffer();
+        charBuffer.put(chars).position(OFFSET).limit(OFFSET + length);
+        charBuffer = charBuffer.slice();
+
+        parse();
+    }
+
+    @Benchmark
+    public Expr parse() throws XPathParseException {
+        switch(input) {
+            case STRING:
+                return parser.parseExpr(new String(chars, OFFSET, length));
+
+            case CHAR_ARRAY:
+                return parser.parseExpr(chars, OFFSET, length);
+
+            default:
+                return parser.parseExpr(charBuffer);
+        }
+    }
+}
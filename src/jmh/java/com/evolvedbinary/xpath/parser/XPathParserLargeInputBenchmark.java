@@ -0,0 +1,161 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.ASTNodeInterner;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the peak heap use of parsing a very large generated
+ * expression, a long {@code or} list as might be built from a rule table,
+ * from a file either by first reading it into a String, or by streaming
+ * it through a {@link ReaderInputBuffer} from a {@link Reader} or
+ * a memory-mapped {@link FileChannel}.
+ *
+ * The peak is reported by the {@code peakHeapBytes} secondary result,
+ * which is the greatest increase in the used heap during a parse over that
+ * before it. The parsers share an {@link ASTNodeInterner}, although as
+ * an AST is only interned once it has been parsed, the peak includes the
+ * AST of the expression as well as the input.
+ * A small young generation is used, so that the peak largely reflects
+ * live objects rather than garbage awaiting collection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UseSerialGC", "-Xmn16m", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class XPathParserLargeInputBenchmark {
+
+    public enum Input {
+        /**
+         * The file is read into a String which is then parsed.
+         */
+        STRING,
+
+        /**
+         * The file is parsed from a {@link Reader}.
+         */
+        READER,
+
+        /**
+         * The file is memory-mapped and parsed from its {@link FileChannel}.
+         */
+        MAPPED_FILE
+    }
+
+    /**
+     * The approximate number of characters in the expression.
+     */
+    @Param({"1000000", "4000000"})
+    public int size;
+
+    @Param
+    public Input input;
+
+    private XPathParserPool pool;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        this.pool = new XPathParserPool(false, new ASTNodeInterner());
+        this.file = Files.createTempFile("xpath", ".txt");
+        try(final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("@id = 'r0'");
+            for(int written = 0, i = 1; written < size; i++) {
+                final String or = " or @id = 'r" + (i % 1000) + "'";
+                writer.write(or);
+                written += or.length();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class HeapUse {
+        public long peakHeapBytes;
+        private long usedBefore;
+
+        @Setup(Level.Iteration)
+        public void resetIteration() {
+            peakHeapBytes = 0;
+        }
+
+        @Setup(Level.Invocation)
+        public void before() {
+            System.gc();
+            usedBefore = 0;
+            for(final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if(pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    usedBefore += pool.getUsage().getUsed();
+                }
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void after() {
+            long peak = 0;
+            for(final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if(pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakHeapBytes = Math.max(peakHeapBytes, peak - usedBefore);
+        }
+    }
+
+    @Benchmark
+    public Expr parse(final HeapUse heapUse) throws IOException, XPathParseException {
+        switch(input) {
+            case STRING:
+                return pool.parseExpr(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+            case READER:
+                try(final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    return pool.parseExpr(reader);
+                }
+
+            default:
+                try(final FileChannel channel = FileChannel.open(file)) {
+                    return pool.parseExpr(channel, StandardCharsets.UTF_8);
+                }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.openjdk.jmh.annotations.*;
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.Chars;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to the first parse in a JVM, i.e. loading the
+ * parser classes, constructing an {@link XPathParser} and building its
+ * rule tree, and parsing an expression, both with the parser classes
+ * generated ahead of time by {@link XPathParserGenerator}, and with them
+ * generated at runtime by Parboiled as before.
+ *
+ * Each fork loads the parser into its own class loader,
+ * which may hide the classes generated ahead of time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class XPathParserStartupBenchmark {
+
+    private static final String XPATH = "/a/b[@c = 'd']";
+
+    public enum ParserClasses {
+        GENERATED_AT_BUILD,
+        GENERATED_AT_RUNTIME
+    }
+
+    @Param
+    public ParserClasses parserClasses;
+
+    private ClassLoader classLoader;
+
+    @Setup
+    public void setup() {
+        this.classLoader = new ParserClassLoader(
+                getClass().getClassLoader(), parserClasses == ParserClasses.GENERATED_AT_RUNTIME);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public boolean firstParse() throws Exception {
+        final Class<? extends BaseParser<Object>> parserClass =
+                (Class<? extends BaseParser<Object>>)classLoader.loadClass(XPathParser.class.getName());
+        final BaseParser<Object> parser = Parboiled.createParser(parserClass, Boolean.TRUE);
+        final Rule xpath = (Rule)parserClass.getMethod("XPath").invoke(parser);
+        final Rule rule = (Rule)parserClass.getMethod("withEOI", Rule.class).invoke(parser, xpath);
+        return new BasicParseRunner<Object>(rule).run(XPATH + Chars.EOI).matched;
+    }
+
+    /**
+     * Loads the classes of this library itself, rather than delegating to
+     * its parent, and optionally hides the classes generated by {@link XPathParserGenerator}.
+     */
+    private static class ParserClassLoader extends ClassLoader {
+        private static final String PACKAGE_PREFIX = XPathParser.class.getPackage().getName() + '.';
+        private static final String GENERATED_PREFIX = XPathParser.class.getName() + "$$parboiled";
+
+        private final boolean hideGenerated;
+
+        ParserClassLoader(final ClassLoader parent, final boolean hideGenerated) {
+            super(parent);
+            this.hideGenerated = hideGenerated;
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if(!name.startsWith(PACKAGE_PREFIX)) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized(getClassLoadingLock(name)) {
+                Class<?> clazz = findLoadedClass(name);
+                if(clazz == null) {
+                    clazz = findClass(name);
+                }
+                if(resolve) {
+                    resolveClass(clazz);
+                }
+                return clazz;
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(final String name) throws ClassNotFoundException {
+            if(hideGenerated && isGenerated(name)) {
+                throw new ClassNotFoundException(name);
+            }
+
+            try(final InputStream is = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if(is == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                final byte[] classCode = is.readAllBytes();
+                return defineClass(name, classCode, 0, classCode.length);
+            } catch(final IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        private static boolean isGenerated(final String name) {
+            final String simpleName = name.substring(PACKAGE_PREFIX.length());
+            return name.startsWith(GENERATED_PREFIX) || simpleName.startsWith("Action$") || simpleName.startsWith("VarInit$");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating the expressions of the {@link XPathCorpus}
+ * with an {@link XPathValidator} to parsing them into an AST
+ * with a {@link RecursiveDescentXPathParser}.
+ *
+ * Run with {@code -prof gc} to also measure the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XPathValidatorBenchmark {
+
+    @Param
+    public XPathCorpus corpus;
+
+    private XPathValidator validator;
+    private RecursiveDescentXPathParser parser;
+    private String xpath;
+
+    @Setup
+    public void setup() {
+        this.validator = new XPathValidator();
+        this.parser = new RecursiveDescentXPathParser();
+        this.xpath = corpus.getXPath();
+    }
+
+    @Benchmark
+    public int validate() {
+        return validator.validate(xpath);
+    }
+
+    @Benchmark
+    public Expr parse() throws XPathParseException {
+        return parser.parseExpr(xpath);
+    }
+}
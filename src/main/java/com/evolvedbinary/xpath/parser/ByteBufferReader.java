@@ -0,0 +1,89 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Reads characters by decoding the remaining bytes of a {@link ByteBuffer},
+ * for example a {@link java.nio.MappedByteBuffer} of a file, so that the
+ * bytes need never be copied onto the heap.
+ */
+class ByteBufferReader extends Reader {
+    private static final int DECODED_SIZE = 8 * 1024;
+
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private final CharBuffer decoded = (CharBuffer)CharBuffer.allocate(DECODED_SIZE).flip();
+    private boolean flushed = false;
+
+    /**
+     * @param bytes The bytes to decode
+     * @param decoder The decoder for the charset of the bytes
+     */
+    ByteBufferReader(final ByteBuffer bytes, final CharsetDecoder decoder) {
+        this.bytes = bytes;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+        if(!decoded.hasRemaining() && !decode()) {
+            return -1;
+        }
+        final int read = Math.min(len, decoded.remaining());
+        decoded.get(cbuf, off, read);
+        return read;
+    }
+
+    /**
+     * Decodes the next chunk of bytes.
+     *
+     * @return true if any characters were decoded, false at the end of the bytes
+     */
+    private boolean decode() throws CharacterCodingException {
+        decoded.clear();
+        if(!flushed) {
+            CoderResult result = decoder.decode(bytes, decoded, true);
+            if(result.isUnderflow()) {
+                result = decoder.flush(decoded);
+                flushed = result.isUnderflow();
+            }
+            if(result.isError()) {
+                result.throwException();
+            }
+        }
+        decoded.flip();
+        return decoded.hasRemaining();
+    }
+
+    @Override
+    public void close() {
+    }
+}
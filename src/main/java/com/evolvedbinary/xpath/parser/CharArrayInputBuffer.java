@@ -0,0 +1,222 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import javax.annotation.Nullable;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * An {@link InputBuffer} which reads directly from a range of a {@code char[]}.
+ *
+ * Unlike {@link org.parboiled.buffers.DefaultInputBuffer}, the input
+ * does not have to be copied into its own array with {@link Chars#EOI}
+ * appended to it, instead {@link Chars#EOI} is reported for every index
+ * beyond the end of the range. Indexes are relative to the start of the range.
+ *
+ * The characters must not be modified whilst they are being parsed.
+ */
+public class CharArrayInputBuffer implements InputBuffer {
+
+    /**
+     * The same limit as {@link org.parboiled.buffers.DefaultInputBuffer}
+     * for detecting a grammar which consumes EOI indefinitely.
+     */
+    private static final int MAX_CHARS_BEYOND_EOI = 100000;
+
+    private final char[] chars;
+    private final int offset;
+    private final int length;
+    @Nullable private int[] newlines;
+
+    /**
+     * @param chars The characters to parse
+     * @param offset The index of the first character to parse
+     * @param length The number of characters to parse
+     *
+     * @throws IndexOutOfBoundsException if the range is not within {@code chars}
+     */
+    public CharArrayInputBuffer(final char[] chars, final int offset, final int length) {
+        if(offset < 0 || length < 0 || offset > chars.length - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + chars.length);
+        }
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Creates an input buffer for a sequence of characters.
+     *
+     * The remaining characters of a {@link CharBuffer} which is backed
+     * by an array are read directly from that array, any other
+     * sequence is first copied into a new array.
+     *
+     * @param chars The characters to parse
+     *
+     * @return The input buffer
+     */
+    public static CharArrayInputBuffer of(final CharSequence chars) {
+        final CharBuffer buffer = arrayBacked(chars);
+        return new CharArrayInputBuffer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Gets a sequence of characters as a {@link CharBuffer} which is backed
+     * by an accessible array, copying the characters only if necessary.
+     *
+     * Reading characters from the array is considerably faster than
+     * through {@link CharSequence#charAt(int)}, which for a String must
+     * also decode its compact representation, and as a parser may read
+     * each character several times, that outweighs the cost of the copy.
+     *
+     * @param chars The characters
+     *
+     * @return A buffer whose remaining characters are {@code chars}
+     */
+    static CharBuffer arrayBacked(final CharSequence chars) {
+        if(chars instanceof CharBuffer) {
+            final CharBuffer buffer = (CharBuffer)chars;
+            if(buffer.hasArray()) {
+                return buffer;
+            }
+            final char[] copy = new char[buffer.remaining()];
+            buffer.duplicate().get(copy);
+            return CharBuffer.wrap(copy);
+        }
+        if(chars instanceof String) {
+            return CharBuffer.wrap(((String)chars).toCharArray());
+        }
+        final char[] copy = new char[chars.length()];
+        for(int i = 0; i < copy.length; i++) {
+            copy[i] = chars.charAt(i);
+        }
+        return CharBuffer.wrap(copy);
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if(index >= 0 && index < length) {
+            return chars[offset + index];
+        }
+        if(index - length > MAX_CHARS_BEYOND_EOI) {
+            throw new ParserRuntimeException("Parser read more than 100K chars beyond EOI, verify that your grammar does not consume EOI indefinitely!");
+        }
+        return Chars.EOI;
+    }
+
+    @Override
+    public boolean test(final int index, final char[] characters) {
+        if(index < 0 || index > length - characters.length) {
+            return false;
+        }
+        for(int i = 0; i < characters.length; i++) {
+            if(chars[offset + index + i] != characters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String extract(int start, int end) {
+        if(start < 0) {
+            start = 0;
+        }
+        if(end > length) {
+            end = length;
+        }
+        if(end <= start) {
+            return "";
+        }
+        return new String(chars, offset + start, end - start);
+    }
+
+    @Override
+    public String extract(final IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index) {
+        final int[] newlines = getNewlines();
+        final int line = getLine0(newlines, index);
+        final int column = index - (line > 0 ? newlines[line - 1] : -1);
+        return new Position(line + 1, column);
+    }
+
+    @Override
+    public int getOriginalIndex(final int index) {
+        return index;
+    }
+
+    @Override
+    public String extractLine(final int lineNumber) {
+        final int[] newlines = getNewlines();
+        if(lineNumber < 1 || lineNumber > newlines.length + 1) {
+            throw new IllegalArgumentException("No such line: " + lineNumber);
+        }
+        final int start = lineNumber > 1 ? newlines[lineNumber - 2] + 1 : 0;
+        int end = lineNumber <= newlines.length ? newlines[lineNumber - 1] : length;
+        if(charAt(end - 1) == '\r') {
+            end--;
+        }
+        return extract(start, end);
+    }
+
+    @Override
+    public int getLineCount() {
+        return getNewlines().length + 1;
+    }
+
+    private static int getLine0(final int[] newlines, final int index) {
+        final int line = Arrays.binarySearch(newlines, index);
+        return line >= 0 ? line : -(line + 1);
+    }
+
+    /**
+     * The indexes of the newlines are only needed for
+     * reporting errors, so are found on first use.
+     */
+    private int[] getNewlines() {
+        if(newlines == null) {
+            int count = 0;
+            for(int i = 0; i < length; i++) {
+                if(chars[offset + i] == '\n') {
+                    count++;
+                }
+            }
+            final int[] found = new int[count];
+            for(int i = 0, j = 0; j < count; i++) {
+                if(chars[offset + i] == '\n') {
+                    found[j++] = i;
+                }
+            }
+            newlines = found;
+        }
+        return newlines;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of characters, tested in constant time by a
+ * bitmap for characters below {@link #TABLE_SIZE}, and otherwise
+ * by searching the ranges which lie above it.
+ */
+final class CharClass {
+
+    static final int TABLE_SIZE = 0x800;
+
+    /**
+     * See {@link XPathParser#XmlNames_NameStartChar_minusColon()}
+     */
+    static final CharClass NAME_START_CHAR = new CharClass(
+            'A', 'Z',
+            '_', '_',
+            'a', 'z',
+            '\u00C0', '\u00D6',
+            '\u00D8', '\u00F6',
+            '\u00F8', '\u02FF',
+            '\u0370', '\u037D',
+            '\u037F', '\u1FFF',
+            '\u200C', '\u200D',
+            '\u2070', '\u218F',
+            '\u2C00', '\u2FEF',
+            '\u3001', '\uD7FF',
+            '\uF900', '\uFDCF',
+            '\uFDF0', '\uFFFD'
+    );
+
+    /**
+     * See {@link XPathParser#XmlNames_NameChar()}
+     */
+    static final CharClass NAME_CHAR = NAME_START_CHAR.union(new CharClass(
+            '-', '-',
+            '.', '.',
+            '0', '9',
+            '\u00B7', '\u00B7',
+            '\u0300', '\u036F',
+            '\u203F', '\u2040'
+    ));
+
+    /**
+     * See {@link XPathParser#Xml_Char()}
+     */
+    static final CharClass CHAR = new CharClass(
+            '\t', '\t',
+            '\n', '\n',
+            '\r', '\r',
+            ' ', '\uD7FF',
+            '\uE000', '\uFFFD'
+    );
+
+    /**
+     * See {@link XPathParser#Xml_S()}
+     */
+    static final CharClass S = new CharClass(
+            ' ', ' ',
+            '\t', '\t',
+            '\r', '\r',
+            '\n', '\n'
+    );
+
+    private final char[] ranges;
+    private final long[] table = new long[TABLE_SIZE / 64];
+    private final char[] highRanges;
+
+    /**
+     * @param ranges pairs of the first and last character of each range
+     */
+    private CharClass(final char... ranges) {
+        this.ranges = merge(ranges);
+
+        int highRangesStart = this.ranges.length;
+        for(int i = 0; i < this.ranges.length; i += 2) {
+            final char low = this.ranges[i];
+            final char high = this.ranges[i + 1];
+            if(low < TABLE_SIZE) {
+                for(int c = low; c <= Math.min(high, TABLE_SIZE - 1); c++) {
+                    table[c >>> 6] |= 1L << c;
+                }
+            }
+            if(high >= TABLE_SIZE && highRangesStart == this.ranges.length) {
+                highRangesStart = i;
+            }
+        }
+
+        this.highRanges = Arrays.copyOfRange(this.ranges, highRangesStart, this.ranges.length);
+        if(highRanges.length > 0 && highRanges[0] < TABLE_SIZE) {
+            highRanges[0] = TABLE_SIZE;
+        }
+    }
+
+    /**
+     * Sorts the ranges and merges those which overlap or are adjacent.
+     */
+    private static char[] merge(final char[] ranges) {
+        final long[] sorted = new long[ranges.length / 2];
+        for(int i = 0; i < sorted.length; i++) {
+            sorted[i] = ((long)ranges[i * 2] << 16) | ranges[i * 2 + 1];
+        }
+        Arrays.sort(sorted);
+
+        final char[] merged = new char[ranges.length];
+        int length = 0;
+        for(final long range : sorted) {
+            final char low = (char)(range >>> 16);
+            final char high = (char)range;
+            if(length > 0 && low <= merged[length - 1] + 1) {
+                merged[length - 1] = (char)Math.max(merged[length - 1], high);
+            } else {
+                merged[length++] = low;
+                merged[length++] = high;
+            }
+        }
+        return Arrays.copyOf(merged, length);
+    }
+
+    CharClass union(final CharClass other) {
+        final char[] union = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+        System.arraycopy(other.ranges, 0, union, ranges.length, other.ranges.length);
+        return new CharClass(union);
+    }
+
+    boolean contains(final char c) {
+        if(c < TABLE_SIZE) {
+            return (table[c >>> 6] & (1L << c)) != 0;
+        }
+        for(int i = 0; i < highRanges.length; i += 2) {
+            if(c < highRanges[i]) {
+                return false;
+            }
+            if(c <= highRanges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets a character which is a member of this class.
+     *
+     * @return the first character of this class
+     */
+    char first() {
+        return ranges[0];
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.matchers.CustomMatcher;
+
+/**
+ * Matches a single character of a {@link CharClass}.
+ *
+ * This replaces a {@code FirstOf} of {@code CharRange}s, which tries
+ * each range in turn, with a single table lookup. As it matches only
+ * a single character, the error recovery of the
+ * {@link org.parboiled.parserunners.RecoveringParseRunner} is unaffected.
+ */
+class CharClassMatcher extends CustomMatcher {
+    private final CharClass charClass;
+
+    /**
+     * @param charClass The class of the character to match
+     */
+    CharClassMatcher(final CharClass charClass) {
+        super("CharClass");
+        this.charClass = charClass;
+    }
+
+    @Override
+    public boolean match(final MatcherContext context) {
+        if(!charClass.contains(context.getCurrentChar())) {
+            return false;
+        }
+
+        context.advanceIndex(1);
+        context.createNode();
+        return true;
+    }
+
+    @Override
+    public boolean isSingleCharMatcher() {
+        return true;
+    }
+
+    @Override
+    public boolean canMatchEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean isStarterChar(final char c) {
+        return charClass.contains(c);
+    }
+
+    @Override
+    public char getStarterChar() {
+        return charClass.first();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * An {@link InputBuffer} which reads directly from a {@link CharSequence},
+ * starting at an offset within it.
+ *
+ * Reading through {@link CharSequence#charAt(int)} is slower than
+ * {@link CharArrayInputBuffer}, but avoids copying the sequence, which
+ * matters when only a short part of a long sequence is to be parsed,
+ * for example an XPath which is embedded in a host document.
+ * {@link Chars#EOI} is reported for every index beyond the end of the
+ * sequence. Indexes are relative to the offset.
+ *
+ * The sequence must not be modified whilst it is being parsed.
+ */
+public class CharSequenceInputBuffer implements InputBuffer {
+
+    /**
+     * The same limit as {@link org.parboiled.buffers.DefaultInputBuffer}
+     * for detecting a grammar which consumes EOI indefinitely.
+     */
+    private static final int MAX_CHARS_BEYOND_EOI = 100000;
+
+    private final CharSequence input;
+    private final int offset;
+    private final int length;
+    @Nullable private int[] newlines;
+
+    /**
+     * @param input The characters to parse
+     * @param offset The index of the first character to parse
+     *
+     * @throws IndexOutOfBoundsException if the offset is not within {@code input}
+     */
+    public CharSequenceInputBuffer(final CharSequence input, final int offset) {
+        if(offset < 0 || offset > input.length()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + input.length());
+        }
+        this.input = input;
+        this.offset = offset;
+        this.length = input.length() - offset;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if(index >= 0 && index < length) {
+            return input.charAt(offset + index);
+        }
+        if(index - length > MAX_CHARS_BEYOND_EOI) {
+            throw new ParserRuntimeException("Parser read more than 100K chars beyond EOI, verify that your grammar does not consume EOI indefinitely!");
+        }
+        return Chars.EOI;
+    }
+
+    @Override
+    public boolean test(final int index, final char[] characters) {
+        if(index < 0 || index > length - characters.length) {
+            return false;
+        }
+        for(int i = 0; i < characters.length; i++) {
+            if(input.charAt(offset + index + i) != characters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String extract(int start, int end) {
+        if(start < 0) {
+            start = 0;
+        }
+        if(end > length) {
+            end = length;
+        }
+        if(end <= start) {
+            return "";
+        }
+        return input.subSequence(offset + start, offset + end).toString();
+    }
+
+    @Override
+    public String extract(final IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index) {
+        final int[] newlines = getNewlines();
+        int line = Arrays.binarySearch(newlines, index);
+        if(line < 0) {
+            line = -(line + 1);
+        }
+        final int column = index - (line > 0 ? newlines[line - 1] : -1);
+        return new Position(line + 1, column);
+    }
+
+    @Override
+    public int getOriginalIndex(final int index) {
+        return index;
+    }
+
+    @Override
+    public String extractLine(final int lineNumber) {
+        final int[] newlines = getNewlines();
+        if(lineNumber < 1 || lineNumber > newlines.length + 1) {
+            throw new IllegalArgumentException("No such line: " + lineNumber);
+        }
+        final int start = lineNumber > 1 ? newlines[lineNumber - 2] + 1 : 0;
+        int end = lineNumber <= newlines.length ? newlines[lineNumber - 1] : length;
+        if(charAt(end - 1) == '\r') {
+            end--;
+        }
+        return extract(start, end);
+    }
+
+    @Override
+    public int getLineCount() {
+        return getNewlines().length + 1;
+    }
+
+    /**
+     * The indexes of the newlines are only needed for
+     * reporting errors, so are found on first use.
+     */
+    private int[] getNewlines() {
+        if(newlines == null) {
+            int count = 0;
+            for(int i = 0; i < length; i++) {
+                if(input.charAt(offset + i) == '\n') {
+                    count++;
+                }
+            }
+            final int[] found = new int[count];
+            for(int i = 0, j = 0; j < count; i++) {
+                if(input.charAt(offset + i) == '\n') {
+                    found[j++] = i;
+                }
+            }
+            newlines = found;
+        }
+        return newlines;
+    }
+}
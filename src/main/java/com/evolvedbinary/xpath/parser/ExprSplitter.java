@@ -0,0 +1,194 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import java.util.Arrays;
+
+/**
+ * Finds the {@code ExprSingle}s of the top-level {@code Expr} of an XPath
+ * without parsing it, so that they may be parsed independently.
+ *
+ * A single scan of the input finds the commas which are not within a
+ * string literal, a comment, parentheses or a predicate. This cannot
+ * tell the commas which separate the clauses of a {@code for},
+ * {@code some} or {@code every} expression from those of the top-level
+ * {@code Expr}, so the ranges are only candidates which must each
+ * parse as a single {@code ExprSingle}.
+ */
+final class ExprSplitter {
+
+    private ExprSplitter() {
+    }
+
+    /**
+     * Splits an XPath at its top-level commas.
+     *
+     * Each range starts after the comma and the whitespace which
+     * {@link XPathParser#WS()} would match after it, and ends at the
+     * next comma, so that it may be parsed as an XPath by itself.
+     *
+     * @param input The characters holding the XPath
+     * @param offset The index of the first character of the XPath
+     * @param length The number of characters in the XPath
+     *
+     * @return The start and end indexes within {@code input} of each range,
+     *     i.e. {@code [start0, end0, start1, end1, ...]}
+     */
+    static int[] split(final char[] input, final int offset, final int length) {
+        final int end = offset + length;
+        int[] ranges = new int[16];
+        int count = 0;
+        int start = offset;
+        int depth = 0;
+
+        int i = offset;
+        while(i < end) {
+            final char c = input[i];
+            switch(c) {
+                case '\'':
+                case '"':
+                    i = skipStringLiteral(input, i, end);
+                    break;
+
+                case '(':
+                    if(i + 1 < end && input[i + 1] == ':') {
+                        i = skipComment(input, i, end);
+                    } else {
+                        depth++;
+                        i++;
+                    }
+                    break;
+
+                case '[':
+                    depth++;
+                    i++;
+                    break;
+
+                case ')':
+                case ']':
+                    depth--;
+                    i++;
+                    break;
+
+                case ',':
+                    if(depth == 0) {
+                        if(count + 2 > ranges.length) {
+                            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                        }
+                        ranges[count++] = start;
+                        ranges[count++] = i;
+                        start = skipWS(input, i + 1, end);
+                        if(start == -1) {
+                            // the XPath is invalid, so is not worth splitting
+                            return new int[] {offset, end};
+                        }
+                        i = start;
+                    } else {
+                        i++;
+                    }
+                    break;
+
+                default:
+                    i++;
+                    break;
+            }
+        }
+
+        if(count + 2 > ranges.length) {
+            ranges = Arrays.copyOf(ranges, count + 2);
+        }
+        ranges[count++] = start;
+        ranges[count++] = end;
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * @return the index after the closing quote, or {@code end} if there is none
+     */
+    private static int skipStringLiteral(final char[] input, final int start, final int end) {
+        final char quote = input[start];
+        int i = start + 1;
+        while(i < end) {
+            if(input[i] == quote) {
+                if(i + 1 < end && input[i + 1] == quote) {
+                    // an escaped quote
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return the index after the closing {@code :)}, or {@code end} if there is none
+     */
+    private static int skipComment(final char[] input, final int start, final int end) {
+        int nesting = 0;
+        int i = start;
+        while(i < end - 1) {
+            if(input[i] == '(' && input[i + 1] == ':') {
+                nesting++;
+                i += 2;
+            } else if(input[i] == ':' && input[i + 1] == ')') {
+                nesting--;
+                i += 2;
+                if(nesting == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Skips what {@link XPathParser#WS()} would match, i.e. either
+     * whitespace, or a comment and then whatever that in turn matches.
+     *
+     * @return the index after the whitespace, or -1 if a comment holds
+     *     a character which is not allowed, as then it would not be matched
+     */
+    private static int skipWS(final char[] input, final int start, final int end) {
+        int i = start;
+        while(i < end) {
+            if(CharClass.S.contains(input[i])) {
+                do {
+                    i++;
+                } while(i < end && CharClass.S.contains(input[i]));
+                return i;
+            } else if(input[i] == '(' && i + 1 < end && input[i + 1] == ':') {
+                final int commentEnd = skipComment(input, i, end);
+                for(; i < commentEnd; i++) {
+                    if(!CharClass.CHAR.contains(input[i])) {
+                        return -1;
+                    }
+                }
+            } else {
+                return i;
+            }
+        }
+        return i;
+    }
+}
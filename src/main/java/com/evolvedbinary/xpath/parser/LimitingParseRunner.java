@@ -0,0 +1,67 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.parserunners.BasicParseRunner;
+
+/**
+ * A {@link BasicParseRunner} which enforces a {@link ParseBudget}
+ * as it matches, the depth being that to which the
+ * {@link XPathParser#ExprSingle()} and {@link XPathParser#Comment()}
+ * rules are nested, as for {@link RecursiveDescentXPathParser}.
+ */
+final class LimitingParseRunner<V> extends BasicParseRunner<V> {
+
+    private static final String EXPR_SINGLE = "ExprSingle";
+    private static final String COMMENT = "Comment";
+
+    private final ParseBudget budget;
+
+    LimitingParseRunner(final Rule rule, final ParseBudget budget) {
+        super(rule);
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean match(final MatcherContext<?> context) {
+        final String label = context.getMatcher().getLabel();
+        if(EXPR_SINGLE.equals(label) || (COMMENT.equals(label) && startsComment(context))) {
+            budget.enter(context.getCurrentIndex());
+            try {
+                return super.match(context);
+            } finally {
+                budget.exit();
+            }
+        }
+        budget.step(context.getCurrentIndex());
+        return super.match(context);
+    }
+
+    /**
+     * Whitespace is optionally followed by a comment everywhere,
+     * so only a comment which is actually present is counted.
+     */
+    private static boolean startsComment(final MatcherContext<?> context) {
+        final int index = context.getCurrentIndex();
+        return context.getInputBuffer().charAt(index) == '(' && context.getInputBuffer().charAt(index + 1) == ':';
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.parserunners.ErrorLocatingParseRunner;
+import org.parboiled.parserunners.ErrorReportingParseRunner;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+/**
+ * A {@link ReportingParseRunner} which enforces a {@link ParseBudget}
+ * during each of its runs, by matching through a {@link LimitingParseRunner}.
+ */
+final class LimitingReportingParseRunner<V> extends ReportingParseRunner<V> {
+
+    private final ParseBudget budget;
+
+    LimitingReportingParseRunner(final Rule rule, final ParseBudget budget) {
+        super(rule);
+        this.budget = budget;
+    }
+
+    @Override
+    protected ParsingResult<V> runBasicMatch(final InputBuffer input) {
+        return new LimitingParseRunner<V>(getRootMatcher(), budget)
+                .withParseErrors(getParseErrors())
+                .withValueStack(getValueStack())
+                .run(input);
+    }
+
+    @Override
+    protected ParsingResult<V> runLocatingMatch(final InputBuffer input) {
+        return new ErrorLocatingParseRunner<V>(getRootMatcher(), new LimitingParseRunner<V>(getRootMatcher(), budget))
+                .withValueStack(getValueStack())
+                .run(input);
+    }
+
+    @Override
+    protected ParsingResult<V> runReportingMatch(final InputBuffer input, final int errorIndex) {
+        return new ErrorReportingParseRunner<V>(getRootMatcher(), errorIndex, new LimitingParseRunner<V>(getRootMatcher(), budget))
+                .withParseErrors(getParseErrors())
+                .withValueStack(getValueStack())
+                .run(input);
+    }
+}
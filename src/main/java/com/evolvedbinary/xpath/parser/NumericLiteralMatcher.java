@@ -0,0 +1,113 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.CustomMatcher;
+
+/**
+ * Matches a DoubleLiteral, DecimalLiteral or IntegerLiteral
+ * (without any following whitespace) in a single scan, rather
+ * than attempting to match each of them in turn from the start.
+ *
+ * It only matches when the parse runner uses fast string matching, i.e. a
+ * {@link org.parboiled.parserunners.BasicParseRunner}; the runners which
+ * locate, report and recover from errors need the individual rules of
+ * {@link XPathParser#NumericLiteral()} to do so, and for these this
+ * matcher never matches.
+ */
+class NumericLiteralMatcher extends CustomMatcher {
+
+    NumericLiteralMatcher() {
+        super("NumericLiteral");
+    }
+
+    @Override
+    public boolean match(final MatcherContext context) {
+        if(!context.fastStringMatching()) {
+            return false;
+        }
+
+        final InputBuffer input = context.getInputBuffer();
+        final int start = context.getCurrentIndex();
+        final int characteristicEnd = digits(input, start);
+        int end = characteristicEnd;
+        if(input.charAt(end) == '.') {
+            end = digits(input, end + 1);
+            if(characteristicEnd == start && end == start + 1) {
+                // a "." without any digits
+                return false;
+            }
+        } else if(characteristicEnd == start) {
+            return false;
+        }
+
+        final char e = input.charAt(end);
+        if(e == 'e' || e == 'E') {
+            int exponentStart = end + 1;
+            final char sign = input.charAt(exponentStart);
+            if(sign == '+' || sign == '-') {
+                exponentStart++;
+            }
+            final int exponentEnd = digits(input, exponentStart);
+            if(exponentEnd > exponentStart) {
+                end = exponentEnd;
+            }
+        }
+
+        context.advanceIndex(end - start);
+        context.createNode();
+        return true;
+    }
+
+    /**
+     * Scans zero or more digits.
+     *
+     * @return the index after the last digit
+     */
+    private static int digits(final InputBuffer input, int index) {
+        char c = input.charAt(index);
+        while(c >= '0' && c <= '9') {
+            c = input.charAt(++index);
+        }
+        return index;
+    }
+
+    @Override
+    public boolean isSingleCharMatcher() {
+        return false;
+    }
+
+    @Override
+    public boolean canMatchEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean isStarterChar(final char c) {
+        return (c >= '0' && c <= '9') || c == '.';
+    }
+
+    @Override
+    public char getStarterChar() {
+        return '0';
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.XPathParseLimitException.Limit;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.parboiled.errors.ParseError;
+import org.parboiled.errors.ParserRuntimeException;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces the {@link XPathParseLimits} of a single parse.
+ *
+ * The parsers call {@link #enter(int)} and {@link #exit()} around every
+ * nested expression and comment, and {@link #step(int)} as they go, the
+ * clock and the interrupt status of the thread are only checked
+ * every {@link #CHECK_INTERVAL} steps as both are comparatively costly.
+ */
+final class ParseBudget {
+
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final XPathParseLimits limits;
+    private final int maxLength;
+    private final int maxDepth;
+    private long deadline;
+    private int depth = 0;
+    private int untilCheck = CHECK_INTERVAL;
+
+    private ParseBudget(final XPathParseLimits limits) {
+        this.limits = limits;
+        this.maxLength = limits.getMaxLength();
+        this.maxDepth = limits.getMaxDepth();
+        this.deadline = deadline(limits);
+    }
+
+    private static long deadline(final XPathParseLimits limits) {
+        final long timeout = limits.getTimeout(TimeUnit.NANOSECONDS);
+        return timeout == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeout;
+    }
+
+    /**
+     * Starts a parse, at which point its time starts.
+     *
+     * @param limits The limits of the parse
+     *
+     * @return The budget of the parse, or null if nothing is limited
+     */
+    @Nullable
+    static ParseBudget start(final XPathParseLimits limits) {
+        return limits.isUnlimited() ? null : new ParseBudget(limits);
+    }
+
+    /**
+     * Restarts the budget for another parse, so
+     * that a recogniser may reuse the same budget.
+     */
+    void restart() {
+        this.deadline = deadline(limits);
+        this.depth = 0;
+        this.untilCheck = CHECK_INTERVAL;
+    }
+
+    void checkLength(final int length) {
+        if(length > maxLength) {
+            throw exceeded(Limit.LENGTH, maxLength, "XPath is longer than the maximum of " + maxLength + " characters");
+        }
+    }
+
+    void enter(final int index) {
+        if(++depth > maxDepth) {
+            throw exceeded(Limit.DEPTH, index, "XPath nests deeper than the maximum of " + maxDepth + " at index " + index);
+        }
+        step(index);
+    }
+
+    void exit() {
+        depth--;
+    }
+
+    /**
+     * @param index The index which the parser has reached,
+     *     which must not be beyond the maximum length
+     */
+    void step(final int index) {
+        if(index > maxLength) {
+            checkLength(index);
+        }
+        if(--untilCheck == 0) {
+            untilCheck = CHECK_INTERVAL;
+            checkTime(index);
+        }
+    }
+
+    void checkTime(final int index) {
+        if(Thread.currentThread().isInterrupted()) {
+            throw exceeded(Limit.CANCELLED, index, "Parsing of XPath was interrupted at index " + index);
+        }
+        if(deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            throw exceeded(Limit.TIME, index, timeoutMessage(index));
+        }
+    }
+
+    private String timeoutMessage(final int index) {
+        return "Parsing of XPath took longer than the maximum of " + limits.getTimeout(TimeUnit.MILLISECONDS) + "ms at index " + index;
+    }
+
+    /**
+     * @return the milliseconds left until the deadline, at least 1,
+     *     or {@link Long#MAX_VALUE} if there is no timeout
+     */
+    long remainingMillis() {
+        return deadline == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    ExceededException timedOut() {
+        return exceeded(Limit.TIME, -1, timeoutMessage(-1));
+    }
+
+    Expr checkNodeCount(final Expr expr) {
+        if(limits.getMaxNodeCount() != Integer.MAX_VALUE && expr.countNodes(limits.getMaxNodeCount()) > limits.getMaxNodeCount()) {
+            throw exceeded(Limit.NODE_COUNT, -1, "XPath has more than the maximum of " + limits.getMaxNodeCount() + " AST nodes");
+        }
+        return expr;
+    }
+
+    /**
+     * Creates a list to receive the errors of a
+     * {@link org.parboiled.parserunners.RecoveringParseRunner}, which
+     * is added to as each error is recovered from, and so limits the
+     * number of recovery attempts.
+     *
+     * @return The list of errors
+     */
+    List<ParseError> recoveryErrors() {
+        return new ArrayList<ParseError>() {
+            @Override
+            public boolean add(final ParseError error) {
+                if(size() >= limits.getMaxRecoveryAttempts()) {
+                    throw exceeded(Limit.RECOVERY_ATTEMPTS, error.getStartIndex(), "XPath has more than the maximum of " + limits.getMaxRecoveryAttempts() + " errors to recover from");
+                }
+                checkTime(error.getStartIndex());
+                return super.add(error);
+            }
+        };
+    }
+
+    /**
+     * Reports a parse which exhausted the stack of its thread before it
+     * reached the maximum depth, as though it had exceeded that depth.
+     *
+     * @param index The index which the parser had reached, or -1 if it is not known
+     *
+     * @return The exception to report
+     */
+    static XPathParseLimitException stackExhausted(final int index) {
+        return new XPathParseLimitException("XPath nests too deeply for the stack of the parsing thread" + (index < 0 ? "" : " at index " + index), index, Limit.DEPTH);
+    }
+
+    /**
+     * @param e An exception thrown by Parboiled whilst matching
+     *
+     * @return true if the exception was caused by the stack of the thread being exhausted
+     */
+    static boolean isStackExhausted(final ParserRuntimeException e) {
+        for(Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if(cause instanceof StackOverflowError) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ExceededException exceeded(final Limit limit, final int index, final String message) {
+        return new ExceededException(new XPathParseLimitException(message, index, limit));
+    }
+
+    /**
+     * Unwinds a parse which has exceeded a limit, it extends
+     * {@link ParserRuntimeException} so that Parboiled rethrows it
+     * unwrapped, and carries the exception to report to the caller.
+     */
+    static class ExceededException extends ParserRuntimeException {
+        final XPathParseLimitException limitException;
+
+        ExceededException(final XPathParseLimitException limitException) {
+            super(limitException.getMessage());
+            this.limitException = limitException;
+        }
+
+        /**
+         * @param offset The index within the input of the start of the XPath
+         *
+         * @return The exception to report, with its index relative to the input
+         */
+        XPathParseLimitException toLimitException(final int offset) {
+            final int index = limitException.getIndex();
+            if(offset == 0 || index < 0) {
+                return limitException;
+            }
+            return new XPathParseLimitException(limitException.getMessage(), offset + index, limitException.getLimit());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+/**
+ * The strategy used by {@link XPathParserPool} when
+ * parsing an XPath Expression.
+ */
+public enum ParseMode {
+
+    /**
+     * Always parse with a {@link org.parboiled.parserunners.RecoveringParseRunner}
+     * so that every error in the input is reported.
+     */
+    RECOVERING,
+
+    /**
+     * Only parse with a {@link org.parboiled.parserunners.BasicParseRunner},
+     * if the input is invalid then no error details are reported.
+     */
+    FAST,
+
+    /**
+     * First parse with a {@link org.parboiled.parserunners.BasicParseRunner},
+     * and only if that fails re-parse with a {@link org.parboiled.parserunners.RecoveringParseRunner}
+     * so that every error in the input is reported.
+     */
+    FAST_THEN_RECOVERING
+}
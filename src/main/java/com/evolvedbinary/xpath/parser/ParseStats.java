@@ -0,0 +1,128 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Statistics of parsing a single XPath Expression with
+ * {@link XPathParserPool#parseExprWithStats(CharSequence)},
+ * for example to attribute a slow request to its XPath.
+ *
+ * The counts of rule invocations and backtracks, and the maximum
+ * depth of the value stack, are of the fast parse which is always
+ * attempted first, and not of any subsequent parse which recovers from
+ * errors to report them. The elapsed time and allocated bytes include
+ * every parse.
+ */
+public final class ParseStats {
+
+    private final long elapsedNanos;
+    private final long allocatedBytes;
+    private final long ruleInvocations;
+    private final long backtracks;
+    private final int maxValueStackDepth;
+    private final int nodeCount;
+    private final int astDepth;
+
+    public ParseStats(final long elapsedNanos, final long allocatedBytes, final long ruleInvocations, final long backtracks,
+            final int maxValueStackDepth, final int nodeCount, final int astDepth) {
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.ruleInvocations = ruleInvocations;
+        this.backtracks = backtracks;
+        this.maxValueStackDepth = maxValueStackDepth;
+        this.nodeCount = nodeCount;
+        this.astDepth = astDepth;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of bytes allocated on the heap by the parsing thread.
+     *
+     * @return The number of bytes, or -1 if the JVM cannot measure it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return The number of times that a rule, of any kind, was matched against the input
+     */
+    public long getRuleInvocations() {
+        return ruleInvocations;
+    }
+
+    /**
+     * Gets the number of rules which failed to match after they had
+     * matched some of the input, which must then be matched again by
+     * an alternative.
+     *
+     * @return The number of backtracks
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public int getMaxValueStackDepth() {
+        return maxValueStackDepth;
+    }
+
+    /**
+     * @return The number of nodes in the AST, or 0 if the XPath is not valid
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return The depth of the AST, or 0 if the XPath is not valid
+     */
+    public int getAstDepth() {
+        return astDepth;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseStats(elapsedNanos=" + elapsedNanos + ", allocatedBytes=" + allocatedBytes
+                + ", ruleInvocations=" + ruleInvocations + ", backtracks=" + backtracks
+                + ", maxValueStackDepth=" + maxValueStackDepth + ", nodeCount=" + nodeCount + ", astDepth=" + astDepth + ")";
+    }
+
+    /**
+     * Gets the number of bytes allocated so far by the current thread.
+     *
+     * @return The number of bytes, or -1 if the JVM cannot measure it
+     */
+    static long threadAllocatedBytes() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if(threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+            if(sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * An {@link InputBuffer} which reads from a {@link Reader} on demand
+ * and only holds a sliding window of the most recently read characters.
+ *
+ * This allows very large expressions to be parsed without holding
+ * their entire text on the heap. The parser backtracks when an
+ * alternative of a rule does not match, but only a short distance
+ * for a valid XPath, and so when the window is full it is slid forward
+ * keeping the most recent half of its characters. Should the parser need
+ * to return to a character which is no longer in the window, then a
+ * {@link WindowExceededException} is thrown. For an invalid XPath that is
+ * to be expected, as when it fails to match, every rule which contains the
+ * error returns to its own start to try any alternatives.
+ *
+ * Only the characters which have been read so far are visible to
+ * {@link #getPosition(int)}, {@link #extractLine(int)} and {@link #getLineCount()}.
+ * As the input can only be read once, it is only suitable for a
+ * {@link org.parboiled.parserunners.BasicParseRunner}.
+ */
+public class ReaderInputBuffer implements InputBuffer {
+
+    /**
+     * The number of characters in the window
+     * unless another size is specified.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+
+    /**
+     * The same limit as {@link org.parboiled.buffers.DefaultInputBuffer}
+     * for detecting a grammar which consumes EOI indefinitely.
+     */
+    private static final int MAX_CHARS_BEYOND_EOI = 100000;
+
+    private final Reader reader;
+    private final char[] window;
+
+    /**
+     * The index of the input character held in {@code window[0]}.
+     */
+    private int windowStart = 0;
+
+    /**
+     * The index of the input character after the last one read.
+     */
+    private int windowEnd = 0;
+
+    private boolean endOfInput = false;
+
+    /**
+     * The index of the furthest character which the parser has requested.
+     */
+    private int furthestIndex = -1;
+
+    /**
+     * The indexes of the newlines read so far.
+     */
+    private int[] newlines = new int[16];
+    private int newlineCount = 0;
+
+    /**
+     * @param reader The reader of the characters to parse
+     */
+    public ReaderInputBuffer(final Reader reader) {
+        this(reader, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param reader The reader of the characters to parse
+     * @param windowSize The maximum number of characters to hold
+     *     at once, the parser may return to at least the last
+     *     {@code windowSize / 2} characters which it has read
+     */
+    public ReaderInputBuffer(final Reader reader, final int windowSize) {
+        if(windowSize < 2) {
+            throw new IllegalArgumentException("windowSize must be at least 2");
+        }
+        this.reader = reader;
+        this.window = new char[windowSize];
+    }
+
+    /**
+     * Thrown when the parser returns to a character
+     * which is no longer in the window.
+     */
+    public static class WindowExceededException extends ParserRuntimeException {
+        WindowExceededException(final int index, final int windowStart) {
+            super("Parser returned to index " + index + " which is no longer in the window of the input starting at index " + windowStart);
+        }
+    }
+
+    /**
+     * Gets the index of the furthest character which the parser has
+     * requested, which when the parser fails to match the input
+     * is the index at which the input could be matched no further.
+     *
+     * @return the index of the furthest character, or the length
+     *     of the input if the parser requested the end of the input
+     */
+    public int getFurthestIndex() {
+        return endOfInput ? Math.min(furthestIndex, windowEnd) : furthestIndex;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if(index > furthestIndex) {
+            furthestIndex = index;
+        }
+        if(index < windowStart) {
+            if(index < 0) {
+                return Chars.EOI;
+            }
+            throw new WindowExceededException(index, windowStart);
+        }
+        while(index >= windowEnd) {
+            if(endOfInput) {
+                if(index - windowEnd > MAX_CHARS_BEYOND_EOI) {
+                    throw new ParserRuntimeException("Parser read more than 100K chars beyond EOI, verify that your grammar does not consume EOI indefinitely!");
+                }
+                return Chars.EOI;
+            }
+            read();
+        }
+        return window[index - windowStart];
+    }
+
+    /**
+     * Reads more characters into the window, first
+     * sliding it forward if it is full.
+     */
+    private void read() {
+        if(windowEnd - windowStart == window.length) {
+            final int keep = window.length / 2;
+            System.arraycopy(window, window.length - keep, window, 0, keep);
+            windowStart = windowEnd - keep;
+        }
+
+        final int offset = windowEnd - windowStart;
+        final int read;
+        try {
+            read = reader.read(window, offset, window.length - offset);
+        } catch(final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if(read < 0) {
+            endOfInput = true;
+            return;
+        }
+
+        for(int i = offset; i < offset + read; i++) {
+            if(window[i] == '\n') {
+                if(newlineCount == newlines.length) {
+                    newlines = Arrays.copyOf(newlines, newlineCount * 2);
+                }
+                newlines[newlineCount++] = windowStart + i;
+            }
+        }
+        windowEnd += read;
+    }
+
+    @Override
+    public boolean test(final int index, final char[] characters) {
+        if(index < 0) {
+            return false;
+        }
+        for(int i = 0; i < characters.length; i++) {
+            if(charAt(index + i) != characters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the characters between two indexes.
+     *
+     * @throws WindowExceededException if the characters
+     *     are no longer in the window
+     */
+    @Override
+    public String extract(int start, int end) {
+        if(start < 0) {
+            start = 0;
+        }
+        if(end > start) {
+            charAt(end - 1);
+        }
+        if(end > windowEnd) {
+            end = windowEnd;
+        }
+        if(end <= start) {
+            return "";
+        }
+        charAt(start);
+        return new String(window, start - windowStart, end - start);
+    }
+
+    @Override
+    public String extract(final IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index) {
+        int line = Arrays.binarySearch(newlines, 0, newlineCount, index);
+        if(line < 0) {
+            line = -(line + 1);
+        }
+        final int column = index - (line > 0 ? newlines[line - 1] : -1);
+        return new Position(line + 1, column);
+    }
+
+    @Override
+    public int getOriginalIndex(final int index) {
+        return index;
+    }
+
+    /**
+     * Extracts a line of the input, which is truncated
+     * to the characters which are still in the window.
+     */
+    @Override
+    public String extractLine(final int lineNumber) {
+        if(lineNumber < 1 || lineNumber > newlineCount + 1) {
+            throw new IllegalArgumentException("No such line: " + lineNumber);
+        }
+        final int start = Math.max(lineNumber > 1 ? newlines[lineNumber - 2] + 1 : 0, windowStart);
+        int end = lineNumber <= newlineCount ? newlines[lineNumber - 1] : windowEnd;
+        if(end > start && window[end - 1 - windowStart] == '\r') {
+            end--;
+        }
+        return end > start ? new String(window, start - windowStart, end - start) : "";
+    }
+
+    @Override
+    public int getLineCount() {
+        return newlineCount + 1;
+    }
+}
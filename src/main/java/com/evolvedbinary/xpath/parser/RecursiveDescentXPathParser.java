@@ -0,0 +1,2175 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.xpath.parser.ast.*;
+
+import javax.annotation.Nullable;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A hand-written recursive descent parser for XPath Expressions
+ * which builds exactly the same AST as {@link XPathParser}.
+ *
+ * Each rule of {@link XPathParser} has a corresponding method here
+ * which matches the same input in the same way, i.e. a scannerless
+ * parser with ordered choice and backtracking, as the grammar cannot
+ * be tokenised independently of its rules: keywords are not delimited
+ * and {@link XPathParser#WS()} matches either whitespace or a comment.
+ *
+ * By not interpreting a rule tree nor building a parse tree,
+ * it is considerably faster than Parboiled, it also has
+ * no per-thread state and so may be freely shared between threads.
+ * However it cannot recover from errors, and only reports the
+ * index at which the input could be matched no further.
+ *
+ * The same methods also recognise XPaths without building
+ * an AST, for {@link XPathValidator}.
+ *
+ * The parser may be given {@link XPathParseLimits}, of which
+ * {@link XPathParseLimits#getMaxRecoveryAttempts()} does not apply.
+ */
+public class RecursiveDescentXPathParser implements XPathExpressionParser {
+
+    private final XPathParseLimits limits;
+
+    public RecursiveDescentXPathParser() {
+        this(XPathParseLimits.NONE);
+    }
+
+    /**
+     * @param limits The limits on the resources used to parse each XPath
+     */
+    public RecursiveDescentXPathParser(final XPathParseLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public Expr parseExpr(final String xpath) throws XPathParseException {
+        return parseExpr((CharSequence)xpath);
+    }
+
+    /**
+     * Parses an XPath Expression from a sequence of characters.
+     *
+     * The remaining characters of a {@link java.nio.CharBuffer} which is
+     * backed by an array are parsed directly from that array,
+     * any other sequence is first copied into a new array.
+     *
+     * @param xpath The XPath to parse, which must not be modified whilst it is parsed
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    @Override
+    public Expr parseExpr(final CharSequence xpath) throws XPathParseException {
+        final CharBuffer buffer = CharArrayInputBuffer.arrayBacked(xpath);
+        return parseExpr(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    @Override
+    public Expr parseExpr(final char[] xpath, final int offset, final int length) throws XPathParseException {
+        if(offset < 0 || length < 0 || offset > xpath.length - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + xpath.length);
+        }
+        final XPathParseEvent event = XPathParseEvent.start(XPathParseEvent.RECURSIVE_DESCENT, length);
+        if(event == null) {
+            return parse(xpath, offset, length);
+        }
+        try {
+            return event.parsed(parse(xpath, offset, length));
+        } catch(final XPathParseException | RuntimeException e) {
+            event.failed(e);
+            throw e;
+        }
+    }
+
+    private Expr parse(final char[] xpath, final int offset, final int length) throws XPathParseException {
+        final ParseBudget budget = ParseBudget.start(limits);
+        final Parse parse = new Parse(xpath, offset, length, budget);
+        try {
+            if(budget != null) {
+                budget.checkLength(length);
+            }
+            final Expr expr = parse.parseXPath();
+            if(expr != null) {
+                return budget == null ? expr : budget.checkNodeCount(expr);
+            }
+            throw parse.error();
+        } catch(final ParseAbortedException e) {
+            throw new XPathParseException(e.getMessage(), e.index, Collections.emptyList());
+        } catch(final ParseBudget.ExceededException e) {
+            throw e.toLimitException(0);
+        } catch(final StackOverflowError e) {
+            throw ParseBudget.stackExhausted(parse.pos);
+        }
+    }
+
+    @Override
+    public XPathPrefixParseResult parsePrefix(final CharSequence input, final int offset) throws XPathParseException {
+        if(offset < 0 || offset > input.length()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + input.length());
+        }
+        final XPathParseEvent event = XPathParseEvent.start(XPathParseEvent.RECURSIVE_DESCENT, -1);
+        if(event == null) {
+            return parsePrefix(input, offset, null);
+        }
+        try {
+            return parsePrefix(input, offset, event);
+        } catch(final XPathParseException | RuntimeException e) {
+            event.failed(e);
+            throw e;
+        }
+    }
+
+    private XPathPrefixParseResult parsePrefix(final CharSequence input, final int offset, @Nullable final XPathParseEvent event) throws XPathParseException {
+        final ParseBudget budget = ParseBudget.start(limits);
+        final Parse parse = new Parse(input, offset, budget);
+        try {
+            if(budget != null) {
+                budget.checkLength(input.length() - offset);
+            }
+            final Expr expr = parse.parseExpr();
+            if(expr != null) {
+                final Expr checked = budget == null ? expr : budget.checkNodeCount(expr);
+                if(event != null) {
+                    event.inputLength = parse.pos;
+                    event.parsed(checked);
+                }
+                return new XPathPrefixParseResult(checked, offset + parse.pos);
+            }
+            final XPathParseException e = parse.error();
+            throw new XPathParseException(e.getMessage(), offset + e.getIndex(), e.getErrors());
+        } catch(final ParseAbortedException e) {
+            throw new XPathParseException(e.getMessage(), offset + e.index, Collections.emptyList());
+        } catch(final ParseBudget.ExceededException e) {
+            throw e.toLimitException(offset);
+        } catch(final StackOverflowError e) {
+            throw ParseBudget.stackExhausted(offset + parse.pos);
+        }
+    }
+
+    /**
+     * Thrown where {@link XPathParser} would fail with a runtime exception
+     * from one of its actions, in which case parsing stops immediately.
+     */
+    private static class ParseAbortedException extends RuntimeException {
+
+        /**
+         * Thrown when only recognising, which records the index in the
+         * {@link Parse} instead, as it is only ever thrown to unwind the
+         * recogniser, a single instance suffices.
+         */
+        static final ParseAbortedException RECOGNISED = new ParseAbortedException(null, -1);
+
+        final int index;
+
+        ParseAbortedException(@Nullable final String message, final int index) {
+            super(message, null, false, false);
+            this.index = index;
+        }
+    }
+
+    /**
+     * The state of parsing a single XPath.
+     *
+     * Methods return false if they do not match, in which case they may have
+     * consumed input, pushed values and modified the steps, so any caller which
+     * continues after a failed match must first reset all three.
+     *
+     * When building, each method which matches pushes the value it builds,
+     * if any, onto the value stack, from which the method of the enclosing
+     * rule pops it. When only recognising, as {@link XPathValidator} does,
+     * nothing is pushed and no strings are extracted from the input, so
+     * once the instance has been reused a few times nothing is allocated.
+     */
+    static class Parse {
+        private static final char EOI = '\uFFFF';
+
+        private static final String[] VALUE_COMPS = {"eq", "ne", "lt", "le", "gt", "ge"};
+        private static final String[] NODE_COMPS = {"is", "<<", ">>"};
+        private static final String[] GENERAL_COMPS = {"<=", "!=", ">=", "<", "=", ">"};
+        private static final String[] MULTIPLICATIVE_OPS = {"idiv", "div", "mod"};
+        private static final String[] FORWARD_AXES = {"child", "attribute", "self", "descendant-or-self", "descendant", "following-sibling", "following", "namespace"};
+        private static final String[] REVERSE_AXES = {"parent", "ancestor-or-self", "ancestor", "preceding-sibling", "preceding"};
+
+        private final boolean build;
+
+        /**
+         * The input is read either from a range of an array,
+         * or from a sequence when that would have to be copied.
+         */
+        @Nullable private char[] input;
+        @Nullable private CharSequence sequence;
+        private int offset;
+        private int length;
+        private int pos = 0;
+        private int errorIndex = 0;
+        private int abortIndex = -1;
+        @Nullable private final ParseBudget budget;
+
+        private Object[] values = new Object[16];
+        private int valueCount = 0;
+
+        /**
+         * Mirrors the {@link StepExpr}s which {@link XPathParser} holds on its
+         * value stack, as {@link XPathParser#RelativePathExpr()} pops every
+         * step from the top of the stack and not just its own. Null entries
+         * are barriers, which stand in for any other value on the stack, and
+         * also hide the steps below them which have already been popped.
+         *
+         * The steps only affect the AST, so are not mirrored when recognising.
+         */
+        private StepExpr[] steps = new StepExpr[16];
+        private int stepCount = 0;
+
+        Parse(final char[] input, final int offset, final int length, @Nullable final ParseBudget budget) {
+            this.build = true;
+            this.input = input;
+            this.sequence = null;
+            this.offset = offset;
+            this.length = length;
+            this.budget = budget;
+        }
+
+        Parse(final CharSequence sequence, final int offset, @Nullable final ParseBudget budget) {
+            this.build = true;
+            this.input = null;
+            this.sequence = sequence;
+            this.offset = offset;
+            this.length = sequence.length() - offset;
+            this.budget = budget;
+        }
+
+        /**
+         * Creates a recogniser, which may be reused
+         * by {@link #recognise(CharSequence)}.
+         *
+         * @param budget The budget, which is restarted for each XPath, or null
+         */
+        Parse(@Nullable final ParseBudget budget) {
+            this.build = false;
+            this.budget = budget;
+        }
+
+        /**
+         * @return the AST of the XPath, or null if it is not valid
+         */
+        @Nullable
+        Expr parseXPath() {
+            return xpath() ? this.<Expr>pop() : null;
+        }
+
+        /**
+         * @return the AST of the longest Expr at the start of the input, or null if there is none
+         */
+        @Nullable
+        Expr parseExpr() {
+            return expr() ? this.<Expr>pop() : null;
+        }
+
+        /**
+         * Recognises an XPath, without building its AST.
+         *
+         * @param xpath The XPath to recognise
+         *
+         * @return -1 if the XPath is valid, otherwise the index of its first
+         *     error, or the index at which it exceeded a limit of the budget
+         *     or exhausted the stack
+         */
+        int recognise(final CharSequence xpath) {
+            this.sequence = xpath;
+            this.offset = 0;
+            this.length = xpath.length();
+            this.pos = 0;
+            this.errorIndex = 0;
+            this.stepCount = 0;
+            try {
+                if(budget != null) {
+                    budget.restart();
+                    budget.checkLength(length);
+                }
+                return xpath() ? -1 : Math.min(errorIndex, length);
+            } catch(final ParseAbortedException e) {
+                return abortIndex;
+            } catch(final ParseBudget.ExceededException e) {
+                return e.limitException.getIndex();
+            } catch(final StackOverflowError e) {
+                return pos;
+            } finally {
+                this.sequence = null;
+            }
+        }
+
+        XPathParseException error() {
+            final char c = at(errorIndex);
+            final String found = c == EOI ? "EOI" : "'" + c + "'";
+            return new XPathParseException("Invalid input " + found + " at index " + errorIndex + " of XPath: " + extract(0, length), Math.min(errorIndex, length), Collections.emptyList());
+        }
+
+        /**
+         * Stops parsing, where {@link XPathParser} would fail with
+         * a runtime exception from one of its actions.
+         *
+         * @param reason The reason to report
+         * @param index The index to report
+         *
+         * @return the exception to throw
+         */
+        private ParseAbortedException abort(final String reason, final int index) {
+            if(!build) {
+                abortIndex = index;
+                return ParseAbortedException.RECOGNISED;
+            }
+            return new ParseAbortedException(reason + " at index " + index + " of XPath: " + extract(0, length), index);
+        }
+
+        /* Input */
+
+        private char at(final int index) {
+            if(index >= length) {
+                return EOI;
+            }
+            return input != null ? input[offset + index] : sequence.charAt(offset + index);
+        }
+
+        private String extract(final int start, final int end) {
+            if(input != null) {
+                return new String(input, offset + start, end - start);
+            }
+            return sequence.subSequence(offset + start, offset + end).toString();
+        }
+
+        private char ch() {
+            return at(pos);
+        }
+
+        private void fail(final int index) {
+            if(index > errorIndex) {
+                errorIndex = index;
+            }
+        }
+
+        private boolean match(final char c) {
+            if(ch() == c) {
+                pos++;
+                return true;
+            }
+            fail(pos);
+            return false;
+        }
+
+        private boolean match(final String s) {
+            int i = 0;
+            while(i < s.length() && at(pos + i) == s.charAt(i)) {
+                i++;
+            }
+            if(i == s.length()) {
+                pos += i;
+                return true;
+            }
+            fail(pos + i);
+            return false;
+        }
+
+        @Nullable
+        private String matchFirstOf(final String[] syntaxes) {
+            for(final String syntax : syntaxes) {
+                if(match(syntax)) {
+                    return syntax;
+                }
+            }
+            return null;
+        }
+
+        /* Values */
+
+        private void push(final Object value) {
+            if(valueCount == values.length) {
+                values = Arrays.copyOf(values, valueCount * 2);
+            }
+            values[valueCount++] = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T pop() {
+            final T value = (T)values[--valueCount];
+            values[valueCount] = null;
+            return value;
+        }
+
+        /**
+         * Pops every value above a mark.
+         *
+         * @param mark The number of values to leave on the stack
+         *
+         * @return the values, in the order that they were pushed
+         */
+        @SuppressWarnings("unchecked")
+        private <T> List<T> popList(final int mark) {
+            final List<T> list = new ArrayList<T>(valueCount - mark);
+            for(int i = mark; i < valueCount; i++) {
+                list.add((T)values[i]);
+                values[i] = null;
+            }
+            valueCount = mark;
+            return list;
+        }
+
+        /* Steps */
+
+        private void pushStep(@Nullable final StepExpr step) {
+            if(stepCount == steps.length) {
+                steps = Arrays.copyOf(steps, stepCount * 2);
+            }
+            steps[stepCount++] = step;
+        }
+
+        /**
+         * Protects the steps on the stack from any
+         * relative path which is subsequently parsed.
+         *
+         * @return the stack depth to reset to with {@link #unprotect(int)}
+         */
+        private int protect() {
+            final int depth = stepCount;
+            if(build) {
+                pushStep(null);
+            }
+            return depth;
+        }
+
+        private void unprotect(final int depth) {
+            stepCount = depth;
+        }
+
+        /* XPath Rules */
+
+        private boolean xpath() {
+            if(!expr() || ch() != EOI) {
+                fail(pos);
+                return false;
+            }
+            return true;
+        }
+
+        private boolean expr() {
+            final int mark = valueCount;
+            if(!exprSingle()) {
+                return false;
+            }
+            while(true) {
+                final int start = pos;
+                final int depth = stepCount;
+                final int exprSingleMark = valueCount;
+                if(match(',')) {
+                    ws();
+                    if(exprSingle()) {
+                        continue;
+                    }
+                }
+                pos = start;
+                stepCount = depth;
+                valueCount = exprSingleMark;
+                break;
+            }
+            if(build) {
+                push(new Expr(this.<ASTNode>popList(mark)));
+            }
+            return true;
+        }
+
+        /**
+         * Every nested expression is an ExprSingle,
+         * so its depth is limited here.
+         */
+        private boolean exprSingle() {
+            if(budget == null) {
+                return matchExprSingle();
+            }
+            budget.enter(pos);
+            final boolean exprSingle = matchExprSingle();
+            budget.exit();
+            return exprSingle;
+        }
+
+        private boolean matchExprSingle() {
+            final int start = pos;
+            final int depth = stepCount;
+            final int mark = valueCount;
+            if(forExpr()) {
+                return true;
+            }
+            pos = start;
+            stepCount = depth;
+            valueCount = mark;
+            if(quantifiedExpr()) {
+                return true;
+            }
+            pos = start;
+            stepCount = depth;
+            valueCount = mark;
+            if(ifExpr()) {
+                return true;
+            }
+            pos = start;
+            stepCount = depth;
+            valueCount = mark;
+            return orExpr();
+        }
+
+        private boolean forExpr() {
+            if(!simpleForClause()) {
+                return false;
+            }
+            final int depth = protect();
+            if(!match("return")) {
+                return false;
+            }
+            ws();
+            if(!exprSingle()) {
+                return false;
+            }
+            unprotect(depth);
+            if(build) {
+                final ASTNode returnExpression = pop();
+                final SimpleForClause simpleForClause = pop();
+                push(new ForExpr(simpleForClause, returnExpression));
+            }
+            return true;
+        }
+
+        private boolean simpleForClause() {
+            if(!match("for")) {
+                return false;
+            }
+            ws();
+            final int mark = valueCount;
+            if(!rangeVariable()) {
+                return false;
+            }
+            while(true) {
+                final int start = pos;
+                final int depth = stepCount;
+                final int rangeVariableMark = valueCount;
+                if(match(',')) {
+                    ws();
+                    if(rangeVariable()) {
+                        continue;
+                    }
+                }
+                pos = start;
+                stepCount = depth;
+                valueCount = rangeVariableMark;
+                break;
+            }
+            if(build) {
+                push(new SimpleForClause(this.<SimpleForClause.RangeVariable>popList(mark)));
+            }
+            return true;
+        }
+
+        private boolean rangeVariable() {
+            if(!match('$')) {
+                return false;
+            }
+            ws();
+            if(!qName()) {
+                return false;
+            }
+            final int depth = protect();
+            if(!match("in")) {
+                return false;
+            }
+            ws();
+            if(!exprSingle()) {
+                return false;
+            }
+            unprotect(depth);
+            if(build) {
+                final ASTNode exprSingle = pop();
+                final QNameW varName = pop();
+                push(new SimpleForClause.RangeVariable(varName, exprSingle));
+            }
+            return true;
+        }
+
+        private boolean quantifiedExpr() {
+            final String syntax = match("some") ? "some" : (match("every") ? "every" : null);
+            if(syntax == null) {
+                return false;
+            }
+            final int depth = protect();
+            ws();
+            final int mark = valueCount;
+            if(!inClause()) {
+                return false;
+            }
+            while(true) {
+                final int start = pos;
+                final int inClauseDepth = stepCount;
+                final int inClauseMark = valueCount;
+                if(match(',')) {
+                    ws();
+                    if(inClause()) {
+                        continue;
+                    }
+                }
+                pos = start;
+                stepCount = inClauseDepth;
+                valueCount = inClauseMark;
+                break;
+            }
+            if(!match("satisfies")) {
+                return false;
+            }
+            ws();
+            if(!exprSingle()) {
+                return false;
+            }
+            unprotect(depth);
+            if(build) {
+                final ASTNode satisfies = pop();
+                final List<QuantifiedExpr.InClause> inClauses = popList(mark);
+                push(new QuantifiedExpr(QuantifiedExpr.Quantifier.fromSyntax(syntax), inClauses, satisfies));
+            }
+            return true;
+        }
+
+        private boolean inClause() {
+            if(!match('$')) {
+                return false;
+            }
+            ws();
+            if(!qName() || !match("in")) {
+                return false;
+            }
+            ws();
+            if(!exprSingle()) {
+                return false;
+            }
+            if(build) {
+                final ASTNode in = pop();
+                final QNameW varName = pop();
+                push(new QuantifiedExpr.InClause(varName, in));
+            }
+            return true;
+        }
+
+        private boolean ifExpr() {
+            if(!match("if")) {
+                return false;
+            }
+            ws();
+            if(!match('(')) {
+                return false;
+            }
+            ws();
+            if(!expr()) {
+                return false;
+            }
+            final int depth = protect();
+            if(!match(')')) {
+                return false;
+            }
+            ws();
+            if(!match("then")) {
+                return false;
+            }
+            ws();
+            if(!exprSingle() || !match("else")) {
+                return false;
+            }
+            ws();
+            if(!exprSingle()) {
+                return false;
+            }
+            unprotect(depth);
+            if(build) {
+                final ASTNode elseExpression = pop();
+                final ASTNode thenExpression = pop();
+                final Expr testExpression = pop();
+                push(new IfExpr(testExpression, thenExpression, elseExpression));
+            }
+            return true;
+        }
+
+        private boolean orExpr() {
+            if(!andExpr()) {
+                return false;
+            }
+            final int depth = protect();
+            final int mark = valueCount;
+            while(true) {
+                final int start = pos;
+                final int orOpMark = valueCount;
+                if(match("or")) {
+                    ws();
+                    if(andExpr()) {
+                        continue;
+                    }
+                }
+                pos = start;
+                valueCount = orOpMark;
+                break;
+            }
+            unprotect(depth);
+            if(build && valueCount > mark) {
+                final List<AbstractOperand> orOps = popList(mark);
+                final AbstractOperand operand = pop();
+                push(new OrExpr(operand, orOps));
+            }
+            return true;
+        }
+
+        private boolean andExpr() {
+            if(!comparisonExpr()) {
+                return false;
+            }
+            final int depth = protect();
+            final int mark = valueCount;
+            while(true) {
+                final int start = pos;
+                final int andOpMark = valueCount;
+                if(match("and")) {
+                    ws();
+                    if(comparisonExpr()) {
+                        continue;
+                    }
+                }
+                pos = start;
+                valueCount = andOpMark;
+                break;
+            }
+            unprotect(depth);
+            if(build && valueCount > mark) {
+                final List<AbstractOperand> andOps = popList(mark);
+                final AbstractOperand operand = pop();
+                push(new AndExpr(operand, andOps));
+            }
+            return true;
+        }
+
+        private boolean comparisonExpr() {
+            if(!rangeExpr()) {
+                return false;
+            }
+            final int start = pos;
+            final int depth = protect();
+            final int mark = valueCount;
+            if(comparison() && rangeExpr()) {
+                unprotect(depth);
+                if(build) {
+                    final AbstractOperand right = pop();
+                    final Comparison comparison = pop();
+                    final AbstractOperand left = pop();
+                    push(new ComparisonExpr(left, comparison, right));
+                }
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            unprotect(depth);
+            return true;
+        }
+
+        private boolean comparison() {
+            final int start = pos;
+            String syntax;
+            if((syntax = matchFirstOf(VALUE_COMPS)) != null) {
+                if(build) {
+                    push(ValueComp.fromSyntax(syntax));
+                }
+            } else if((syntax = matchFirstOf(NODE_COMPS)) != null) {
+                if(build) {
+                    push(NodeComp.fromSyntax(syntax));
+                }
+            } else if((syntax = matchFirstOf(GENERAL_COMPS)) != null) {
+                if(build) {
+                    push(GeneralComp.fromSyntax(syntax));
+                }
+            } else {
+                pos = start;
+                return false;
+            }
+            ws();
+            return true;
+        }
+
+        private boolean rangeExpr() {
+            if(!additiveExpr()) {
+                return false;
+            }
+            final int start = pos;
+            final int depth = protect();
+            final int mark = valueCount;
+            ws();
+            if(match("to")) {
+                ws();
+                if(additiveExpr()) {
+                    unprotect(depth);
+                    if(build) {
+                        final AbstractOperand to = pop();
+                        final AbstractOperand from = pop();
+                        push(new RangeExpr(from, to));
+                    }
+                    return true;
+                }
+            }
+            pos = start;
+            valueCount = mark;
+            unprotect(depth);
+            return true;
+        }
+
+        private boolean additiveExpr() {
+            if(!multiplicativeExpr()) {
+                return false;
+            }
+            final int depth = protect();
+            final int mark = valueCount;
+            while(true) {
+                final int start = pos;
+                final int additiveOpMark = valueCount;
+                ws();
+                final char c = ch();
+                if(c == '+' || c == '-') {
+                    pos++;
+                    ws();
+                    if(multiplicativeExpr()) {
+                        if(build) {
+                            push(new AdditiveExpr.AdditiveOp(AdditiveExpr.Additive.fromSyntax(c), this.<AbstractOperand>pop()));
+                        }
+                        continue;
+                    }
+                } else {
+                    fail(pos);
+                }
+                pos = start;
+                valueCount = additiveOpMark;
+                break;
+            }
+            unprotect(depth);
+            if(build && valueCount > mark) {
+                final List<AdditiveExpr.AdditiveOp> additiveOps = popList(mark);
+                final AbstractOperand operand = pop();
+                push(new AdditiveExpr(operand, additiveOps));
+            }
+            return true;
+        }
+
+        private boolean multiplicativeExpr() {
+            if(!unionExpr()) {
+                return false;
+            }
+            final int depth = protect();
+            final int mark = valueCount;
+            while(true) {
+                final int start = pos;
+                final int multiplicativeOpMark = valueCount;
+                ws();
+                final String syntax = match('*') ? "*" : matchFirstOf(MULTIPLICATIVE_OPS);
+                if(syntax != null) {
+                    ws();
+                    if(unionExpr()) {
+                        if(build) {
+                            push(new MultiplicativeExpr.MultiplicativeOp(MultiplicativeExpr.Multiplicative.fromSyntax(syntax), this.<AbstractOperand>pop()));
+                        }
+                        continue;
+                    }
+                }
+                pos = start;
+                valueCount = multiplicativeOpMark;
+                break;
+            }
+            unprotect(depth);
+            if(build && valueCount > mark) {
+                final List<MultiplicativeExpr.MultiplicativeOp> multiplicativeOps = popList(mark);
+                final AbstractOperand operand = pop();
+                push(new MultiplicativeExpr(operand, multiplicativeOps));
+            }
+            return true;
+        }
+
+        private boolean unionExpr() {
+            if(!intersectExceptExpr()) {
+                return false;
+            }
+            final int depth = protect();
+            final int mark = valueCount;
+            while(true) {
+                final int start = pos;
+                final int unionOpMark = valueCount;
+                ws();
+                if(match("union") || match('|')) {
+                    ws();
+                    if(intersectExceptExpr()) {
+                        continue;
+                    }
+                }
+                pos = start;
+                valueCount = unionOpMark;
+                break;
+            }
+            unprotect(depth);
+            if(build && valueCount > mark) {
+                final List<AbstractOperand> unionOps = popList(mark);
+                final AbstractOperand operand = pop();
+                push(new UnionExpr(operand, unionOps));
+            }
+            return true;
+        }
+
+        private boolean intersectExceptExpr() {
+            if(!instanceofExpr()) {
+                return false;
+            }
+            final int depth = protect();
+            final int mark = valueCount;
+            while(true) {
+                final int start = pos;
+                final int intersectExceptOpMark = valueCount;
+                ws();
+                final String syntax = match("intersect") ? "intersect" : (match("except") ? "except" : null);
+                if(syntax != null) {
+                    ws();
+                    if(instanceofExpr()) {
+                        if(build) {
+                            push(new IntersectExceptExpr.IntersectExceptOp(IntersectExceptExpr.IntersectExcept.fromSyntax(syntax), this.<AbstractOperand>pop()));
+                        }
+                        continue;
+                    }
+                }
+                pos = start;
+                valueCount = intersectExceptOpMark;
+                break;
+            }
+            unprotect(depth);
+            if(build && valueCount > mark) {
+                final List<IntersectExceptExpr.IntersectExceptOp> intersectExceptOps = popList(mark);
+                final AbstractOperand operand = pop();
+                push(new IntersectExceptExpr(operand, intersectExceptOps));
+            }
+            return true;
+        }
+
+        private boolean instanceofExpr() {
+            if(!treatExpr()) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            if(match("instance")) {
+                ws();
+                if(match("of")) {
+                    ws();
+                    if(sequenceType()) {
+                        if(build) {
+                            final SequenceType type = pop();
+                            push(new InstanceOfExpr(this.<AbstractOperand>pop(), type));
+                        }
+                        return true;
+                    }
+                }
+            }
+            pos = start;
+            valueCount = mark;
+            return true;
+        }
+
+        private boolean treatExpr() {
+            if(!castableExpr()) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            if(match("treat")) {
+                ws();
+                if(match("as")) {
+                    ws();
+                    if(sequenceType()) {
+                        if(build) {
+                            final SequenceType type = pop();
+                            push(new TreatExpr(this.<AbstractOperand>pop(), type));
+                        }
+                        return true;
+                    }
+                }
+            }
+            pos = start;
+            valueCount = mark;
+            return true;
+        }
+
+        private boolean castableExpr() {
+            if(!castExpr()) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            if(match("castable")) {
+                ws();
+                if(match("as")) {
+                    ws();
+                    if(singleType()) {
+                        if(build) {
+                            final SingleType type = pop();
+                            push(new CastableExpr(this.<AbstractOperand>pop(), type));
+                        }
+                        return true;
+                    }
+                }
+            }
+            pos = start;
+            valueCount = mark;
+            return true;
+        }
+
+        private boolean castExpr() {
+            if(!unaryExpr()) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            if(match("cast")) {
+                ws();
+                if(match("as")) {
+                    ws();
+                    if(singleType()) {
+                        if(build) {
+                            final SingleType type = pop();
+                            push(new CastExpr(this.<AbstractOperand>pop(), type));
+                        }
+                        return true;
+                    }
+                }
+            }
+            pos = start;
+            valueCount = mark;
+            return true;
+        }
+
+        private boolean unaryExpr() {
+            final int start = pos;
+            while(ch() == '-' || ch() == '+') {
+                pos++;
+            }
+            if(pos > start) {
+                final int signsEnd = pos;
+                final int depth = protect();
+                final int mark = valueCount;
+                if(valueExpr()) {
+                    unprotect(depth);
+                    if(build) {
+                        push(new UnaryExpr(extract(start, signsEnd), this.<ValueExpr>pop()));
+                    }
+                    return true;
+                }
+                pos = start;
+                valueCount = mark;
+                unprotect(depth);
+            } else {
+                fail(pos);
+            }
+            return valueExpr();
+        }
+
+        private boolean valueExpr() {
+            if(!pathExpr()) {
+                return false;
+            }
+            if(build) {
+                push(new ValueExpr(this.<PathExpr>pop()));
+            }
+            return true;
+        }
+
+        private boolean pathExpr() {
+            final int start = pos;
+            final int depth = stepCount;
+            final int mark = valueCount;
+            if(match("//")) {
+                ws();
+                if(relativePathExpr(PathExpr.SLASH_SLASH_ABBREV)) {
+                    if(build) {
+                        push(new PathExpr(false, this.<List<StepExpr>>pop()));
+                    }
+                    return true;
+                }
+                pos = start;
+                stepCount = depth;
+                valueCount = mark;
+            }
+            if(match('/')) {
+                ws();
+                final int relativeStart = pos;
+                if(!relativePathExpr(PathExpr.SLASH_ABBREV)) {
+                    pos = relativeStart;
+                    stepCount = depth;
+                    valueCount = mark;
+                    if(build) {
+                        final List<StepExpr> steps = new ArrayList<StepExpr>(1);
+                        steps.add(PathExpr.SLASH_ABBREV);
+                        push(steps);
+                    }
+                }
+                if(build) {
+                    push(new PathExpr(false, this.<List<StepExpr>>pop()));
+                }
+                return true;
+            }
+            if(!relativePathExpr(null)) {
+                return false;
+            }
+            if(build) {
+                push(new PathExpr(true, this.<List<StepExpr>>pop()));
+            }
+            return true;
+        }
+
+        /**
+         * Matches a RelativePathExpr, and pushes the list of its steps.
+         *
+         * @param initialStep A step to place before those of the relative path, or null
+         */
+        private boolean relativePathExpr(@Nullable final StepExpr initialStep) {
+            final int relativeDepth = stepCount;
+            if(!stepExpr()) {
+                return false;
+            }
+            if(build) {
+                pushStep(this.<StepExpr>pop());
+            }
+            while(true) {
+                final int start = pos;
+                final int depth = stepCount;
+                final int mark = valueCount;
+                if(match("//")) {
+                    if(build) {
+                        pushStep(AxisStep.SLASH_SLASH_ABBREV);
+                    }
+                } else if(!match('/')) {
+                    break;
+                }
+                ws();
+                if(!stepExpr()) {
+                    pos = start;
+                    stepCount = depth;
+                    valueCount = mark;
+                    break;
+                }
+                if(build) {
+                    pushStep(this.<StepExpr>pop());
+                }
+            }
+            if(!build) {
+                return true;
+            }
+
+            // like XPathParser, take every step down to the nearest barrier, which may include steps of an enclosing path
+            int runStart = stepCount;
+            while(runStart > 0 && steps[runStart - 1] != null) {
+                runStart--;
+            }
+            final List<StepExpr> relativeSteps = new ArrayList<StepExpr>(stepCount - runStart + 1);
+            if(initialStep != null) {
+                relativeSteps.add(initialStep);
+            }
+            for(int i = runStart; i < stepCount; i++) {
+                relativeSteps.add(steps[i]);
+            }
+            stepCount = relativeDepth;
+            if(runStart != relativeDepth && relativeDepth > 0 && steps[relativeDepth - 1] != null) {
+                // hide the steps of the enclosing path, which were taken by this path or a nested one
+                pushStep(null);
+            }
+            push(relativeSteps);
+            return true;
+        }
+
+        private boolean stepExpr() {
+            final int start = pos;
+            final int depth = stepCount;
+            final int mark = valueCount;
+            if(filterExpr()) {
+                return true;
+            }
+            pos = start;
+            stepCount = depth;
+            valueCount = mark;
+            return axisStep();
+        }
+
+        private boolean axisStep() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(!reverseStep()) {
+                pos = start;
+                valueCount = mark;
+                if(!forwardStep()) {
+                    return false;
+                }
+            }
+            final int depth = protect();
+            predicateList();
+            unprotect(depth);
+            if(build) {
+                final PredicateList predicateList = pop();
+                push(new AxisStep(this.<Step>pop(), predicateList));
+            }
+            return true;
+        }
+
+        private boolean forwardStep() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(axis(FORWARD_AXES) && nodeTest()) {
+                if(build) {
+                    final NodeTest nodeTest = pop();
+                    push(new Step(this.<Axis>pop(), nodeTest));
+                }
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            return abbrevForwardStep();
+        }
+
+        private boolean axis(final String[] axes) {
+            final String syntax = matchFirstOf(axes);
+            if(syntax == null) {
+                return false;
+            }
+            ws();
+            if(!match("::")) {
+                return false;
+            }
+            ws();
+            if(build) {
+                push(Axis.fromSyntax(syntax));
+            }
+            return true;
+        }
+
+        private boolean abbrevForwardStep() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(match('@')) {
+                ws();
+                if(nodeTest()) {
+                    if(build) {
+                        push(new Step(Axis.ATTRIBUTE, this.<NodeTest>pop()));
+                    }
+                    return true;
+                }
+                pos = start;
+                valueCount = mark;
+            }
+            if(!nodeTest()) {
+                return false;
+            }
+            if(build) {
+                push(new Step(Axis.CHILD, this.<NodeTest>pop()));
+            }
+            return true;
+        }
+
+        private boolean reverseStep() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(axis(REVERSE_AXES) && nodeTest()) {
+                if(build) {
+                    final NodeTest nodeTest = pop();
+                    push(new Step(this.<Axis>pop(), nodeTest));
+                }
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(!match("..")) {
+                return false;
+            }
+            if(build) {
+                push(new Step(Axis.PARENT, AnyKindTest.instance()));
+            }
+            ws();
+            return true;
+        }
+
+        private boolean nodeTest() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(kindTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            return nameTest();
+        }
+
+        private boolean nameTest() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(!wildcard()) {
+                pos = start;
+                valueCount = mark;
+                if(!qName()) {
+                    return false;
+                }
+            }
+            if(build) {
+                push(new NameTest(this.<QNameW>pop()));
+            }
+            return true;
+        }
+
+        private boolean wildcard() {
+            final int start = pos;
+            if(ncName()) {
+                final int prefixEnd = pos;
+                if(match(':') && match('*')) {
+                    if(build) {
+                        push(new QNameW(extract(start, prefixEnd), QNameW.WILDCARD));
+                    }
+                    return true;
+                }
+                pos = start;
+            }
+            if(!match('*')) {
+                return false;
+            }
+            if(match(':')) {
+                final int localPartStart = pos;
+                if(ncName()) {
+                    if(build) {
+                        push(new QNameW(QNameW.WILDCARD, extract(localPartStart, pos)));
+                    }
+                    return true;
+                }
+                pos = start + 1;
+            }
+            if(build) {
+                push(new QNameW(QNameW.WILDCARD));
+            }
+            return true;
+        }
+
+        private boolean filterExpr() {
+            if(!primaryExpr()) {
+                return false;
+            }
+            final int depth = protect();
+            predicateList();
+            unprotect(depth);
+            if(build) {
+                final PredicateList predicateList = pop();
+                push(new FilterExpr(this.<PrimaryExpr>pop(), predicateList));
+            }
+            return true;
+        }
+
+        /**
+         * Matches zero or more predicates, so always matches.
+         */
+        private void predicateList() {
+            final int mark = valueCount;
+            while(true) {
+                final int start = pos;
+                final int depth = stepCount;
+                final int predicateMark = valueCount;
+                if(!predicate()) {
+                    pos = start;
+                    stepCount = depth;
+                    valueCount = predicateMark;
+                    break;
+                }
+            }
+            if(build) {
+                push(valueCount == mark ? PredicateList.EMPTY : new PredicateList(this.<Predicate>popList(mark)));
+            }
+        }
+
+        private boolean predicate() {
+            if(!match('[')) {
+                return false;
+            }
+            ws();
+            if(!expr() || !match(']')) {
+                return false;
+            }
+            ws();
+            if(build) {
+                push(new Predicate(this.<Expr>pop()));
+            }
+            return true;
+        }
+
+        private boolean primaryExpr() {
+            final int start = pos;
+            final int depth = stepCount;
+            final int mark = valueCount;
+            if(literal()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(varRef()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(parenthesizedExpr()) {
+                return true;
+            }
+            pos = start;
+            stepCount = depth;
+            valueCount = mark;
+            if(match('.')) {
+                ws();
+                if(build) {
+                    push(ContextItemExpr.instance());
+                }
+                return true;
+            }
+            return functionCall();
+        }
+
+        private boolean literal() {
+            final int start = pos;
+            if(numericLiteral()) {
+                return true;
+            }
+            pos = start;
+            return stringLiteral();
+        }
+
+        private boolean varRef() {
+            if(!match('$')) {
+                return false;
+            }
+            ws();
+            if(!qName()) {
+                return false;
+            }
+            if(build) {
+                push(new VarRef(this.<QNameW>pop()));
+            }
+            return true;
+        }
+
+        private boolean parenthesizedExpr() {
+            final int start = pos;
+            if(!match('(')) {
+                return false;
+            }
+            ws();
+            final int exprStart = pos;
+            final int depth = stepCount;
+            final int mark = valueCount;
+            final boolean expr = expr();
+            if(!expr) {
+                pos = exprStart;
+                stepCount = depth;
+                valueCount = mark;
+            }
+            if(!match(')')) {
+                return false;
+            }
+            ws();
+            if(!expr) {
+                // XPathParser#FilterExpr() would fail to pop the absent expression
+                throw abort("Empty parenthesized expression", start);
+            }
+            if(build) {
+                push(new ParenthesizedExpr(this.<Expr>pop()));
+            }
+            return true;
+        }
+
+        private boolean functionCall() {
+            if(!qName()) {
+                return false;
+            }
+            final int depth = protect();
+            if(!match('(')) {
+                return false;
+            }
+            ws();
+            final int mark = valueCount;
+            final int argumentsStart = pos;
+            if(exprSingle()) {
+                while(true) {
+                    final int start = pos;
+                    final int argumentDepth = stepCount;
+                    final int argumentMark = valueCount;
+                    if(match(',')) {
+                        ws();
+                        if(exprSingle()) {
+                            continue;
+                        }
+                    }
+                    pos = start;
+                    stepCount = argumentDepth;
+                    valueCount = argumentMark;
+                    break;
+                }
+            } else {
+                pos = argumentsStart;
+                stepCount = build ? depth + 1 : depth;
+                valueCount = mark;
+            }
+            if(!match(')')) {
+                return false;
+            }
+            ws();
+            unprotect(depth);
+            if(build) {
+                final List<ASTNode> arguments = popList(mark);
+                push(new FunctionCall(this.<QNameW>pop(), arguments));
+            }
+            return true;
+        }
+
+        /* Types */
+
+        private boolean singleType() {
+            if(!atomicType()) {
+                return false;
+            }
+            final int start = pos;
+            ws();
+            final boolean optional = match('?');
+            if(optional) {
+                ws();
+            } else {
+                pos = start;
+            }
+            if(build) {
+                push(new SingleType(this.<AtomicType>pop(), optional));
+            }
+            return true;
+        }
+
+        private boolean sequenceType() {
+            final int start = pos;
+            if(match("empty-sequence")) {
+                ws();
+                if(match('(')) {
+                    ws();
+                    if(match(')')) {
+                        ws();
+                        if(build) {
+                            push(SequenceType.EMPTY_SEQUENCE);
+                        }
+                        return true;
+                    }
+                }
+                pos = start;
+            }
+            if(!itemType()) {
+                return false;
+            }
+            final char c = ch();
+            if(c == '?' || c == '*' || c == '+') {
+                pos++;
+                if(build) {
+                    push(new SequenceType(this.<ItemType>pop(), OccurrenceIndicator.fromSyntax(c)));
+                }
+                ws();
+                return true;
+            }
+            fail(pos);
+            if(build) {
+                push(new SequenceType(this.<ItemType>pop(), null));
+            }
+            return true;
+        }
+
+        private boolean itemType() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(kindTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(match("item")) {
+                ws();
+                if(match('(')) {
+                    ws();
+                    if(match(')')) {
+                        ws();
+                        if(build) {
+                            push(ItemTypeItem.instance());
+                        }
+                        return true;
+                    }
+                }
+                pos = start;
+            }
+            return atomicType();
+        }
+
+        private boolean atomicType() {
+            if(!qName()) {
+                return false;
+            }
+            if(build) {
+                push(new AtomicType(this.<QNameW>pop()));
+            }
+            return true;
+        }
+
+        /* Kind Tests */
+
+        private boolean kindTest() {
+            final int start = pos;
+            final int mark = valueCount;
+            if(documentTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(elementTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(attributeTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(schemaElementTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(schemaAttributeTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(piTest()) {
+                return true;
+            }
+            pos = start;
+            valueCount = mark;
+            if(emptyKindTest("comment")) {
+                if(build) {
+                    push(CommentTest.instance());
+                }
+                return true;
+            }
+            pos = start;
+            if(emptyKindTest("text")) {
+                if(build) {
+                    push(TextTest.instance());
+                }
+                return true;
+            }
+            pos = start;
+            if(emptyKindTest("node")) {
+                if(build) {
+                    push(AnyKindTest.instance());
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private boolean emptyKindTest(final String keyword) {
+            if(!match(keyword)) {
+                return false;
+            }
+            ws();
+            if(!match('(')) {
+                return false;
+            }
+            ws();
+            if(!match(')')) {
+                return false;
+            }
+            ws();
+            return true;
+        }
+
+        /**
+         * Matches the keyword and opening parenthesis of a kind test.
+         */
+        private boolean kindTestStart(final String keyword) {
+            if(!match(keyword)) {
+                return false;
+            }
+            ws();
+            if(!match('(')) {
+                return false;
+            }
+            ws();
+            return true;
+        }
+
+        /**
+         * Matches the closing parenthesis of a kind test.
+         */
+        private boolean kindTestEnd() {
+            if(!match(')')) {
+                return false;
+            }
+            ws();
+            return true;
+        }
+
+        private boolean documentTest() {
+            if(!kindTestStart("document-node")) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            if(!elementTest()) {
+                pos = start;
+                valueCount = mark;
+                if(!schemaElementTest()) {
+                    pos = start;
+                    valueCount = mark;
+                }
+            }
+            if(!kindTestEnd()) {
+                return false;
+            }
+            if(build) {
+                Either<ElementTest, SchemaElementTest> elementTest = null;
+                if(valueCount > mark) {
+                    final KindTest test = pop();
+                    elementTest = test instanceof ElementTest
+                            ? Either.<ElementTest, SchemaElementTest>Left((ElementTest)test)
+                            : Either.<ElementTest, SchemaElementTest>Right((SchemaElementTest)test);
+                }
+                push(new DocumentTest(elementTest));
+            }
+            return true;
+        }
+
+        private boolean piTest() {
+            if(!kindTestStart("processing-instruction")) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            if(ncName()) {
+                if(build) {
+                    push(extract(start, pos));
+                }
+            } else {
+                pos = start;
+                if(stringLiteral()) {
+                    if(build) {
+                        push(this.<StringLiteral>pop().getValue());
+                    }
+                } else {
+                    pos = start;
+                    valueCount = mark;
+                }
+            }
+            if(!kindTestEnd()) {
+                return false;
+            }
+            if(build) {
+                push(new PITest(valueCount > mark ? this.<String>pop() : null));
+            }
+            return true;
+        }
+
+        private boolean attributeTest() {
+            if(!kindTestStart("attribute")) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            boolean typeName = false;
+            if(nameOrWildcard()) {
+                final int typeNameStart = pos;
+                final int typeNameMark = valueCount;
+                if(match(',')) {
+                    ws();
+                    typeName = qName();
+                }
+                if(!typeName) {
+                    pos = typeNameStart;
+                    valueCount = typeNameMark;
+                }
+            } else {
+                pos = start;
+                valueCount = mark;
+            }
+            if(!kindTestEnd()) {
+                return false;
+            }
+            if(build) {
+                final QNameW type = typeName ? this.<QNameW>pop() : null;
+                final QNameW name = valueCount > mark ? this.<QNameW>pop() : null;
+                push(new AttributeTest(name, type));
+            }
+            return true;
+        }
+
+        private boolean elementTest() {
+            if(!kindTestStart("element")) {
+                return false;
+            }
+            final int start = pos;
+            final int mark = valueCount;
+            boolean typeName = false;
+            Boolean optionalType = null;
+            if(nameOrWildcard()) {
+                final int typeNameStart = pos;
+                final int typeNameMark = valueCount;
+                if(match(',')) {
+                    ws();
+                    typeName = qName();
+                }
+                if(typeName) {
+                    if(match('?')) {
+                        optionalType = Boolean.TRUE;
+                        ws();
+                    }
+                } else {
+                    pos = typeNameStart;
+                    valueCount = typeNameMark;
+                }
+            } else {
+                pos = start;
+                valueCount = mark;
+            }
+            if(!kindTestEnd()) {
+                return false;
+            }
+            if(build) {
+                final QNameW type = typeName ? this.<QNameW>pop() : null;
+                final QNameW name = valueCount > mark ? this.<QNameW>pop() : null;
+                push(new ElementTest(name, type, optionalType));
+            }
+            return true;
+        }
+
+        private boolean nameOrWildcard() {
+            final int start = pos;
+            if(qName()) {
+                return true;
+            }
+            pos = start;
+            if(!match('*')) {
+                return false;
+            }
+            ws();
+            if(build) {
+                push(new QNameW(QNameW.WILDCARD));
+            }
+            return true;
+        }
+
+        private boolean schemaElementTest() {
+            if(!kindTestStart("schema-element") || !qName() || !kindTestEnd()) {
+                return false;
+            }
+            if(build) {
+                push(new SchemaElementTest(this.<QNameW>pop()));
+            }
+            return true;
+        }
+
+        private boolean schemaAttributeTest() {
+            if(!kindTestStart("schema-attribute") || !qName() || !kindTestEnd()) {
+                return false;
+            }
+            if(build) {
+                push(new SchemaAttributeTest(this.<QNameW>pop()));
+            }
+            return true;
+        }
+
+        /* Literals */
+
+        /**
+         * Matches a DoubleLiteral, DecimalLiteral or IntegerLiteral
+         * in a single scan, producing the same values as
+         * {@link XPathParser#NumericLiteral()}.
+         */
+        private boolean numericLiteral() {
+            final int start = pos;
+            final int characteristicEnd = digits();
+            int mantissaStart = -1;
+            int mantissaEnd = -1;
+            if(ch() == '.') {
+                pos++;
+                mantissaStart = pos;
+                mantissaEnd = digits();
+                if(characteristicEnd == start && mantissaEnd == mantissaStart) {
+                    pos = start;
+                    return false;
+                }
+            } else if(characteristicEnd == start) {
+                return false;
+            }
+
+            final int exponentStart = pos;
+            final char e = ch();
+            if(e == 'e' || e == 'E') {
+                pos++;
+                final char sign = ch();
+                if(sign == '+' || sign == '-') {
+                    pos++;
+                }
+                final int digitsStart = pos;
+                final int digitsEnd = digits();
+                if(digitsEnd > digitsStart) {
+                    // only an exponent too large for a BigDecimal is invalid, which a recogniser need only construct to find out
+                    if(build || hasLargeExponent(digitsStart, digitsEnd)) {
+                        final StringBuilder value = numericValue(start, characteristicEnd, mantissaStart, mantissaEnd)
+                                .append('E').append(sign == '-' ? '-' : '+');
+                        appendTo(value, digitsStart, digitsEnd);
+                        final NumericLiteral<?> doubleLiteral = numericLiteral(start, value.toString(), true);
+                        if(build) {
+                            push(doubleLiteral);
+                        }
+                    }
+                    ws();
+                    return true;
+                }
+                pos = exponentStart;
+            } else {
+                fail(pos);
+            }
+
+            if(build) {
+                if(mantissaStart == -1) {
+                    push(new IntegerLiteral(extract(start, characteristicEnd)));
+                } else {
+                    push(numericLiteral(start, numericValue(start, characteristicEnd, mantissaStart, mantissaEnd).toString(), false));
+                }
+            }
+            ws();
+            return true;
+        }
+
+        private NumericLiteral<?> numericLiteral(final int start, final String value, final boolean isDouble) {
+            try {
+                return isDouble ? new DoubleLiteral(value) : new DecimalLiteral(value);
+            } catch(final NumberFormatException e) {
+                throw abort("Invalid numeric literal", start);
+            }
+        }
+
+        /**
+         * @return the characteristic and any mantissa of a numeric literal,
+         *     with a characteristic of 0 if it was omitted
+         */
+        private StringBuilder numericValue(final int start, final int characteristicEnd, final int mantissaStart, final int mantissaEnd) {
+            final StringBuilder value = new StringBuilder(pos - start + 2);
+            if(characteristicEnd == start) {
+                value.append('0');
+            } else {
+                appendTo(value, start, characteristicEnd);
+            }
+            if(mantissaStart != -1) {
+                value.append('.');
+                appendTo(value, mantissaStart, mantissaEnd);
+            }
+            return value;
+        }
+
+        private void appendTo(final StringBuilder builder, final int start, final int end) {
+            for(int i = start; i < end; i++) {
+                builder.append(at(i));
+            }
+        }
+
+        /**
+         * @return true if the exponent has at least 10 significant digits,
+         *     and so may not fit in the int scale of a BigDecimal
+         */
+        private boolean hasLargeExponent(final int digitsStart, final int digitsEnd) {
+            int significantStart = digitsStart;
+            while(significantStart < digitsEnd && at(significantStart) == '0') {
+                significantStart++;
+            }
+            return digitsEnd - significantStart >= 10;
+        }
+
+        /**
+         * Matches zero or more digits.
+         *
+         * @return the index after the last digit
+         */
+        private int digits() {
+            char c = ch();
+            while(c >= '0' && c <= '9') {
+                c = at(++pos);
+            }
+            fail(pos);
+            return pos;
+        }
+
+        private boolean stringLiteral() {
+            final char quote = ch();
+            if(quote != '"' && quote != '\'') {
+                fail(pos);
+                return false;
+            }
+            pos++;
+            final int contentStart = pos;
+            while(true) {
+                final char c = ch();
+                if(c == quote) {
+                    if(at(pos + 1) != quote) {
+                        break;
+                    }
+                    pos += 2;
+                    ws();
+                } else if(c == EOI) {
+                    fail(pos);
+                    return false;
+                } else {
+                    pos++;
+                }
+            }
+            if(build) {
+                final String escape = String.valueOf(quote);
+                push(new StringLiteral(extract(contentStart, pos).replace(escape + escape, escape)));
+            }
+            pos++;
+            ws();
+            return true;
+        }
+
+        /* Names */
+
+        private boolean qName() {
+            final int start = pos;
+            if(!ncName()) {
+                return false;
+            }
+            final int prefixEnd = pos;
+            if(ch() == ':' && CharClass.NAME_START_CHAR.contains(at(pos + 1))) {
+                pos++;
+                ncName();
+                if(build) {
+                    push(new QNameW(extract(start, prefixEnd), extract(prefixEnd + 1, pos)));
+                }
+            } else {
+                fail(ch() == ':' ? pos + 1 : pos);
+                if(build) {
+                    push(new QNameW(extract(start, prefixEnd)));
+                }
+            }
+            ws();
+            return true;
+        }
+
+        private boolean ncName() {
+            if(!CharClass.NAME_START_CHAR.contains(ch())) {
+                fail(pos);
+                return false;
+            }
+            pos++;
+            while(CharClass.NAME_CHAR.contains(ch())) {
+                pos++;
+            }
+            fail(pos);
+            return true;
+        }
+
+        /* Whitespace and Comments */
+
+        /**
+         * Matches either whitespace or a comment, as {@link XPathParser#WS()}.
+         */
+        private void ws() {
+            char c = ch();
+            if(c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                do {
+                    c = at(++pos);
+                } while(c == ' ' || c == '\t' || c == '\r' || c == '\n');
+                fail(pos);
+                return;
+            }
+            final int start = pos;
+            if(!comment()) {
+                pos = start;
+            }
+        }
+
+        private boolean comment() {
+            if(budget == null || ch() != '(' || at(pos + 1) != ':') {
+                return matchComment();
+            }
+            budget.enter(pos);
+            final boolean comment = matchComment();
+            budget.exit();
+            return comment;
+        }
+
+        private boolean matchComment() {
+            if(!match("(:")) {
+                return false;
+            }
+            ws();
+            while(true) {
+                final int start = pos;
+                if(commentContents()) {
+                    continue;
+                }
+                pos = start;
+                if(comment()) {
+                    continue;
+                }
+                pos = start;
+                break;
+            }
+            if(!match(":)")) {
+                return false;
+            }
+            ws();
+            return true;
+        }
+
+        private boolean commentContents() {
+            final int start = pos;
+            while(true) {
+                final char c = ch();
+                if((c == '(' && at(pos + 1) == ':') || (c == ':' && at(pos + 1) == ')')) {
+                    break;
+                }
+                if(!CharClass.CHAR.contains(c)) {
+                    break;
+                }
+                pos++;
+            }
+            fail(pos);
+            return pos > start;
+        }
+    }
+}
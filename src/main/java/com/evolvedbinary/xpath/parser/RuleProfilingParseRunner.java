@@ -0,0 +1,115 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A {@link BasicParseRunner} which collects statistics of every
+ * named rule that it matches, over all of its runs.
+ *
+ * Unlike {@link org.parboiled.parserunners.ProfilingParseRunner}, the
+ * statistics are held by the runner rather than in the tags of the
+ * matchers, as some matchers, e.g. {@link org.parboiled.BaseParser#EOI},
+ * are shared by the rule trees of all threads.
+ */
+final class RuleProfilingParseRunner<V> extends BasicParseRunner<V> {
+
+    static final class RuleStats {
+        long invocations;
+        long matches;
+        long rematches;
+        long remismatches;
+        long nanoTime;
+
+        /**
+         * The input positions at which the rule was
+         * invoked during the run {@link #run}.
+         */
+        final BitSet positions = new BitSet();
+        long run;
+    }
+
+    private final Map<Matcher, RuleStats> stats = new IdentityHashMap<Matcher, RuleStats>();
+    private long runs = 0;
+
+    RuleProfilingParseRunner(final Rule rule) {
+        super(rule);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer) {
+        runs++;
+        return super.run(inputBuffer);
+    }
+
+    @Override
+    public boolean match(final MatcherContext<?> context) {
+        final Matcher matcher = context.getMatcher();
+        if(!matcher.hasCustomLabel()) {
+            return super.match(context);
+        }
+
+        RuleStats ruleStats = stats.get(matcher);
+        if(ruleStats == null) {
+            ruleStats = new RuleStats();
+            stats.put(matcher, ruleStats);
+        }
+        if(ruleStats.run != runs) {
+            ruleStats.run = runs;
+            ruleStats.positions.clear();
+        }
+        final int index = context.getCurrentIndex();
+        final boolean reinvoked = ruleStats.positions.get(index);
+        ruleStats.positions.set(index);
+
+        final long start = System.nanoTime();
+        final boolean matched = super.match(context);
+        ruleStats.nanoTime += System.nanoTime() - start;
+
+        ruleStats.invocations++;
+        if(matched) {
+            ruleStats.matches++;
+            if(reinvoked) {
+                ruleStats.rematches++;
+            }
+        } else if(reinvoked) {
+            ruleStats.remismatches++;
+        }
+        return matched;
+    }
+
+    long getRuns() {
+        return runs;
+    }
+
+    Map<Matcher, RuleStats> getStats() {
+        return stats;
+    }
+}
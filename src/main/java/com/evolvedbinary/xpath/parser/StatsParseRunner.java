@@ -0,0 +1,70 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.MatchHandler;
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.parserunners.BasicParseRunner;
+
+/**
+ * A {@link BasicParseRunner} which counts the rules that it matches
+ * for {@link ParseStats}, each match is delegated to another
+ * handler, e.g. a {@link LimitingParseRunner}.
+ */
+final class StatsParseRunner<V> extends BasicParseRunner<V> {
+
+    private final MatchHandler handler;
+    private long ruleInvocations = 0;
+    private long backtracks = 0;
+    private int maxValueStackDepth = 0;
+
+    StatsParseRunner(final Rule rule, final MatchHandler handler) {
+        super(rule);
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean match(final MatcherContext<?> context) {
+        ruleInvocations++;
+        final int start = context.getCurrentIndex();
+        final boolean matched = handler.match(context);
+        if(!matched && context.getCurrentIndex() > start) {
+            backtracks++;
+        }
+        final int valueStackDepth = context.getValueStack().size();
+        if(valueStackDepth > maxValueStackDepth) {
+            maxValueStackDepth = valueStackDepth;
+        }
+        return matched;
+    }
+
+    long getRuleInvocations() {
+        return ruleInvocations;
+    }
+
+    long getBacktracks() {
+        return backtracks;
+    }
+
+    int getMaxValueStackDepth() {
+        return maxValueStackDepth;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.xpath.parser.ast.ASTNode;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.parboiled.errors.ParseError;
+import org.parboiled.errors.ParserRuntimeException;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Parses many XPath Expressions in parallel, for example
+ * a catalog of expressions which is loaded at startup.
+ *
+ * The expressions are divided amongst the workers of a {@link ForkJoinPool}.
+ * The parser must be thread-safe, an {@link XPathParserPool} reuses its
+ * per-thread state on each worker, and a {@link RecursiveDescentXPathParser}
+ * has none.
+ *
+ * The result of each expression is independent of every other, an
+ * expression which cannot be parsed is reported by its own
+ * {@link XPathParseException} and does not affect the rest of the batch.
+ *
+ * Likewise a single huge XPath, whose top-level {@code Expr} is a sequence
+ * of many independent {@code ExprSingle}s, may be parsed in parallel
+ * by {@link #parseExpr(CharSequence)}.
+ */
+public class XPathBatchParser {
+
+    /**
+     * The most expressions that a single task parses, which
+     * is enough to amortise the cost of forking it.
+     */
+    private static final int MAX_TASK_SIZE = 64;
+
+    private final XPathExpressionParser parser;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a batch parser which uses the common pool.
+     *
+     * @param parser The thread-safe parser to parse each XPath with
+     */
+    public XPathBatchParser(final XPathExpressionParser parser) {
+        this(parser, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param parser The thread-safe parser to parse each XPath with
+     * @param pool The pool whose workers parse the XPaths
+     */
+    public XPathBatchParser(final XPathExpressionParser parser, final ForkJoinPool pool) {
+        this.parser = parser;
+        this.pool = pool;
+    }
+
+    /**
+     * Parses each XPath Expression of a collection.
+     *
+     * @param xpaths The XPaths to parse
+     *
+     * @return The result of each XPath in the iteration order of {@code xpaths},
+     *     either the exception describing why it could not be parsed, or its AST
+     */
+    public List<Either<XPathParseException, Expr>> parseAll(final Collection<? extends CharSequence> xpaths) {
+        return parseAll(xpaths.toArray(new CharSequence[0]));
+    }
+
+    /**
+     * Parses each XPath Expression of a stream.
+     *
+     * @param xpaths The XPaths to parse
+     *
+     * @return The result of each XPath in the encounter order of {@code xpaths},
+     *     either the exception describing why it could not be parsed, or its AST
+     */
+    public List<Either<XPathParseException, Expr>> parseAll(final Stream<? extends CharSequence> xpaths) {
+        return parseAll(xpaths.toArray(CharSequence[]::new));
+    }
+
+    private List<Either<XPathParseException, Expr>> parseAll(final CharSequence[] xpaths) {
+        return Collections.unmodifiableList(Arrays.asList(parseEach(xpaths)));
+    }
+
+    /**
+     * Parses a single XPath Expression whose top-level {@code Expr}
+     * is a long sequence, e.g. {@code a, b, c, ...}, by parsing each
+     * of its {@code ExprSingle}s in parallel.
+     *
+     * The input is first scanned for the commas which separate the
+     * {@code ExprSingle}s. If any of them cannot be parsed by itself,
+     * for example as the commas separate the clauses of a {@code for}
+     * expression or as the XPath is invalid, then the entire XPath is
+     * parsed again sequentially, so that the result and the index of any
+     * error are exactly those of parsing it with {@link XPathExpressionParser#parseExpr(CharSequence)}.
+     * Any {@link XPathParseLimits} of the parser therefore apply to each
+     * {@code ExprSingle} separately, and not to the XPath as a whole.
+     *
+     * @param xpath The XPath to parse, which must not be modified whilst it is parsed
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    public Expr parseExpr(final CharSequence xpath) throws XPathParseException {
+        final CharBuffer buffer = CharArrayInputBuffer.arrayBacked(xpath);
+        final char[] chars = buffer.array();
+        final int offset = buffer.arrayOffset() + buffer.position();
+        final int length = buffer.remaining();
+
+        final int[] ranges = ExprSplitter.split(chars, offset, length);
+        if(ranges.length == 2) {
+            return parser.parseExpr(chars, offset, length);
+        }
+
+        final CharSequence[] segments = new CharSequence[ranges.length / 2];
+        for(int i = 0; i < segments.length; i++) {
+            segments[i] = CharBuffer.wrap(chars, ranges[i * 2], ranges[i * 2 + 1] - ranges[i * 2]);
+        }
+
+        final Either<XPathParseException, Expr>[] results = parseEach(segments);
+        final List<ASTNode> exprSingles = new ArrayList<ASTNode>(results.length);
+        for(final Either<XPathParseException, Expr> result : results) {
+            final Expr segment = result.isRight() ? result.right().get() : null;
+            if(segment == null || segment.getExprSingles().size() != 1) {
+                return parser.parseExpr(chars, offset, length);
+            }
+            exprSingles.add(segment.getExprSingles().get(0));
+        }
+        return new Expr(exprSingles);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Either<XPathParseException, Expr>[] parseEach(final CharSequence[] xpaths) {
+        final Either<XPathParseException, Expr>[] results = new Either[xpaths.length];
+        if(xpaths.length > 0) {
+            final int parallelism = Math.max(1, pool.getParallelism());
+            final int taskSize = Math.max(1, Math.min(MAX_TASK_SIZE, xpaths.length / (parallelism * 4)));
+            pool.invoke(new ParseTask(xpaths, results, 0, xpaths.length, taskSize));
+        }
+        return results;
+    }
+
+    private Either<XPathParseException, Expr> parse(final CharSequence xpath) {
+        try {
+            return Either.<XPathParseException, Expr>Right(parser.parseExpr(xpath));
+        } catch(final XPathParseException e) {
+            return Either.<XPathParseException, Expr>Left(e);
+        } catch(final ParserRuntimeException e) {
+            // the actions of XPathParser fail on some invalid input
+            return Either.<XPathParseException, Expr>Left(new XPathParseException(e.getMessage(), -1, Collections.<ParseError>emptyList()));
+        }
+    }
+
+    /**
+     * Parses a range of the XPaths, dividing
+     * it in half until it is small enough.
+     */
+    private class ParseTask extends RecursiveAction {
+        private final CharSequence[] xpaths;
+        private final Either<XPathParseException, Expr>[] results;
+        private final int from;
+        private final int to;
+        private final int taskSize;
+
+        ParseTask(final CharSequence[] xpaths, final Either<XPathParseException, Expr>[] results, final int from, final int to, final int taskSize) {
+            this.xpaths = xpaths;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.taskSize = taskSize;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= taskSize) {
+                for(int i = from; i < to; i++) {
+                    results[i] = parse(xpaths[i]);
+                }
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new ParseTask(xpaths, results, from, mid, taskSize), new ParseTask(xpaths, results, mid, to, taskSize));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+
+import java.nio.CharBuffer;
+
+/**
+ * Parses XPath Expressions into an AST.
+ *
+ * Implementations are thread-safe, and every implementation
+ * produces structurally equal ASTs for the same XPath.
+ */
+public interface XPathExpressionParser {
+
+    /**
+     * Parses an XPath Expression and returns just the AST.
+     *
+     * @param xpath The XPath to parse
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    Expr parseExpr(final String xpath) throws XPathParseException;
+
+    /**
+     * Parses an XPath Expression from a sequence of characters,
+     * for example a {@link CharBuffer}, and returns just the AST.
+     *
+     * Implementations should parse the sequence directly, the
+     * default implementation first copies it into a String.
+     *
+     * @param xpath The XPath to parse, which must not be modified whilst it is parsed
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    default Expr parseExpr(final CharSequence xpath) throws XPathParseException {
+        return parseExpr(xpath.toString());
+    }
+
+    /**
+     * Parses an XPath Expression from a range of a
+     * character array and returns just the AST.
+     *
+     * @param xpath The characters holding the XPath to parse,
+     *     which must not be modified whilst it is parsed
+     * @param offset The index of the first character of the XPath
+     * @param length The number of characters in the XPath
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    default Expr parseExpr(final char[] xpath, final int offset, final int length) throws XPathParseException {
+        return parseExpr(CharBuffer.wrap(xpath, offset, length));
+    }
+
+    /**
+     * Parses the longest XPath Expression which starts at an offset
+     * in a sequence of characters, for example of a host document in
+     * which XPaths are embedded, and returns just the AST along with
+     * the index at which the XPath ends.
+     *
+     * Unlike {@link #parseExpr(CharSequence)}, the XPath need not extend
+     * to the end of the sequence, nor is the sequence copied.
+     *
+     * @param input The characters which contain the XPath to parse,
+     *     which must not be modified whilst it is parsed
+     * @param offset The index of the first character of the XPath
+     *
+     * @return The AST and the index within {@code input} at which the XPath ends
+     *
+     * @throws XPathParseException if no XPath starts at the offset,
+     *     the index of the exception is that within {@code input}
+     */
+    XPathPrefixParseResult parsePrefix(final CharSequence input, final int offset) throws XPathParseException;
+}
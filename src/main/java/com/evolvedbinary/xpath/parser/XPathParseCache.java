@@ -0,0 +1,211 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of parsed XPath Expressions keyed
+ * by the XPath string.
+ *
+ * The AST is immutable, so the same {@link Expr} may be
+ * returned to any number of callers on any thread.
+ *
+ * Lookups that hit the cache are lock-free. When the cache is
+ * full, entries are evicted by the CLOCK (second chance) approximation
+ * of LRU: each hit marks its entry as referenced, and eviction skips
+ * and clears referenced entries before evicting the oldest unreferenced one.
+ *
+ * Only XPaths which parse successfully are cached.
+ */
+public class XPathParseCache {
+
+    private final XPathExpressionParser parser;
+    private final int maximumSize;
+
+    private final ConcurrentMap<String, Entry> entries;
+    private final Queue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache which parses with its own
+     * AST only {@link XPathParserPool}.
+     *
+     * @param maximumSize The maximum number of XPaths to cache
+     */
+    public XPathParseCache(final int maximumSize) {
+        this(new XPathParserPool(false), maximumSize);
+    }
+
+    /**
+     * @param parser The parser to parse XPaths with on a cache miss,
+     *     for example an {@link XPathParserPool}
+     * @param maximumSize The maximum number of XPaths to cache
+     */
+    public XPathParseCache(final XPathExpressionParser parser, final int maximumSize) {
+        if(maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        this.parser = parser;
+        this.maximumSize = maximumSize;
+        this.entries = new ConcurrentHashMap<String, Entry>(Math.min(maximumSize, 1024) * 4 / 3 + 1);
+    }
+
+    /**
+     * Gets the AST for an XPath Expression, parsing
+     * and caching it if it is not already cached.
+     *
+     * @param xpath The XPath to parse
+     *
+     * @return An {@link Expr} which is the root of the AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    public Expr parse(final String xpath) throws XPathParseException {
+        final XPathParseCacheEvent event = XPathParseCacheEvent.start(xpath.length());
+        final Entry existing = entries.get(xpath);
+        if(existing != null) {
+            // only write when it changes, so hits on a hot entry do not contend on its cache line
+            if(!existing.referenced) {
+                existing.referenced = true;
+            }
+            hits.increment();
+            if(event != null) {
+                event.commit(true);
+            }
+            return existing.expr;
+        }
+
+        misses.increment();
+        final Expr expr;
+        try {
+            expr = parser.parseExpr(xpath);
+        } finally {
+            if(event != null) {
+                event.commit(false);
+            }
+        }
+
+        final Entry entry = new Entry(xpath, expr);
+        final Entry raced = entries.putIfAbsent(xpath, entry);
+        if(raced != null) {
+            // another thread parsed the same XPath first
+            return raced.expr;
+        }
+
+        clock.offer(entry);
+        if(entries.size() > maximumSize) {
+            evict();
+        }
+        return expr;
+    }
+
+    private void evict() {
+        synchronized(evictionLock) {
+            while(entries.size() > maximumSize) {
+                final Entry entry = clock.poll();
+                if(entry == null) {
+                    return;
+                }
+
+                if(entries.get(entry.xpath) != entry) {
+                    // stale, already removed by clear()
+                    continue;
+                }
+
+                if(entry.referenced) {
+                    entry.referenced = false;
+                    clock.offer(entry);
+                } else if(entries.remove(entry.xpath, entry)) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     *
+     * The hit, miss and eviction counts are not reset.
+     */
+    public void clear() {
+        synchronized(evictionLock) {
+            // the clock must be cleared first so that no entry is left in the map without a clock entry
+            clock.clear();
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return The number of XPaths currently cached
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The maximum number of XPaths that will be cached
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return The number of lookups which found the XPath in the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups which had to parse the XPath
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of XPaths evicted to keep the cache within its maximum size
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static class Entry {
+        final String xpath;
+        final Expr expr;
+        volatile boolean referenced;
+
+        Entry(final String xpath, final Expr expr) {
+            this.xpath = xpath;
+            this.expr = expr;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.annotation.Nullable;
+
+/**
+ * A JDK Flight Recorder event for a lookup in an {@link XPathParseCache},
+ * a miss encloses the {@link XPathParseEvent} of parsing the XPath.
+ *
+ * The event is disabled by default, it may be enabled in
+ * a recording's settings by its name {@value #NAME}.
+ */
+@Name(XPathParseCacheEvent.NAME)
+@Label("XPath Parse Cache Lookup")
+@Category({"XPath", "Parser"})
+@Description("Lookup of an XPath Expression in a parse cache")
+@Enabled(false)
+@StackTrace(false)
+final class XPathParseCacheEvent extends Event {
+
+    static final String NAME = "com.evolvedbinary.xpath.ParseCacheLookup";
+
+    private static final EventType TYPE = EventType.getEventType(XPathParseCacheEvent.class);
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Hit")
+    @Description("Whether the XPath was found in the cache, rather than parsed")
+    boolean hit;
+
+    /**
+     * Starts timing a lookup.
+     *
+     * @param inputLength The number of characters of the XPath
+     *
+     * @return The event, or null if the event is disabled
+     */
+    @Nullable
+    static XPathParseCacheEvent start(final int inputLength) {
+        if(!TYPE.isEnabled()) {
+            return null;
+        }
+        final XPathParseCacheEvent event = new XPathParseCacheEvent();
+        event.inputLength = inputLength;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits the event.
+     *
+     * @param hit true if the XPath was found in the cache
+     */
+    void commit(final boolean hit) {
+        end();
+        if(shouldCommit()) {
+            this.hit = hit;
+            commit();
+        }
+    }
+}
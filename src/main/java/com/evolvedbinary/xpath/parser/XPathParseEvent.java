@@ -0,0 +1,146 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.annotation.Nullable;
+
+/**
+ * A JDK Flight Recorder event for parsing an XPath Expression.
+ *
+ * The event is disabled by default, it may be enabled in a
+ * recording's settings by its name {@value #NAME}. Whilst it
+ * is disabled, {@link #start(String, int)} returns null so that
+ * the parsers neither allocate the event nor count the AST nodes.
+ */
+@Name(XPathParseEvent.NAME)
+@Label("XPath Parse")
+@Category({"XPath", "Parser"})
+@Description("Parsing of an XPath Expression")
+@Enabled(false)
+@StackTrace(false)
+final class XPathParseEvent extends Event {
+
+    static final String NAME = "com.evolvedbinary.xpath.Parse";
+
+    static final String PARBOILED = "Parboiled";
+    static final String RECURSIVE_DESCENT = "RecursiveDescent";
+
+    private static final EventType TYPE = EventType.getEventType(XPathParseEvent.class);
+
+    @Label("Parser")
+    String parser;
+
+    @Label("Input Length")
+    @Description("The number of characters of the XPath, or -1 if its end was not found")
+    int inputLength;
+
+    @Label("AST Node Count")
+    @Description("The number of nodes in the AST, or 0 if the XPath is not valid")
+    int nodeCount;
+
+    @Label("Recovery Used")
+    @Description("Whether the parser had to recover from errors to report them")
+    boolean recoveryUsed;
+
+    @Label("Error Count")
+    int errorCount;
+
+    /**
+     * Starts timing a parse.
+     *
+     * @param parser The name of the parser
+     * @param inputLength The number of characters of the XPath, or -1 if it is not yet known
+     *
+     * @return The event, or null if the event is disabled
+     */
+    @Nullable
+    static XPathParseEvent start(final String parser, final int inputLength) {
+        if(!TYPE.isEnabled()) {
+            return null;
+        }
+        final XPathParseEvent event = new XPathParseEvent();
+        event.parser = parser;
+        event.inputLength = inputLength;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits the event for a valid XPath.
+     *
+     * @param expr The AST of the XPath
+     *
+     * @return {@code expr}
+     */
+    <T extends Expr> T parsed(final T expr) {
+        end();
+        if(shouldCommit()) {
+            nodeCount = expr.countNodes(Integer.MAX_VALUE);
+            commit();
+        }
+        return expr;
+    }
+
+    /**
+     * Commits the event for a parse with {@link XPathParserPool#parse(CharSequence, ParseMode)}.
+     *
+     * @param result The result of the parse
+     *
+     * @return {@code result}
+     */
+    XPathParseResult parsed(final XPathParseResult result) {
+        end();
+        if(shouldCommit()) {
+            final Expr expr = result.getExpr();
+            nodeCount = expr == null ? 0 : expr.countNodes(Integer.MAX_VALUE);
+            recoveryUsed = result.isRecoveryUsed();
+            errorCount = result.getParsingResult().parseErrors.size();
+            if(errorCount == 0 && !result.isSuccess()) {
+                errorCount = 1;
+            }
+            commit();
+        }
+        return result;
+    }
+
+    /**
+     * Commits the event for a parse which failed, usually
+     * with an {@link XPathParseException} for an invalid XPath.
+     *
+     * @param e The exception which the parse failed with
+     */
+    void failed(final Exception e) {
+        end();
+        if(shouldCommit()) {
+            errorCount = e instanceof XPathParseException ? Math.max(1, ((XPathParseException)e).getErrors().size()) : 1;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.errors.ParseError;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when an XPath Expression cannot be parsed.
+ */
+public class XPathParseException extends Exception {
+    private final int index;
+    private final List<ParseError> errors;
+
+    public XPathParseException(final String message, final int index, final List<ParseError> errors) {
+        super(message);
+        this.index = index;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the index in the XPath of the first error.
+     *
+     * @return The index of the first error, or -1 if the position is unknown
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the errors reported by the parser.
+     *
+     * @return The parse errors, which may be empty if the parser was not asked for error reports
+     */
+    public List<ParseError> getErrors() {
+        return errors;
+    }
+}
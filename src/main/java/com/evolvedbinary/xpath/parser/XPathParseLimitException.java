@@ -0,0 +1,82 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.errors.ParseError;
+
+import java.util.Collections;
+
+/**
+ * Thrown when parsing an XPath Expression is abandoned
+ * as it exceeded one of the {@link XPathParseLimits}.
+ */
+public class XPathParseLimitException extends XPathParseException {
+
+    /**
+     * The limits which may be exceeded.
+     */
+    public enum Limit {
+        /**
+         * See {@link XPathParseLimits#getMaxLength()}.
+         */
+        LENGTH,
+
+        /**
+         * See {@link XPathParseLimits#getMaxDepth()}.
+         */
+        DEPTH,
+
+        /**
+         * See {@link XPathParseLimits#getMaxNodeCount()}.
+         */
+        NODE_COUNT,
+
+        /**
+         * See {@link XPathParseLimits#getMaxRecoveryAttempts()}.
+         */
+        RECOVERY_ATTEMPTS,
+
+        /**
+         * See {@link XPathParseLimits#getTimeout(java.util.concurrent.TimeUnit)}.
+         */
+        TIME,
+
+        /**
+         * The parsing thread was interrupted.
+         */
+        CANCELLED
+    }
+
+    private final Limit limit;
+
+    public XPathParseLimitException(final String message, final int index, final Limit limit) {
+        super(message, index, Collections.<ParseError>emptyList());
+        this.limit = limit;
+    }
+
+    /**
+     * Gets the limit which was exceeded.
+     *
+     * @return The limit
+     */
+    public Limit getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on the resources used to parse an XPath Expression, so that
+ * a hostile XPath cannot exhaust the stack, the heap or the CPU.
+ * The limits of an untrusted XPath should start from {@link #DEFAULT},
+ * so that its depth is always limited.
+ *
+ * A parse which exceeds a limit is abandoned as soon as that is
+ * detected with an {@link XPathParseLimitException}, as is a parse
+ * whose thread is interrupted whilst any limit is set.
+ *
+ * Instances are immutable, each {@code with} method returns a copy.
+ */
+public class XPathParseLimits {
+
+    /**
+     * No limits, which is the default of every parser.
+     */
+    public static final XPathParseLimits NONE = new XPathParseLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * A maximum depth which every parser reaches without exhausting the
+     * default stack of 1MB of a thread, even before the JIT has compiled it,
+     * which is about half of the least depth at which {@link XPathParserPool}
+     * has been seen to exhaust it.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 32;
+
+    /**
+     * Limits only the depth, to {@link #DEFAULT_MAX_DEPTH}.
+     */
+    public static final XPathParseLimits DEFAULT = NONE.withMaxDepth(DEFAULT_MAX_DEPTH);
+
+    private final int maxLength;
+    private final int maxDepth;
+    private final int maxNodeCount;
+    private final int maxRecoveryAttempts;
+    private final long timeoutNanos;
+
+    private XPathParseLimits(final int maxLength, final int maxDepth, final int maxNodeCount, final int maxRecoveryAttempts, final long timeoutNanos) {
+        this.maxLength = maxLength;
+        this.maxDepth = maxDepth;
+        this.maxNodeCount = maxNodeCount;
+        this.maxRecoveryAttempts = maxRecoveryAttempts;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * @param maxLength The maximum number of characters in an XPath
+     *
+     * @return A copy of these limits with the maximum length
+     */
+    public XPathParseLimits withMaxLength(final int maxLength) {
+        return new XPathParseLimits(requireNonNegative(maxLength, "maxLength"), maxDepth, maxNodeCount, maxRecoveryAttempts, timeoutNanos);
+    }
+
+    /**
+     * @param maxDepth The maximum depth to which an XPath may nest
+     *     expressions, e.g. within parentheses, predicates or function
+     *     arguments, or comments within comments
+     *
+     * The depth which can actually be parsed before the stack of the thread
+     * is exhausted depends upon the size of that stack, and upon how much
+     * of the parser has yet been compiled by the JIT. With the default stack
+     * of 1MB, {@link XPathParserPool} may exhaust it at a depth of under 100,
+     * whereas {@link RecursiveDescentXPathParser} and {@link XPathValidator}
+     * reach a depth of a few hundred. An exhausted stack is reported as an
+     * {@link XPathParseLimitException} of {@link XPathParseLimitException.Limit#DEPTH},
+     * so a maximum depth above those is not an error, but neither is it enforced;
+     * whereas {@link #DEFAULT_MAX_DEPTH} is.
+     *
+     * @return A copy of these limits with the maximum depth
+     */
+    public XPathParseLimits withMaxDepth(final int maxDepth) {
+        return new XPathParseLimits(maxLength, requireNonNegative(maxDepth, "maxDepth"), maxNodeCount, maxRecoveryAttempts, timeoutNanos);
+    }
+
+    /**
+     * @param maxNodeCount The maximum number of nodes in the AST of an XPath
+     *
+     * The nodes are only counted once the AST has been built, so this limits
+     * the size of the AST which is returned, but not the memory used whilst
+     * parsing, which is only bounded by the maximum length.
+     *
+     * @return A copy of these limits with the maximum node count
+     */
+    public XPathParseLimits withMaxNodeCount(final int maxNodeCount) {
+        return new XPathParseLimits(maxLength, maxDepth, requireNonNegative(maxNodeCount, "maxNodeCount"), maxRecoveryAttempts, timeoutNanos);
+    }
+
+    /**
+     * @param maxRecoveryAttempts The maximum number of errors which
+     *     the {@link org.parboiled.parserunners.RecoveringParseRunner} of
+     *     an {@link XPathParserPool} may recover from to report them
+     *
+     * @return A copy of these limits with the maximum recovery attempts
+     */
+    public XPathParseLimits withMaxRecoveryAttempts(final int maxRecoveryAttempts) {
+        return new XPathParseLimits(maxLength, maxDepth, maxNodeCount, requireNonNegative(maxRecoveryAttempts, "maxRecoveryAttempts"), timeoutNanos);
+    }
+
+    /**
+     * @param timeout The maximum time that parsing an XPath may take
+     * @param unit The unit of the timeout
+     *
+     * @return A copy of these limits with the timeout
+     */
+    public XPathParseLimits withTimeout(final long timeout, final TimeUnit unit) {
+        return new XPathParseLimits(maxLength, maxDepth, maxNodeCount, maxRecoveryAttempts, unit.toNanos(requireNonNegative(timeout, "timeout")));
+    }
+
+    private static <N extends Number> N requireNonNegative(final N value, final String name) {
+        if(value.longValue() < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+        return value;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxNodeCount() {
+        return maxNodeCount;
+    }
+
+    public int getMaxRecoveryAttempts() {
+        return maxRecoveryAttempts;
+    }
+
+    /**
+     * @param unit The unit to return the timeout in
+     *
+     * @return The timeout, or {@link Long#MAX_VALUE} if there is none
+     */
+    public long getTimeout(final TimeUnit unit) {
+        return timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Determines whether these limits impose no limit at all.
+     *
+     * @return true if nothing is limited
+     */
+    public boolean isUnlimited() {
+        return maxLength == Integer.MAX_VALUE && maxDepth == Integer.MAX_VALUE && maxNodeCount == Integer.MAX_VALUE
+                && maxRecoveryAttempts == Integer.MAX_VALUE && timeoutNanos == Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the statistics collected by an
+ * {@link XPathParseProfiler} for each rule of {@link XPathParser}.
+ */
+public class XPathParseProfile {
+
+    /**
+     * The statistics of a single rule, summed over every parse.
+     */
+    public static class RuleProfile {
+        private final String rule;
+        private final long invocations;
+        private final long matches;
+        private final long mismatches;
+        private final long rematches;
+        private final long remismatches;
+        private final long nanoTime;
+
+        public RuleProfile(final String rule, final long invocations, final long matches, final long mismatches,
+                final long rematches, final long remismatches, final long nanoTime) {
+            this.rule = rule;
+            this.invocations = invocations;
+            this.matches = matches;
+            this.mismatches = mismatches;
+            this.rematches = rematches;
+            this.remismatches = remismatches;
+            this.nanoTime = nanoTime;
+        }
+
+        /**
+         * @return The label of the rule, i.e. the name of its method in {@link XPathParser}
+         */
+        public String getRule() {
+            return rule;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getMatches() {
+            return matches;
+        }
+
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * Gets the number of times that the rule was invoked again at an
+         * input position at which it was already invoked during the same
+         * parse, which is the cost of backtracking.
+         *
+         * @return The number of re-invocations
+         */
+        public long getReinvocations() {
+            return rematches + remismatches;
+        }
+
+        /**
+         * @return The number of re-invocations which matched
+         */
+        public long getRematches() {
+            return rematches;
+        }
+
+        /**
+         * @return The number of re-invocations which did not match
+         */
+        public long getRemismatches() {
+            return remismatches;
+        }
+
+        /**
+         * Gets the time spent in the rule, which includes the time spent
+         * in its sub-rules, so the times of nested rules overlap.
+         *
+         * @param unit The unit to return the time in
+         *
+         * @return The cumulative time
+         */
+        public long getTime(final TimeUnit unit) {
+            return unit.convert(nanoTime, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return rule + ": " + invocations + " invocations, " + matches + " matches, " + mismatches + " mismatches, "
+                    + getReinvocations() + " re-invocations, " + getTime(TimeUnit.MICROSECONDS) + "us";
+        }
+    }
+
+    private final long runs;
+    private final List<RuleProfile> rules;
+
+    public XPathParseProfile(final long runs, final List<RuleProfile> rules) {
+        this.runs = runs;
+        this.rules = Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * @return The number of XPaths which were parsed
+     */
+    public long getRuns() {
+        return runs;
+    }
+
+    /**
+     * Gets the statistics of every rule which was invoked.
+     *
+     * @return The rules, in descending order of time
+     */
+    public List<RuleProfile> getRules() {
+        return rules;
+    }
+
+    /**
+     * Prints a report of the rules which took the most time,
+     * one per line, in descending order of time.
+     *
+     * @param maxRules The maximum number of rules to report
+     *
+     * @return The report
+     */
+    public String print(final int maxRules) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d runs%n", runs));
+        builder.append(String.format("%-28s %12s %12s %12s %12s %12s %10s%n",
+                "Rule", "Invocations", "Matches", "Mismatches", "Rematches", "Remismatches", "Time (ms)"));
+        for(final RuleProfile rule : rules.subList(0, Math.min(maxRules, rules.size()))) {
+            builder.append(String.format("%-28s %12d %12d %12d %12d %12d %10.3f%n",
+                    rule.rule, rule.invocations, rule.matches, rule.mismatches, rule.rematches, rule.remismatches,
+                    rule.nanoTime / 1e6));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return print(Integer.MAX_VALUE);
+    }
+}
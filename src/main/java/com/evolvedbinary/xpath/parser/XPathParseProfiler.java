@@ -0,0 +1,155 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.XPathParseProfile.RuleProfile;
+import com.evolvedbinary.xpath.parser.ast.ASTNode;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiles the rules of {@link XPathParser} whilst parsing XPath
+ * Expressions, so that the rules which take the most time or
+ * backtrack the most may be found for a real corpus of expressions.
+ *
+ * Each thread parses with its own runner, whose statistics accumulate
+ * over every parse on that thread, {@link #getProfile()} sums the
+ * statistics of the rules of all threads by their label. Only named
+ * rules, i.e. the rule methods of {@link XPathParser} and literals,
+ * are profiled.
+ *
+ * Profiling is considerably slower than parsing with an
+ * {@link XPathParserPool}, and should not be enabled in production.
+ * As it implements {@link XPathExpressionParser}, the profiler may be
+ * used in place of any other parser, e.g. with an {@link XPathBatchParser}.
+ */
+public class XPathParseProfiler implements XPathExpressionParser {
+
+    private static final Comparator<RuleProfile> BY_TIME_DESCENDING = new Comparator<RuleProfile>() {
+        @Override
+        public int compare(final RuleProfile a, final RuleProfile b) {
+            return Long.compare(b.getTime(TimeUnit.NANOSECONDS), a.getTime(TimeUnit.NANOSECONDS));
+        }
+    };
+
+    private final XPathParserPool pool = new XPathParserPool(false);
+    private final List<RuleProfilingParseRunner<ASTNode>> runners = new CopyOnWriteArrayList<RuleProfilingParseRunner<ASTNode>>();
+    private final ThreadLocal<RuleProfilingParseRunner<ASTNode>> runner = new ThreadLocal<RuleProfilingParseRunner<ASTNode>>() {
+        @Override
+        protected RuleProfilingParseRunner<ASTNode> initialValue() {
+            final RuleProfilingParseRunner<ASTNode> runner = new RuleProfilingParseRunner<ASTNode>(pool.getRule());
+            runners.add(runner);
+            return runner;
+        }
+    };
+
+    /**
+     * Parses and profiles an XPath Expression.
+     *
+     * @param xpath The XPath to parse
+     *
+     * @return The result of parsing, which does not report any errors
+     */
+    public ParsingResult<ASTNode> parse(final CharSequence xpath) {
+        final RuleProfilingParseRunner<ASTNode> runner = this.runner.get();
+        // only contended whilst a profile is taken
+        synchronized(runner) {
+            return runner.run(CharArrayInputBuffer.of(xpath));
+        }
+    }
+
+    @Override
+    public Expr parseExpr(final String xpath) throws XPathParseException {
+        return parseExpr((CharSequence)xpath);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * If the XPath is not valid then it is parsed again without profiling,
+     * so that the exception is exactly that of {@link XPathParserPool}.
+     */
+    @Override
+    public Expr parseExpr(final CharSequence xpath) throws XPathParseException {
+        final ParsingResult<ASTNode> result = parse(xpath);
+        if(result.matched) {
+            return (Expr)result.resultValue;
+        }
+        return pool.parseExpr(xpath);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The XPath is parsed by an {@link XPathParserPool} without profiling.
+     */
+    @Override
+    public XPathPrefixParseResult parsePrefix(final CharSequence input, final int offset) throws XPathParseException {
+        return pool.parsePrefix(input, offset);
+    }
+
+    /**
+     * Takes a snapshot of the statistics of all
+     * parses by all threads so far.
+     *
+     * @return The profile
+     */
+    public XPathParseProfile getProfile() {
+        long runs = 0;
+        final Map<String, long[]> totals = new LinkedHashMap<String, long[]>();
+        for(final RuleProfilingParseRunner<ASTNode> runner : runners) {
+            synchronized(runner) {
+                runs += runner.getRuns();
+                for(final Map.Entry<Matcher, RuleProfilingParseRunner.RuleStats> entry : runner.getStats().entrySet()) {
+                    final String label = entry.getKey().getLabel();
+                    long[] total = totals.get(label);
+                    if(total == null) {
+                        total = new long[5];
+                        totals.put(label, total);
+                    }
+                    final RuleProfilingParseRunner.RuleStats stats = entry.getValue();
+                    total[0] += stats.invocations;
+                    total[1] += stats.matches;
+                    total[2] += stats.rematches;
+                    total[3] += stats.remismatches;
+                    total[4] += stats.nanoTime;
+                }
+            }
+        }
+
+        final List<RuleProfile> rules = new ArrayList<RuleProfile>(totals.size());
+        for(final Map.Entry<String, long[]> total : totals.entrySet()) {
+            final long[] t = total.getValue();
+            rules.add(new RuleProfile(total.getKey(), t[0], t[1], t[0] - t[1], t[2], t[3], t[4]));
+        }
+        Collections.sort(rules, BY_TIME_DESCENDING);
+        return new XPathParseProfile(runs, rules);
+    }
+}
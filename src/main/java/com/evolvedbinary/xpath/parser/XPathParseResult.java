@@ -0,0 +1,77 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.ASTNode;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.parboiled.support.ParsingResult;
+
+import javax.annotation.Nullable;
+
+/**
+ * The result of parsing an XPath Expression
+ * with {@link XPathParserPool#parse(String, ParseMode)}.
+ */
+public class XPathParseResult {
+    private final ParsingResult<ASTNode> parsingResult;
+    private final boolean recoveryUsed;
+
+    public XPathParseResult(final ParsingResult<ASTNode> parsingResult, final boolean recoveryUsed) {
+        this.parsingResult = parsingResult;
+        this.recoveryUsed = recoveryUsed;
+    }
+
+    /**
+     * Gets the result from the last parse runner that was used.
+     *
+     * @return The parsing result
+     */
+    public ParsingResult<ASTNode> getParsingResult() {
+        return parsingResult;
+    }
+
+    /**
+     * Determines whether the input was parsed
+     * with a {@link org.parboiled.parserunners.RecoveringParseRunner}.
+     *
+     * @return true if the slow recovering path was taken, false otherwise
+     */
+    public boolean isRecoveryUsed() {
+        return recoveryUsed;
+    }
+
+    /**
+     * Determines whether the XPath was parsed without any errors.
+     *
+     * @return true if the XPath is valid, false otherwise
+     */
+    public boolean isSuccess() {
+        return parsingResult.matched && !parsingResult.hasErrors();
+    }
+
+    /**
+     * Gets the root of the AST.
+     *
+     * @return The AST, or null if the XPath could not be parsed
+     */
+    public @Nullable Expr getExpr() {
+        return isSuccess() ? (Expr)parsingResult.resultValue : null;
+    }
+}
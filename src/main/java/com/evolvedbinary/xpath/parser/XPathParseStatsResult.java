@@ -0,0 +1,66 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+
+/**
+ * The result of parsing an XPath Expression with
+ * {@link XPathParserPool#parseExprWithStats(CharSequence)},
+ * which holds the statistics of the parse whether or not
+ * the XPath is valid.
+ */
+public class XPathParseStatsResult {
+    private final Either<XPathParseException, Expr> result;
+    private final ParseStats stats;
+
+    public XPathParseStatsResult(final Either<XPathParseException, Expr> result, final ParseStats stats) {
+        this.result = result;
+        this.stats = stats;
+    }
+
+    /**
+     * Determines whether the XPath was parsed without any errors.
+     *
+     * @return true if the XPath is valid, false otherwise
+     */
+    public boolean isSuccess() {
+        return result.isRight();
+    }
+
+    /**
+     * Gets the root of the AST.
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    public Expr getExpr() throws XPathParseException {
+        if(result.isLeft()) {
+            throw result.left().get();
+        }
+        return result.right().get();
+    }
+
+    public ParseStats getStats() {
+        return stats;
+    }
+}
@@ -24,6 +24,8 @@ import com.evolvedbinary.xpath.parser.ast.partial.*;
 import org.parboiled.BaseParser;
 import org.parboiled.Rule;
 import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.buffers.MutableInputBuffer;
 
 import com.evolvedbinary.xpath.parser.ast.*;
 import org.parboiled.support.Var;
@@ -63,6 +65,15 @@ public class XPathParser extends BaseParser<ASTNode> {
         }
     }
 
+    @Override
+    public ASTNode pop(final int down) {
+        if(enableActions) {
+            return super.pop(down);
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public ASTNode peek() {
         if(enableActions) {
@@ -73,12 +84,19 @@ public class XPathParser extends BaseParser<ASTNode> {
     }
 
     <T> ASTNode complete(final T value, final ASTNode partial) {
+        if(!enableActions) {
+            return null;
+        }
         if(!(partial instanceof PartialASTNode)) {
             throw new IllegalStateException("Cannot complete non-partial AST Node: " + partial.getClass());
         }
         return ((PartialASTNode<?, T>)partial).complete(value);
     }
 
+    @Nullable String stringLiteralValue(@Nullable final ASTNode stringLiteral) {
+        return stringLiteral == null ? null : ((StringLiteral)stringLiteral).getValue();
+    }
+
     ASTNode completeOptional(ASTNode partial) {
         while(partial instanceof PartialASTNode) {
             partial = ((PartialASTNode)partial).complete(null);
@@ -132,6 +150,132 @@ public class XPathParser extends BaseParser<ASTNode> {
         return null;
     }
 
+    /**
+     * Looks ahead, without consuming any input, for a QName which
+     * is not followed by a "(".
+     *
+     * Only a FunctionCall or a KindTest may start with a QName followed
+     * by a "(", so such a StepExpr can only be an AxisStep, and need not
+     * first be attempted as a FilterExpr.
+     *
+     * @return true if a QName which is not followed by a "(" is ahead
+     */
+    boolean isQNameNotFollowedByParenAhead() {
+        final InputBuffer input = getContext().getInputBuffer();
+        if(isRecovering(input)) {
+            return false;
+        }
+
+        final int end = scanQName(input, getContext().getCurrentIndex());
+
+        // a "(" may also start a Comment, in which case we cannot tell
+        return end != -1 && input.charAt(skipWhitespace(input, end)) != '(';
+    }
+
+    /**
+     * Looks ahead, without consuming any input, for a QName, or an
+     * NCName ":*" Wildcard, which is followed by neither a "(" nor a ":".
+     *
+     * Such a StepExpr can only be an AxisStep of the abbreviated child
+     * axis whose NodeTest is a NameTest, so need not first be attempted
+     * with an explicit axis nor as a KindTest. A ":" may start the "::"
+     * of an explicit axis, so is left to those alternatives so that
+     * they still report any error at the same index.
+     *
+     * @return true if a name test which is followed by neither a "(" nor a ":" is ahead
+     */
+    boolean isNameTestAhead() {
+        final InputBuffer input = getContext().getInputBuffer();
+        if(isRecovering(input)) {
+            return false;
+        }
+
+        final int end = scanQName(input, getContext().getCurrentIndex());
+        if(end == -1) {
+            return false;
+        }
+        if(input.charAt(end) == ':') {
+            return input.charAt(end + 1) == '*';
+        }
+
+        final char c = input.charAt(skipWhitespace(input, end));
+        return c != '(' && c != ':';
+    }
+
+    /**
+     * Looks ahead, without consuming any input, for an NCName followed by ":*".
+     *
+     * @return true if an NCName followed by ":*" is ahead
+     */
+    boolean isNCNameWildcardAhead() {
+        final InputBuffer input = getContext().getInputBuffer();
+        if(isRecovering(input)) {
+            return true;
+        }
+
+        final int index = scanNCName(input, getContext().getCurrentIndex());
+        return index != -1
+                && input.charAt(index) == ':'
+                && input.charAt(index + 1) == '*';
+    }
+
+    /**
+     * Determines whether the input is being parsed by a {@link org.parboiled.parserunners.RecoveringParseRunner}
+     * to recover from errors, rather than to match it.
+     *
+     * The lookaheads are then disabled, as the input may contain the markers of
+     * inserted and deleted characters, and so that every alternative is
+     * attempted and reported as expected at the error.
+     *
+     * @param input The input being parsed
+     * @return true if the input is being parsed to recover from errors
+     */
+    private static boolean isRecovering(final InputBuffer input) {
+        return input instanceof MutableInputBuffer;
+    }
+
+    /**
+     * Scans a QName, or just the prefix of a QName without a local part.
+     *
+     * @param input The input to scan
+     * @param index The index at which the QName should start
+     * @return The index after the end of the QName, or -1 if there is no QName at the index
+     */
+    private static int scanQName(final InputBuffer input, final int index) {
+        final int end = scanNCName(input, index);
+        if(end != -1 && input.charAt(end) == ':') {
+            final int localPartEnd = scanNCName(input, end + 1);
+            if(localPartEnd != -1) {
+                return localPartEnd;
+            }
+        }
+        return end;
+    }
+
+    private static int skipWhitespace(final InputBuffer input, int index) {
+        while(CharClass.S.contains(input.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Scans an NCName.
+     *
+     * @param input The input to scan
+     * @param index The index at which the NCName should start
+     * @return The index after the end of the NCName, or -1 if there is no NCName at the index
+     */
+    private static int scanNCName(final InputBuffer input, int index) {
+        if(!CharClass.NAME_START_CHAR.contains(input.charAt(index))) {
+            return -1;
+        }
+        do {
+            index++;
+        } while(CharClass.NAME_CHAR.contains(input.charAt(index)));
+        return index;
+    }
+
     /**
      * Whitespace handling
      */
@@ -246,16 +390,15 @@ public class XPathParser extends BaseParser<ASTNode> {
      */
     public Rule OrExpr() {
         final Var<List<AbstractOperand>> orOps = new Var<List<AbstractOperand>>(new ArrayList<AbstractOperand>());
-        return FirstOf(
-                Sequence(
-                        AndExpr(), push(new PartialOrExpr((AbstractOperand)pop())),
+        return Sequence(
+                AndExpr(),
+                Optional(
                         OneOrMore(Sequence(
                                 "or",
                                 WS(),
                                 AndExpr(), ACTION(orOps.get().add((AbstractOperand)pop()))
-                        )), push(complete(orOps.getAndClear(), pop()))
-                ),
-                AndExpr()
+                        )), push(complete(orOps.getAndClear(), new PartialOrExpr((AbstractOperand)pop())))
+                )
         );
     }
 
@@ -266,16 +409,15 @@ public class XPathParser extends BaseParser<ASTNode> {
      */
     public Rule AndExpr() {
         final Var<List<AbstractOperand>> andOps = new Var<List<AbstractOperand>>(new ArrayList<AbstractOperand>());
-        return FirstOf(
-                Sequence(
-                        ComparisonExpr(), push(new PartialAndExpr((AbstractOperand)pop())),
+        return Sequence(
+                ComparisonExpr(),
+                Optional(
                         OneOrMore(Sequence(
                                 "and",
                                 WS(),
                                 ComparisonExpr(), ACTION(andOps.get().add((AbstractOperand)pop()))
-                        )), push(complete(andOps.getAndClear(), pop()))
-                ),
-                ComparisonExpr()
+                        )), push(complete(andOps.getAndClear(), new PartialAndExpr((AbstractOperand)pop())))
+                )
         );
     }
 
@@ -289,13 +431,12 @@ public class XPathParser extends BaseParser<ASTNode> {
      * @return the ComparisonExpr rule.
      */
     public Rule ComparisonExpr() {
-        return FirstOf(
-                Sequence(
-                        RangeExpr(), push(new PartialComparisonExpr((AbstractOperand)pop())),
-                        FirstOf(ValueComp(), NodeComp(), GeneralComp()), push(complete(pop(), pop())),
-                        RangeExpr(), push(complete(pop(), pop()))
-                ),
-                RangeExpr()
+        return Sequence(
+                RangeExpr(),
+                Optional(
+                        FirstOf(ValueComp(), NodeComp(), GeneralComp()),
+                        RangeExpr(), push(complete(pop(), complete(pop(), new PartialComparisonExpr((AbstractOperand)pop()))))
+                )
         );
     }
 
@@ -307,15 +448,14 @@ public class XPathParser extends BaseParser<ASTNode> {
      * @return the RangeExpr rule.
      */
     public Rule RangeExpr() {
-        return FirstOf(
-                Sequence(
-                        AdditiveExpr(), push(new PartialRangeExpr((AbstractOperand)pop())),
+        return Sequence(
+                AdditiveExpr(),
+                Optional(
                         WS(),
                         "to",
                         WS(),
-                        AdditiveExpr(), push(complete(pop(), pop()))
-                ),
-                AdditiveExpr()
+                        AdditiveExpr(), push(complete(pop(), new PartialRangeExpr((AbstractOperand)pop())))
+                )
         );
     }
 
@@ -329,17 +469,16 @@ public class XPathParser extends BaseParser<ASTNode> {
     public Rule AdditiveExpr() {
         final Var<List<AdditiveExpr.AdditiveOp>> additiveOps = new Var<List<AdditiveExpr.AdditiveOp>>(new ArrayList<AdditiveExpr.AdditiveOp>());
         final Var<AdditiveExpr.Additive> additive = new Var<AdditiveExpr.Additive>();
-        return FirstOf(
-                Sequence(
-                        MultiplicativeExpr(), push(new PartialAdditiveExpr((AbstractOperand)pop())),
+        return Sequence(
+                MultiplicativeExpr(),
+                Optional(
                         OneOrMore(Sequence(
                                 WS(),
                                 FirstOf('+', '-'), ACTION(additive.set(AdditiveExpr.Additive.fromSyntax(match().charAt(0)))),
                                 WS(),
                                 MultiplicativeExpr(), ACTION(additiveOps.get().add(new AdditiveExpr.AdditiveOp(additive.getAndClear(), (AbstractOperand)pop())))
-                        )), push(complete(additiveOps.getAndClear(), pop()))
-                ),
-                MultiplicativeExpr()
+                        )), push(complete(additiveOps.getAndClear(), new PartialAdditiveExpr((AbstractOperand)pop())))
+                )
         );
     }
 
@@ -353,17 +492,16 @@ public class XPathParser extends BaseParser<ASTNode> {
     public Rule MultiplicativeExpr() {
         final Var<List<MultiplicativeExpr.MultiplicativeOp>> multiplicativeOps = new Var<List<MultiplicativeExpr.MultiplicativeOp>>(new ArrayList<MultiplicativeExpr.MultiplicativeOp>());
         final Var<MultiplicativeExpr.Multiplicative> multiplicative = new Var<MultiplicativeExpr.Multiplicative>();
-        return FirstOf(
-                Sequence(
-                        UnionExpr(), push(new PartialMultiplicativeExpr((AbstractOperand)pop())),
+        return Sequence(
+                UnionExpr(),
+                Optional(
                         OneOrMore(Sequence(
                                 WS(),
                                 FirstOf('*', "idiv", "div", "mod"), ACTION(multiplicative.set(MultiplicativeExpr.Multiplicative.fromSyntax(match()))),
                                 WS(),
                                 UnionExpr(), ACTION(multiplicativeOps.get().add(new MultiplicativeExpr.MultiplicativeOp(multiplicative.getAndClear(), (AbstractOperand)pop())))
-                        )), push(complete(multiplicativeOps.getAndClear(), pop()))
-                ),
-                UnionExpr()
+                        )), push(complete(multiplicativeOps.getAndClear(), new PartialMultiplicativeExpr((AbstractOperand)pop())))
+                )
         );
     }
 
@@ -376,17 +514,16 @@ public class XPathParser extends BaseParser<ASTNode> {
      */
      public Rule UnionExpr() {
         final Var<List<AbstractOperand>> unionOps = new Var<List<AbstractOperand>>(new ArrayList<AbstractOperand>());
-        return FirstOf(
-                Sequence(
-                    IntersectExceptExpr(), push(new PartialUnionExpr((AbstractOperand)pop())),
-                    OneOrMore(Sequence(
-                            WS(),
-                            FirstOf("union", '|'),
-                            WS(),
-                            IntersectExceptExpr(), ACTION(unionOps.get().add((AbstractOperand)pop()))
-                    )), push(complete(unionOps.getAndClear(), pop()))
-                ),
-                IntersectExceptExpr()
+        return Sequence(
+                IntersectExceptExpr(),
+                Optional(
+                        OneOrMore(Sequence(
+                                WS(),
+                                FirstOf("union", '|'),
+                                WS(),
+                                IntersectExceptExpr(), ACTION(unionOps.get().add((AbstractOperand)pop()))
+                        )), push(complete(unionOps.getAndClear(), new PartialUnionExpr((AbstractOperand)pop())))
+                )
         );
     }
 
@@ -400,16 +537,16 @@ public class XPathParser extends BaseParser<ASTNode> {
      public Rule IntersectExceptExpr() {
         final Var<List<IntersectExceptExpr.IntersectExceptOp>> intersectExceptOps = new Var<List<IntersectExceptExpr.IntersectExceptOp>>(new ArrayList<IntersectExceptExpr.IntersectExceptOp>());
         final Var<IntersectExceptExpr.IntersectExcept> intersectExcept = new Var<IntersectExceptExpr.IntersectExcept>();
-        return FirstOf(
-                Sequence(
-                        InstanceofExpr(), push(new PartialIntersectExceptExpr((AbstractOperand)pop())),
+        return Sequence(
+                InstanceofExpr(),
+                Optional(
                         OneOrMore(Sequence(
                                 WS(),
                                 FirstOf("intersect", "except"), ACTION(intersectExcept.set(IntersectExceptExpr.IntersectExcept.fromSyntax(match()))),
                                 WS(),
                                 InstanceofExpr(), ACTION(intersectExceptOps.get().add(new IntersectExceptExpr.IntersectExceptOp(intersectExcept.getAndClear(), (AbstractOperand)pop())))
-                        )), push(complete(intersectExceptOps.getAndClear(), pop()))),
-                InstanceofExpr()
+                        )), push(complete(intersectExceptOps.getAndClear(), new PartialIntersectExceptExpr((AbstractOperand)pop())))
+                )
         );
     }
 
@@ -549,6 +686,9 @@ public class XPathParser extends BaseParser<ASTNode> {
      * @throws IllegalArgumentException if both initialStep and relativePathExpr are null
      */
     public PathExpr relativePathToPath(@Nullable final StepExpr initialStep, @Nullable final RelativePathExpr relativePathExpr) {
+        if(!enableActions) {
+            return null;
+        }
         if(initialStep == null && relativePathExpr == null) {
             throw new IllegalArgumentException("Must provide initial step or relative path expression");
         }
@@ -588,10 +728,25 @@ public class XPathParser extends BaseParser<ASTNode> {
     /**
      * [27] StepExpr ::= FilterExpr | AxisStep
      *
+     * The step is chosen by scanning the QName ahead, if there is one:
+     * a QName followed by neither a "(" nor a ":" is only parsed as a NameTest
+     * of the child axis, see {@link #isNameTestAhead()}; one followed by "::" is
+     * only parsed as an AxisStep, see {@link #isQNameNotFollowedByParenAhead()};
+     * and one followed by "(" is attempted as a FunctionCall before a KindTest,
+     * as the grammar prefers function calls, e.g. for text().
+     *
      * @return the StepExpr rule
      */
     public Rule StepExpr() {
-        return FirstOf(FilterExpr(), AxisStep());
+        return FirstOf(
+                Sequence(
+                        ACTION(isNameTestAhead()),
+                        NameTest(), push(new PartialAxisStep(new Step(Axis.CHILD, (NodeTest)pop()))),
+                        PredicateList(), push(complete(pop(), pop()))
+                ),
+                Sequence(ACTION(!isQNameNotFollowedByParenAhead()), FilterExpr()),
+                AxisStep()
+        );
     }
 
     /**
@@ -724,7 +879,7 @@ public class XPathParser extends BaseParser<ASTNode> {
      */
     public Rule Wildcard() {
         return FirstOf(
-                Sequence(NCName(), push(new QNameW(match(), QNameW.WILDCARD)), ':', '*'),
+                Sequence(ACTION(isNCNameWildcardAhead()), NCName(), push(new QNameW(match(), QNameW.WILDCARD)), ':', '*'),
                 Sequence('*', ':', NCName(), push(new QNameW(QNameW.WILDCARD, match()))),
                 Sequence('*', push(new QNameW(QNameW.WILDCARD)))
         );
@@ -788,10 +943,49 @@ public class XPathParser extends BaseParser<ASTNode> {
     /**
      * [43] NumericLiteral ::= IntegerLiteral | DecimalLiteral | DoubleLiteral
      *
+     * The literal is usually matched by a single scan, see {@link NumericLiteralMatcher},
+     * rather than by each of DoubleLiteral, DecimalLiteral and IntegerLiteral in turn.
+     * Those are only attempted by the parse runners which do not use fast string
+     * matching, i.e. those which locate, report and recover from errors.
+     *
      * @return the NumericLiteral rule
      */
     public Rule NumericLiteral() {
-        return FirstOf(DoubleLiteral(), DecimalLiteral(), IntegerLiteral());
+        return FirstOf(
+                Sequence(new NumericLiteralMatcher(), push(numericLiteral(match())), WS()),
+                Sequence(ACTION(!getContext().fastStringMatching()), FirstOf(DoubleLiteral(), DecimalLiteral(), IntegerLiteral()))
+        );
+    }
+
+    /**
+     * Creates the AST node for a numeric literal, with the same value
+     * as {@link #DoubleLiteral()}, {@link #DecimalLiteral()} or
+     * {@link #IntegerLiteral()} would have produced.
+     *
+     * @param literal The matched numeric literal
+     * @return The DoubleLiteral, DecimalLiteral or IntegerLiteral
+     */
+    @Nullable NumericLiteral<?> numericLiteral(final String literal) {
+        if(!enableActions) {
+            return null;
+        }
+
+        final int dot = literal.indexOf('.');
+        int exponent = literal.indexOf('e');
+        if(exponent == -1) {
+            exponent = literal.indexOf('E');
+        }
+
+        if(exponent != -1) {
+            final String mantissa = dot == -1 ? literal.substring(0, exponent) : (dot == 0 ? "0" : "") + literal.substring(0, exponent);
+            final char sign = literal.charAt(exponent + 1);
+            final String exponentDigits = literal.substring(sign == '+' || sign == '-' ? exponent + 2 : exponent + 1);
+            return new DoubleLiteral(mantissa + 'E' + (sign == '-' ? '-' : '+') + exponentDigits);
+        } else if(dot != -1) {
+            return new DecimalLiteral(dot == 0 ? "0" + literal : literal);
+        } else {
+            return new IntegerLiteral(literal);
+        }
     }
 
     /**
@@ -983,7 +1177,7 @@ public class XPathParser extends BaseParser<ASTNode> {
     public Rule PITest() {
         //TODO(AR) do we need to differentiate between the NCName and the StringLiteral, instead of treading both as java.lang.String?
 
-        return Sequence("processing-instruction", push(new PartialPITest()), WS(), '(', WS(), Optional(FirstOf(Sequence(NCName(), push(complete(match(), pop()))), Sequence(StringLiteral(), push(complete(((StringLiteral)pop()).getValue(), pop()))))), ')', WS(), push(completeOptional(pop())));
+        return Sequence("processing-instruction", push(new PartialPITest()), WS(), '(', WS(), Optional(FirstOf(Sequence(NCName(), push(complete(match(), pop()))), Sequence(StringLiteral(), push(complete(stringLiteralValue(pop()), pop()))))), ')', WS(), push(completeOptional(pop())));
     }
 
     /**
@@ -1289,23 +1483,7 @@ public class XPathParser extends BaseParser<ASTNode> {
      * @return the XmlNames_NameStartChar_minusColon rule
      */
     public Rule XmlNames_NameStartChar_minusColon() {
-        return FirstOf(
-                CharRange('A', 'Z'),
-                '_',
-                CharRange('a', 'z'),
-                CharRange('\u00C0', '\u00D6'),
-                CharRange('\u00D8', '\u00F6'),
-                CharRange('\u00F8', '\u02FF'),
-                CharRange('\u0370', '\u037D'),
-                CharRange('\u037F', '\u1FFF'),
-                CharRange('\u200C', '\u200D'),
-                CharRange('\u2070', '\u218F'),
-                CharRange('\u2C00', '\u2FEF'),
-                CharRange('\u3001', '\uD7FF'),
-                CharRange('\uF900', '\uFDCF'),
-                CharRange('\uFDF0', '\uFFFD') //,
-//                CharRange('\u10000', '\uEFFFF')
-        );
+        return new CharClassMatcher(CharClass.NAME_START_CHAR);
     }
 
     /**
@@ -1318,15 +1496,7 @@ public class XPathParser extends BaseParser<ASTNode> {
      * @return the XmlNames_NameChar rule
      */
     public Rule XmlNames_NameChar() {
-        return FirstOf(
-                XmlNames_NameStartChar_minusColon(),
-                '-',
-                '.',
-                CharRange('0', '9'),
-                '\u00B7',
-                CharRange('\u0300', '\u036F'),
-                CharRange('\u203F', '\u2040')
-        );
+        return new CharClassMatcher(CharClass.NAME_CHAR);
     }
 
     /**
@@ -1337,7 +1507,7 @@ public class XPathParser extends BaseParser<ASTNode> {
      * @return the Xml_S rule
      */
     public Rule Xml_S() {
-        return OneOrMore(AnyOf(new char[] {0x20, 0x9, 0xD, 0xA}));
+        return OneOrMore(new CharClassMatcher(CharClass.S));
     }
 
     /**
@@ -1348,14 +1518,7 @@ public class XPathParser extends BaseParser<ASTNode> {
      * @return the Xml_Char rule
      */
     public Rule Xml_Char() {
-        return FirstOf(
-            (char)0x9,
-            (char)0xA,
-            (char)0xD,
-            CharRange('\u0020', '\uD7FF'),
-            CharRange('\uE000', '\uFFFD')/*,
-            CharRange('\u10000', '\u10FFFF')*/
-        );
+        return new CharClassMatcher(CharClass.CHAR);
     }
 
     /**
@@ -0,0 +1,67 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+/**
+ * The parser implementations which may be used
+ * to parse XPath Expressions.
+ */
+public enum XPathParserBackend {
+
+    /**
+     * The Parboiled grammar of {@link XPathParser}, which can also
+     * provide a parse tree and recover from errors, see {@link XPathParserPool}.
+     */
+    PARBOILED {
+        @Override
+        public XPathExpressionParser newParser(final XPathParseLimits limits) {
+            return new XPathParserPool(false, null, limits);
+        }
+    },
+
+    /**
+     * The hand-written {@link RecursiveDescentXPathParser}, which
+     * only builds the AST but is considerably faster.
+     */
+    RECURSIVE_DESCENT {
+        @Override
+        public XPathExpressionParser newParser(final XPathParseLimits limits) {
+            return new RecursiveDescentXPathParser(limits);
+        }
+    };
+
+    /**
+     * Creates a new parser which uses this backend.
+     *
+     * @return The new parser
+     */
+    public XPathExpressionParser newParser() {
+        return newParser(XPathParseLimits.NONE);
+    }
+
+    /**
+     * Creates a new parser which uses this backend.
+     *
+     * @param limits The limits on the resources used to parse each XPath
+     *
+     * @return The new parser
+     */
+    public abstract XPathExpressionParser newParser(XPathParseLimits limits);
+}
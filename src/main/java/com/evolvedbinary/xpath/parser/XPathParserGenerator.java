@@ -0,0 +1,194 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.parboiled.Parboiled;
+import org.parboiled.transform.ParserTransformer;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates ahead of time the classes which {@link Parboiled#createParser(Class, Object...)}
+ * would otherwise generate at runtime for the {@link XPathParser}, i.e. the extended parser
+ * class and the classes of its action expressions.
+ *
+ * Parboiled first looks for the extended parser class on the class path, so when these
+ * classes are packaged with the library no bytecode is generated at runtime.
+ *
+ * This is run by the build at the end of the {@code compile} phase,
+ * with the class output directory as its only argument.
+ *
+ * Alongside the classes it writes a digest of the {@link XPathParser} class
+ * they were generated from, so that the build can detect with {@link #isStale(ClassLoader)}
+ * classes left stale by a recompilation of just the {@link XPathParser},
+ * e.g. by an IDE. Stale classes are never regenerated at runtime.
+ */
+final class XPathParserGenerator {
+
+    private static final String PACKAGE_PATH = XPathParser.class.getPackage().getName().replace('.', '/') + '/';
+    private static final String PARSER_CLASS_NAME = XPathParser.class.getSimpleName() + "$$parboiled";
+    static final String DIGEST_FILE_NAME = PARSER_CLASS_NAME + ".sha256";
+
+    private static final String[] GENERATED_CLASS_PREFIXES = {
+            PARSER_CLASS_NAME,
+            "Action$",
+            "VarInit$"
+    };
+
+    private XPathParserGenerator() {
+    }
+
+    public static void main(final String args[]) throws Exception {
+        if(args.length != 1) {
+            System.err.println("Usage: XPathParserGenerator <class output directory>");
+            System.exit(1);
+        }
+
+        final Path outputDirectory = Paths.get(args[0]);
+
+        // classes generated by a previous build would otherwise be loaded, rather than generated
+        deleteGeneratedClasses(outputDirectory.resolve(PACKAGE_PATH));
+
+        final Object parserClassNode = extendParserClass();
+        writeClass(outputDirectory, (String)parserClassNode.getClass().getField("name").get(parserClassNode),
+                (byte[])invoke(parserClassNode, "getClassCode"));
+
+        int groups = 0;
+        for(final Object ruleMethod : ((Map<?, ?>)invoke(parserClassNode, "getRuleMethods")).values()) {
+            for(final Object group : (List<?>)invoke(ruleMethod, "getGroups")) {
+                final byte[] groupClassCode = (byte[])invoke(group, "getGroupClassCode");
+                if(groupClassCode != null) {
+                    writeClass(outputDirectory, (String)invoke(invoke(group, "getGroupClassType"), "getInternalName"),
+                            groupClassCode);
+                    groups++;
+                }
+            }
+        }
+
+        Files.write(outputDirectory.resolve(PACKAGE_PATH + DIGEST_FILE_NAME),
+                parserDigest(XPathParser.class.getClassLoader()).getBytes(StandardCharsets.US_ASCII));
+
+        System.out.println("Generated " + (groups + 1) + " parser classes in " + outputDirectory);
+    }
+
+    /**
+     * Determines whether the extended parser class available from a class loader
+     * was generated from a different {@link XPathParser} class than the one it loads.
+     *
+     * @param classLoader The class loader of the {@link XPathParser}
+     *
+     * @return true if the extended parser class is present but its digest is
+     *     absent or does not match the {@link XPathParser} class
+     */
+    static boolean isStale(final ClassLoader classLoader) throws IOException {
+        if(classLoader.getResource(PACKAGE_PATH + PARSER_CLASS_NAME + ".class") == null) {
+            // Parboiled generates it at runtime
+            return false;
+        }
+
+        final byte[] digest = readResource(classLoader, PACKAGE_PATH + DIGEST_FILE_NAME);
+        return digest == null || !parserDigest(classLoader).equals(new String(digest, StandardCharsets.US_ASCII).trim());
+    }
+
+    /**
+     * @return the hex encoded SHA-256 digest of the {@link XPathParser} class file
+     */
+    private static String parserDigest(final ClassLoader classLoader) throws IOException {
+        final byte[] classCode = readResource(classLoader, PACKAGE_PATH + XPathParser.class.getSimpleName() + ".class");
+        if(classCode == null) {
+            throw new IOException("Unable to find the class file of " + XPathParser.class.getName());
+        }
+
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(classCode);
+        } catch(final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        final StringBuilder hex = new StringBuilder(digest.length * 2);
+        for(final byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    @Nullable
+    private static byte[] readResource(final ClassLoader classLoader, final String name) throws IOException {
+        try(final InputStream is = classLoader.getResourceAsStream(name)) {
+            return is == null ? null : is.readAllBytes();
+        }
+    }
+
+    /**
+     * Generates, and loads, the extended parser class and the classes of its
+     * action expressions, as {@link ParserTransformer#transformParser(Class)} does.
+     *
+     * @return the ParserClassNode describing the extended parser class
+     */
+    private static Object extendParserClass() throws Exception {
+        final Method extendParserClass = ParserTransformer.class.getDeclaredMethod("extendParserClass", Class.class);
+        extendParserClass.setAccessible(true);
+        return extendParserClass.invoke(null, XPathParser.class);
+    }
+
+    private static Object invoke(final Object target, final String methodName) throws Exception {
+        final Method method = target.getClass().getMethod(methodName);
+        method.setAccessible(true);
+        return method.invoke(target);
+    }
+
+    private static void deleteGeneratedClasses(final Path packageDirectory) throws IOException {
+        if(!Files.isDirectory(packageDirectory)) {
+            return;
+        }
+
+        try(final DirectoryStream<Path> classFiles = Files.newDirectoryStream(packageDirectory, "*.class")) {
+            for(final Path classFile : classFiles) {
+                final String fileName = classFile.getFileName().toString();
+                for(final String prefix : GENERATED_CLASS_PREFIXES) {
+                    if(fileName.startsWith(prefix)) {
+                        Files.delete(classFile);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeClass(final Path outputDirectory, final String internalName, final byte[] classCode)
+            throws IOException {
+        final Path classFile = outputDirectory.resolve(internalName + ".class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, classCode);
+    }
+}
@@ -0,0 +1,627 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.xpath.parser.ast.ASTNode;
+import com.evolvedbinary.xpath.parser.ast.ASTNodeInterner;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.parboiled.Action;
+import org.parboiled.Context;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.errors.ParseError;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.parserunners.ParseRunner;
+import org.parboiled.parserunners.RecoveringParseRunner;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+import static org.parboiled.errors.ErrorUtils.printParseErrors;
+
+/**
+ * Thread-safe facade for parsing XPath expressions
+ * which reuses {@link XPathParser} instances.
+ *
+ * Creating a parser with {@link Parboiled#createParser(Class, Object...)}
+ * and building its rule tree is expensive, but the rule tree cannot be
+ * shared between threads as its actions and {@link org.parboiled.support.Var}s
+ * hold per-parse state. Instead the rule tree for {@code withEOI(XPath())}
+ * is built once per thread and reused for every subsequent parse on that thread.
+ *
+ * Most callers only need the AST, in which case constructing the pool
+ * with {@code buildParseTree = false} avoids allocating a parse tree
+ * {@link org.parboiled.Node} for every matched rule; the {@link Expr}
+ * is then only available from {@link ParsingResult#resultValue}.
+ *
+ * The parsers may also share an {@link ASTNodeInterner}, so that
+ * structurally equal sub-trees of all parsed expressions share instances.
+ * The AST of an XPath is interned bottom-up once it has been
+ * parsed without errors.
+ *
+ * Any {@link XPathParseLimits} apply to the methods which return just
+ * the AST, but not to those which return a {@link ParsingResult}.
+ */
+public class XPathParserPool implements XPathExpressionParser {
+
+    private final boolean buildParseTree;
+    @Nullable private final ASTNodeInterner interner;
+    private final XPathParseLimits limits;
+    private final ThreadLocal<PooledParser> parsers = new ThreadLocal<PooledParser>() {
+        @Override
+        protected PooledParser initialValue() {
+            return new PooledParser(buildParseTree, interner);
+        }
+    };
+
+    /**
+     * Creates a pool whose parsers build a parse tree.
+     */
+    public XPathParserPool() {
+        this(true);
+    }
+
+    /**
+     * @param buildParseTree true if the parsers should build a parse tree,
+     *     or false if they should only build the AST
+     */
+    public XPathParserPool(final boolean buildParseTree) {
+        this(buildParseTree, null);
+    }
+
+    /**
+     * @param buildParseTree true if the parsers should build a parse tree,
+     *     or false if they should only build the AST
+     * @param interner An interner shared by the parsers of all threads,
+     *     or null if AST nodes should not be interned
+     */
+    public XPathParserPool(final boolean buildParseTree, @Nullable final ASTNodeInterner interner) {
+        this(buildParseTree, interner, XPathParseLimits.NONE);
+    }
+
+    /**
+     * @param buildParseTree true if the parsers should build a parse tree,
+     *     or false if they should only build the AST
+     * @param interner An interner shared by the parsers of all threads,
+     *     or null if AST nodes should not be interned
+     * @param limits The limits on the resources used to parse each XPath
+     */
+    public XPathParserPool(final boolean buildParseTree, @Nullable final ASTNodeInterner interner, final XPathParseLimits limits) {
+        this.buildParseTree = buildParseTree;
+        this.interner = interner;
+        this.limits = limits;
+    }
+
+    /**
+     * Parses an XPath Expression, recovering from any errors
+     * so that they may all be reported.
+     *
+     * @param xpath The XPath to parse
+     *
+     * @return The result of parsing, the result value holds the {@link Expr}
+     */
+    public ParsingResult<ASTNode> parse(final String xpath) {
+        return parse(xpath, ParseMode.RECOVERING).getParsingResult();
+    }
+
+    /**
+     * Parses an XPath Expression.
+     *
+     * The vast majority of expressions are valid, for which {@link ParseMode#FAST}
+     * and {@link ParseMode#FAST_THEN_RECOVERING} avoid the considerable overhead
+     * of a {@link RecoveringParseRunner}.
+     *
+     * @param xpath The XPath to parse
+     * @param mode The strategy to use for parsing
+     *
+     * @return The result of parsing, which also indicates whether recovery was used
+     */
+    public XPathParseResult parse(final String xpath, final ParseMode mode) {
+        return parse((CharSequence)xpath, mode);
+    }
+
+    /**
+     * Parses an XPath Expression from a sequence of characters.
+     *
+     * The remaining characters of a {@link java.nio.CharBuffer} which is
+     * backed by an array are parsed directly from that array,
+     * any other sequence is first copied into a new array.
+     *
+     * @param xpath The XPath to parse, which must not be modified whilst it is parsed
+     * @param mode The strategy to use for parsing
+     *
+     * @return The result of parsing, which also indicates whether recovery was used
+     */
+    public XPathParseResult parse(final CharSequence xpath, final ParseMode mode) {
+        return parse(CharArrayInputBuffer.of(xpath), xpath.length(), mode);
+    }
+
+    /**
+     * Parses an XPath Expression directly from a range
+     * of a character array, without copying it.
+     *
+     * @param xpath The characters holding the XPath to parse,
+     *     which must not be modified whilst it is parsed
+     * @param offset The index of the first character of the XPath
+     * @param length The number of characters in the XPath
+     * @param mode The strategy to use for parsing
+     *
+     * @return The result of parsing, which also indicates whether recovery was used
+     */
+    public XPathParseResult parse(final char[] xpath, final int offset, final int length, final ParseMode mode) {
+        return parse(new CharArrayInputBuffer(xpath, offset, length), length, mode);
+    }
+
+    private XPathParseResult parse(final InputBuffer input, final int length, final ParseMode mode) {
+        final XPathParseEvent event = XPathParseEvent.start(XPathParseEvent.PARBOILED, length);
+        if(event == null) {
+            return parse(input, mode, null);
+        }
+        try {
+            return event.parsed(parse(input, mode, null));
+        } catch(final RuntimeException e) {
+            event.failed(e);
+            throw e;
+        }
+    }
+
+    private XPathParseResult parse(final InputBuffer input, final ParseMode mode, @Nullable final ParseBudget budget) {
+        return parse(input, mode, budget, newBasicParseRunner(budget));
+    }
+
+    private BasicParseRunner<ASTNode> newBasicParseRunner(@Nullable final ParseBudget budget) {
+        return budget == null
+                ? new BasicParseRunner<ASTNode>(getRule())
+                : new LimitingParseRunner<ASTNode>(getRule(), budget);
+    }
+
+    /**
+     * @param basicParseRunner The runner for the fast parse,
+     *     which must enforce the budget if there is one
+     */
+    private XPathParseResult parse(final InputBuffer input, final ParseMode mode, @Nullable final ParseBudget budget, final ParseRunner<ASTNode> basicParseRunner) {
+        final Rule rule = getRule();
+
+        if(mode != ParseMode.RECOVERING) {
+            final ParsingResult<ASTNode> result = basicParseRunner.run(input);
+            if(result.matched || mode == ParseMode.FAST) {
+                return new XPathParseResult(result, false);
+            }
+        }
+
+        if(budget == null) {
+            final ParseRunner<ASTNode> recoveringParseRunner = new RecoveringParseRunner<ASTNode>(rule);
+            return new XPathParseResult(recoveringParseRunner.run(input), true);
+        }
+
+        // the recovering runner matches through its own handler rather than a
+        // LimitingParseRunner, so only its time and the errors that it recovers
+        // from are limited, the callers report a stack which it exhausts as
+        // exceeding the maximum depth
+        final ParseRunner<ASTNode> recoveringParseRunner = new RecoveringParseRunner<ASTNode>(rule, budget.remainingMillis())
+                .withParseErrors(budget.recoveryErrors());
+        try {
+            return new XPathParseResult(recoveringParseRunner.run(input), true);
+        } catch(final RecoveringParseRunner.TimeoutException e) {
+            throw budget.timedOut();
+        }
+    }
+
+    /**
+     * Parses an XPath Expression and returns just the AST.
+     *
+     * @param xpath The XPath to parse
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     */
+    public Expr parseExpr(final String xpath) throws XPathParseException {
+        return parseExpr((CharSequence)xpath);
+    }
+
+    @Override
+    public Expr parseExpr(final CharSequence xpath) throws XPathParseException {
+        final XPathParseEvent event = XPathParseEvent.start(XPathParseEvent.PARBOILED, xpath.length());
+        if(event == null) {
+            return parseExpr(xpath, (XPathParseEvent)null);
+        }
+        try {
+            return event.parsed(parseExpr(xpath, event));
+        } catch(final XPathParseException | RuntimeException e) {
+            event.failed(e);
+            throw e;
+        }
+    }
+
+    private Expr parseExpr(final CharSequence xpath, @Nullable final XPathParseEvent event) throws XPathParseException {
+        final ParseBudget budget = ParseBudget.start(limits);
+        final InputBuffer input = CharArrayInputBuffer.of(xpath);
+        try {
+            if(budget != null) {
+                budget.checkLength(xpath.length());
+            }
+            final XPathParseResult result = parse(input, ParseMode.FAST_THEN_RECOVERING, budget);
+            if(event != null) {
+                event.recoveryUsed = result.isRecoveryUsed();
+            }
+            final Expr expr = exprOf(xpath, result);
+            return budget == null ? expr : budget.checkNodeCount(expr);
+        } catch(final ParseBudget.ExceededException e) {
+            throw e.toLimitException(0);
+        } catch(final ParserRuntimeException e) {
+            if(ParseBudget.isStackExhausted(e)) {
+                throw ParseBudget.stackExhausted(-1);
+            }
+            throw actionFailed(e, xpath, input, budget);
+        }
+    }
+
+    /**
+     * Parses an XPath Expression, returning just the AST
+     * along with the statistics of the parse.
+     *
+     * Collecting the statistics makes parsing somewhat slower.
+     *
+     * @param xpath The XPath to parse, which must not be modified whilst it is parsed
+     *
+     * @return The AST, or the exception if the XPath is not valid, and the statistics
+     */
+    public XPathParseStatsResult parseExprWithStats(final CharSequence xpath) {
+        final XPathParseEvent event = XPathParseEvent.start(XPathParseEvent.PARBOILED, xpath.length());
+        final ParseBudget budget = ParseBudget.start(limits);
+        final StatsParseRunner<ASTNode> runner = new StatsParseRunner<ASTNode>(getRule(), newBasicParseRunner(budget));
+        final InputBuffer input = CharArrayInputBuffer.of(xpath);
+
+        // after the rule tree of the thread has been built
+        final long allocatedBefore = ParseStats.threadAllocatedBytes();
+        final long start = System.nanoTime();
+        Either<XPathParseException, Expr> result;
+        try {
+            if(budget != null) {
+                budget.checkLength(xpath.length());
+            }
+            final Expr expr = exprOf(xpath, parse(input, ParseMode.FAST_THEN_RECOVERING, budget, runner));
+            result = Either.<XPathParseException, Expr>Right(budget == null ? expr : budget.checkNodeCount(expr));
+        } catch(final ParseBudget.ExceededException e) {
+            result = Either.<XPathParseException, Expr>Left(e.toLimitException(0));
+        } catch(final XPathParseException e) {
+            result = Either.<XPathParseException, Expr>Left(e);
+        } catch(final ParserRuntimeException e) {
+            if(ParseBudget.isStackExhausted(e)) {
+                result = Either.<XPathParseException, Expr>Left(ParseBudget.stackExhausted(-1));
+            } else {
+                result = Either.<XPathParseException, Expr>Left(actionFailed(e, xpath, input, budget));
+            }
+        }
+
+        final long elapsedNanos = System.nanoTime() - start;
+        final long allocatedAfter = ParseStats.threadAllocatedBytes();
+        final long allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+
+        final Expr expr = result.isRight() ? result.right().get() : null;
+        final ParseStats stats = new ParseStats(elapsedNanos, allocatedBytes, runner.getRuleInvocations(), runner.getBacktracks(),
+                runner.getMaxValueStackDepth(), expr == null ? 0 : expr.countNodes(Integer.MAX_VALUE), expr == null ? 0 : expr.depth());
+        if(event != null) {
+            if(expr != null) {
+                event.parsed(expr);
+            } else {
+                event.failed(result.left().get());
+            }
+        }
+        return new XPathParseStatsResult(result, stats);
+    }
+
+    private static Expr exprOf(final CharSequence xpath, final XPathParseResult result) throws XPathParseException {
+        if(!result.isSuccess()) {
+            final List<ParseError> errors = result.getParsingResult().parseErrors;
+            if(errors.isEmpty()) {
+                throw new XPathParseException("Invalid XPath: " + xpath, -1, errors);
+            } else {
+                throw parseException(xpath, errors);
+            }
+        }
+        return result.getExpr();
+    }
+
+    private static XPathParseException parseException(final CharSequence xpath, final List<ParseError> errors) {
+        final ParseError first = errors.get(0);
+        final int index = first.getInputBuffer().getOriginalIndex(first.getStartIndex());
+        return new XPathParseException(printParseErrors(errors), Math.min(index, xpath.length()), errors);
+    }
+
+    /**
+     * The actions of the parser fail on some invalid input, either as it
+     * is first matched, or once recovery has repaired it, in which case
+     * the first error is located again without recovering from it.
+     *
+     * @param e The failure of the action
+     * @param xpath The XPath being parsed
+     * @param input The input of the XPath
+     * @param budget The budget of the parse, or null
+     *
+     * @return The exception reporting the first error of the XPath, or if
+     *     that cannot be located, reporting the failure at the start of the XPath
+     */
+    private XPathParseException actionFailed(final ParserRuntimeException e, final CharSequence xpath, final InputBuffer input, @Nullable final ParseBudget budget) {
+        final ParseRunner<ASTNode> reportingParseRunner = budget == null
+                ? new ReportingParseRunner<ASTNode>(getRule())
+                : new LimitingReportingParseRunner<ASTNode>(getRule(), budget);
+        final List<ParseError> errors;
+        try {
+            errors = reportingParseRunner.run(input).parseErrors;
+        } catch(final ParseBudget.ExceededException ee) {
+            return ee.toLimitException(0);
+        } catch(final ParserRuntimeException ee) {
+            return new XPathParseException(e.getMessage(), 0, Collections.<ParseError>emptyList());
+        }
+        if(errors.isEmpty()) {
+            return new XPathParseException(e.getMessage(), 0, errors);
+        }
+        return parseException(xpath, errors);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * If the actions of the parser fail on the invalid input, then the
+     * index of the exception is that of the start of the XPath.
+     */
+    @Override
+    public XPathPrefixParseResult parsePrefix(final CharSequence input, final int offset) throws XPathParseException {
+        final XPathParseEvent event = XPathParseEvent.start(XPathParseEvent.PARBOILED, -1);
+        if(event == null) {
+            return parsePrefix(input, offset, null);
+        }
+        try {
+            return parsePrefix(input, offset, event);
+        } catch(final XPathParseException | RuntimeException e) {
+            event.failed(e);
+            throw e;
+        }
+    }
+
+    private XPathPrefixParseResult parsePrefix(final CharSequence input, final int offset, @Nullable final XPathParseEvent event) throws XPathParseException {
+        final InputBuffer buffer = new CharSequenceInputBuffer(input, offset);
+        final Rule rule = parsers.get().prefixRule;
+        final ParseBudget budget = ParseBudget.start(limits);
+        final List<ParseError> errors;
+        try {
+            final ParsingResult<ASTNode> result;
+            if(budget == null) {
+                result = new BasicParseRunner<ASTNode>(rule).run(buffer);
+            } else {
+                budget.checkLength(input.length() - offset);
+                result = new LimitingParseRunner<ASTNode>(rule, budget).run(buffer);
+            }
+            if(result.matched) {
+                final Expr expr = (Expr)result.resultValue;
+                final Expr checked = budget == null ? expr : budget.checkNodeCount(expr);
+                if(event != null) {
+                    event.inputLength = result.parseTreeRoot.getEndIndex();
+                    event.parsed(checked);
+                }
+                return new XPathPrefixParseResult(checked, offset + result.parseTreeRoot.getEndIndex());
+            }
+            final ParseRunner<ASTNode> reportingParseRunner = budget == null
+                    ? new ReportingParseRunner<ASTNode>(rule)
+                    : new LimitingReportingParseRunner<ASTNode>(rule, budget);
+            errors = reportingParseRunner.run(buffer).parseErrors;
+        } catch(final ParseBudget.ExceededException e) {
+            throw e.toLimitException(offset);
+        } catch(final ParserRuntimeException e) {
+            if(ParseBudget.isStackExhausted(e)) {
+                throw ParseBudget.stackExhausted(-1);
+            }
+            throw new XPathParseException(e.getMessage(), offset, Collections.<ParseError>emptyList());
+        }
+
+        if(errors.isEmpty()) {
+            throw new XPathParseException("Invalid XPath at index " + offset, offset, errors);
+        }
+        throw new XPathParseException(printParseErrors(errors), offset + errors.get(0).getStartIndex(), errors);
+    }
+
+    /**
+     * Parses a very large XPath Expression from a reader, without
+     * ever holding its entire text on the heap, and returns just the AST.
+     *
+     * The XPath is read once through a {@link ReaderInputBuffer} of
+     * {@link ReaderInputBuffer#DEFAULT_WINDOW_SIZE} characters, so it
+     * cannot be re-parsed to report the details of any errors.
+     *
+     * @param xpath The reader of the XPath to parse
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     * @throws IOException if the XPath cannot be read
+     */
+    public Expr parseExpr(final Reader xpath) throws XPathParseException, IOException {
+        return parseExpr(xpath, ReaderInputBuffer.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Parses a very large XPath Expression from a reader, without
+     * ever holding its entire text on the heap, and returns just the AST.
+     *
+     * @param xpath The reader of the XPath to parse
+     * @param windowSize The number of characters of the XPath to hold at once,
+     *     see {@link ReaderInputBuffer#ReaderInputBuffer(Reader, int)}
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid, in which case
+     *     the index is that of the furthest character read by the parser
+     * @throws IOException if the XPath cannot be read
+     */
+    public Expr parseExpr(final Reader xpath, final int windowSize) throws XPathParseException, IOException {
+        final XPathParseEvent event = XPathParseEvent.start(XPathParseEvent.PARBOILED, -1);
+        if(event == null) {
+            return parseExpr(xpath, windowSize, null);
+        }
+        try {
+            return parseExpr(xpath, windowSize, event);
+        } catch(final XPathParseException | IOException | RuntimeException e) {
+            event.failed(e);
+            throw e;
+        }
+    }
+
+    private Expr parseExpr(final Reader xpath, final int windowSize, @Nullable final XPathParseEvent event) throws XPathParseException, IOException {
+        final ReaderInputBuffer input = new ReaderInputBuffer(xpath, windowSize);
+        final ParseBudget budget = ParseBudget.start(limits);
+        final ParsingResult<ASTNode> result;
+        try {
+            result = newBasicParseRunner(budget).run(input);
+        } catch(final ParseBudget.ExceededException e) {
+            throw e.toLimitException(0);
+        } catch(final ReaderInputBuffer.WindowExceededException e) {
+            throw new XPathParseException("Invalid XPath, or it requires a window larger than " + windowSize + " characters: " + e.getMessage(), input.getFurthestIndex(), Collections.<ParseError>emptyList());
+        } catch(final UncheckedIOException e) {
+            throw e.getCause();
+        } catch(final ParserRuntimeException e) {
+            // Parboiled wraps any other exception thrown whilst matching
+            for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if(cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException)cause).getCause();
+                }
+            }
+            if(ParseBudget.isStackExhausted(e)) {
+                throw ParseBudget.stackExhausted(-1);
+            }
+            throw e;
+        }
+
+        if(!result.matched) {
+            throw new XPathParseException("Invalid XPath", input.getFurthestIndex(), result.parseErrors);
+        }
+        final Expr expr = (Expr)result.resultValue;
+        if(budget != null) {
+            try {
+                budget.checkNodeCount(expr);
+            } catch(final ParseBudget.ExceededException e) {
+                throw e.toLimitException(0);
+            }
+        }
+        if(event != null) {
+            event.inputLength = input.getFurthestIndex();
+            event.parsed(expr);
+        }
+        return expr;
+    }
+
+    /**
+     * Parses a very large XPath Expression from a file, by memory-mapping
+     * it so that neither its bytes nor its entire text are held on the heap,
+     * and returns just the AST.
+     *
+     * @param xpath The channel of the file holding the XPath to parse,
+     *     from its start to its end
+     * @param charset The charset of the file
+     *
+     * @return An {@link Expr} which is the root of the generated AST
+     *
+     * @throws XPathParseException if the XPath is not valid
+     * @throws IOException if the XPath cannot be read or decoded
+     */
+    public Expr parseExpr(final FileChannel xpath, final Charset charset) throws XPathParseException, IOException {
+        final long size = xpath.size();
+        if(size > Integer.MAX_VALUE) {
+            throw new IOException("XPath file of " + size + " bytes is too large to map");
+        }
+        final MappedByteBuffer bytes = xpath.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return parseExpr(new ByteBufferReader(bytes, charset.newDecoder()));
+    }
+
+    /**
+     * Gets the {@code withEOI(XPath())} rule of the
+     * parser belonging to the calling thread.
+     *
+     * The rule must not be used by any other thread.
+     *
+     * @return The rule for the calling thread
+     */
+    public Rule getRule() {
+        return parsers.get().rule;
+    }
+
+    /**
+     * Gets the parser belonging to the calling thread.
+     *
+     * The parser must not be used by any other thread.
+     *
+     * @return The parser for the calling thread
+     */
+    public XPathParser getParser() {
+        return parsers.get().parser;
+    }
+
+    private static class PooledParser {
+        final XPathParser parser;
+        final Rule rule;
+
+        /**
+         * Matches the longest XPath at the start of the input, only
+         * the root node of the parse tree is built so that the end
+         * of the match is known.
+         */
+        final Rule prefixRule;
+
+        PooledParser(final boolean buildParseTree, @Nullable final ASTNodeInterner interner) {
+            this.parser = Parboiled.createParser(XPathParser.class, Boolean.TRUE);
+            final Rule xpathRule = interned(parser, parser.withEOI(parser.XPath()), interner);
+            this.rule = buildParseTree ? xpathRule : xpathRule.suppressNode();
+            this.prefixRule = interned(parser, parser.XPath(), interner).suppressSubnodes();
+        }
+
+        /**
+         * Interns the AST built by a rule only once the rule has matched
+         * without any errors, so neither the nodes of alternatives which
+         * were backtracked from nor those of an invalid XPath are interned.
+         */
+        private static Rule interned(final XPathParser parser, final Rule rule, @Nullable final ASTNodeInterner interner) {
+            if(interner == null) {
+                return rule;
+            }
+            return parser.Sequence(rule, new Action<ASTNode>() {
+                @Override
+                public boolean run(final Context<ASTNode> context) {
+                    if(!context.hasError()) {
+                        context.getValueStack().push(interner.intern(context.getValueStack().pop()));
+                    }
+                    return true;
+                }
+            });
+        }
+    }
+}
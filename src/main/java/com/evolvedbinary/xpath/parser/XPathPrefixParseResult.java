@@ -0,0 +1,56 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+
+/**
+ * The result of parsing an XPath Expression which is
+ * embedded in other text with
+ * {@link XPathExpressionParser#parsePrefix(CharSequence, int)}.
+ */
+public class XPathPrefixParseResult {
+    private final Expr expr;
+    private final int endIndex;
+
+    public XPathPrefixParseResult(final Expr expr, final int endIndex) {
+        this.expr = expr;
+        this.endIndex = endIndex;
+    }
+
+    /**
+     * Gets the root of the AST.
+     *
+     * @return The AST
+     */
+    public Expr getExpr() {
+        return expr;
+    }
+
+    /**
+     * Gets the index within the text of the first character after
+     * the XPath, and after any whitespace which follows it.
+     *
+     * @return The end index
+     */
+    public int getEndIndex() {
+        return endIndex;
+    }
+}
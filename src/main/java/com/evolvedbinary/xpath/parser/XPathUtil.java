@@ -21,10 +21,6 @@ package com.evolvedbinary.xpath.parser;
 
 import com.evolvedbinary.xpath.parser.ast.ASTNode;
 import com.evolvedbinary.xpath.parser.ast.Expr;
-import org.parboiled.Parboiled;
-import org.parboiled.parserunners.ParseRunner;
-import org.parboiled.parserunners.RecoveringParseRunner;
-import org.parboiled.support.Chars;
 import org.parboiled.support.ParseTreeUtils;
 import org.parboiled.support.ParsingResult;
 
@@ -40,6 +36,8 @@ import static org.parboiled.errors.ErrorUtils.printParseErrors;
  */
 public class XPathUtil {
 
+    private final static XPathParserPool PARSER_POOL = new XPathParserPool();
+
     public final static void main(final String args[]) {
         if(args.length != 1) {
             System.err.println("You must provide an XPath as an argument.");
@@ -59,9 +57,7 @@ public class XPathUtil {
      * @return An {@link Expr} which is the root of the generated AST
      */
     public static Expr parseXPath(final String xpath, final PrintStream out, final PrintStream err) {
-        final XPathParser parser = Parboiled.createParser(XPathParser.class, Boolean.TRUE);
-        final ParseRunner<ASTNode> parseRunner = new RecoveringParseRunner<ASTNode>(parser.withEOI(parser.XPath()));
-        final ParsingResult<ASTNode> result = parseRunner.run(xpath + Chars.EOI);
+        final ParsingResult<ASTNode> result = PARSER_POOL.parse(xpath, ParseMode.FAST_THEN_RECOVERING).getParsingResult();
 
         if(out != null) {
             final String parseTreePrintOut = ParseTreeUtils.printNodeTree(result);
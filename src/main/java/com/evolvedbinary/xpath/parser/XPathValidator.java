@@ -0,0 +1,96 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+/**
+ * Determines whether XPath Expressions are valid, without building
+ * an AST, a parse tree or any strings.
+ *
+ * This recognises XPaths with the same code as {@link RecursiveDescentXPathParser},
+ * so recognises exactly the same XPaths and reports the same index of the first
+ * error, but only matches the input. The state of the recogniser is reused for
+ * every XPath on the same thread, so once warmed up, validating a valid XPath,
+ * or one whose error is found without exceeding a limit, does not allocate.
+ *
+ * The depth to which an XPath may nest is limited, so that a deeply nested
+ * XPath is reported as invalid rather than exhausting the stack, as is one
+ * which exhausts the stack regardless, e.g. on a thread with a smaller
+ * stack. Any other
+ * {@link XPathParseLimits} given to the validator also apply, except for
+ * {@link XPathParseLimits#getMaxNodeCount()} and
+ * {@link XPathParseLimits#getMaxRecoveryAttempts()}.
+ *
+ * Instances are thread-safe.
+ */
+public class XPathValidator {
+
+    /**
+     * The maximum depth to which an XPath may nest, unless other limits
+     * are given, which is about half of the depth at which the stack of
+     * a thread with the default stack size of 1MB would be exhausted.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 128;
+
+    private final XPathParseLimits limits;
+    private final ThreadLocal<RecursiveDescentXPathParser.Parse> recognisers = new ThreadLocal<RecursiveDescentXPathParser.Parse>() {
+        @Override
+        protected RecursiveDescentXPathParser.Parse initialValue() {
+            return new RecursiveDescentXPathParser.Parse(ParseBudget.start(limits));
+        }
+    };
+
+    /**
+     * Creates a validator whose XPaths may nest to at most {@link #DEFAULT_MAX_DEPTH}.
+     */
+    public XPathValidator() {
+        this(XPathParseLimits.NONE.withMaxDepth(DEFAULT_MAX_DEPTH));
+    }
+
+    /**
+     * @param limits The limits on the resources used to validate each XPath
+     */
+    public XPathValidator(final XPathParseLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Determines whether an XPath Expression is valid.
+     *
+     * @param xpath The XPath to validate
+     *
+     * @return true if the XPath is valid, false otherwise
+     */
+    public boolean isValid(final CharSequence xpath) {
+        return validate(xpath) == -1;
+    }
+
+    /**
+     * Validates an XPath Expression.
+     *
+     * @param xpath The XPath to validate
+     *
+     * @return -1 if the XPath is valid, otherwise the index of its first error,
+     *     which is the same as {@link XPathParseException#getIndex()} when
+     *     parsing it with {@link RecursiveDescentXPathParser} with the same limits
+     */
+    public int validate(final CharSequence xpath) {
+        return recognisers.get().recognise(xpath);
+    }
+}
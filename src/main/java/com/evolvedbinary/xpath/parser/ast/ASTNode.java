@@ -23,4 +23,14 @@ package com.evolvedbinary.xpath.parser.ast;
  * Created by aretter on 29/01/2016.
  */
 public interface ASTNode {
+
+    /**
+     * Accepts a visitor, by calling the visit
+     * method of the visitor for the type of this node.
+     *
+     * @param visitor The visitor
+     *
+     * @return The result of the visitor
+     */
+    <R> R accept(ASTVisitor<R> visitor);
 }
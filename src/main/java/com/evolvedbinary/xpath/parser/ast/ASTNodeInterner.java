@@ -0,0 +1,140 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser.ast;
+
+import com.evolvedbinary.xpath.parser.ast.partial.PartialASTNode;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-conses AST nodes, so that structurally
+ * equal nodes may share a single instance.
+ *
+ * A completed AST is interned bottom-up, so the children
+ * of each node are already canonical when it is interned,
+ * equality checks between them reduce to a reference
+ * comparison and interning each node is O(1).
+ *
+ * Canonical nodes are only weakly held, so each is released
+ * once no AST refers to it, or when {@link #clear()} is called.
+ * It is safe for use by multiple threads; the nodes are held in
+ * {@link #STRIPES} stripes by their hash code, each with its own lock,
+ * so that threads interning different nodes seldom contend.
+ */
+public class ASTNodeInterner {
+
+    /**
+     * The number of stripes, which must be a power of two.
+     */
+    static final int STRIPES = 64;
+
+    private final Map<ASTNode, WeakReference<ASTNode>>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    public ASTNodeInterner() {
+        this.stripes = new Map[STRIPES];
+        for(int i = 0; i < STRIPES; i++) {
+            stripes[i] = new WeakHashMap<ASTNode, WeakReference<ASTNode>>();
+        }
+    }
+
+    /**
+     * Replaces each node, from the leaves up, with its canonical instance.
+     */
+    private final ASTTransformer transformer = new ASTTransformer() {
+        @Override
+        public @Nullable <T extends ASTNode> T transform(@Nullable final T node) {
+            return internNode(super.transform(node));
+        }
+    };
+
+    /**
+     * Gets the canonical instance of an AST.
+     *
+     * Partial nodes are never interned. A node which is equal
+     * to a canonical node of a different class (e.g. a {@link DecimalLiteral}
+     * and a {@link DoubleLiteral} of the same value) is not replaced.
+     *
+     * @param node The root of the AST to intern
+     *
+     * @return The canonical instance equal to the AST, which may be
+     *     the AST itself or a copy of it which shares canonical sub-trees
+     */
+    public @Nullable <T extends ASTNode> T intern(@Nullable final T node) {
+        if(node == null || node instanceof PartialASTNode) {
+            return node;
+        }
+        return transformer.transform(node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable <T extends ASTNode> T internNode(@Nullable final T node) {
+        if(node == null) {
+            return null;
+        }
+
+        final Map<ASTNode, WeakReference<ASTNode>> stripe = stripe(node);
+        synchronized(stripe) {
+            final WeakReference<ASTNode> reference = stripe.get(node);
+            final ASTNode existing = reference == null ? null : reference.get();
+            if(existing == null) {
+                stripe.put(node, new WeakReference<ASTNode>(node));
+                return node;
+            }
+            if(existing.getClass() != node.getClass()) {
+                return node;
+            }
+            return (T)existing;
+        }
+    }
+
+    private Map<ASTNode, WeakReference<ASTNode>> stripe(final ASTNode node) {
+        // the hash code is computed, and cached, before any lock is taken
+        final int hash = node.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * @return The number of canonical nodes held
+     */
+    public int size() {
+        int size = 0;
+        for(final Map<ASTNode, WeakReference<ASTNode>> stripe : stripes) {
+            synchronized(stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Releases all of the canonical nodes.
+     */
+    public void clear() {
+        for(final Map<ASTNode, WeakReference<ASTNode>> stripe : stripes) {
+            synchronized(stripe) {
+                stripe.clear();
+            }
+        }
+    }
+}
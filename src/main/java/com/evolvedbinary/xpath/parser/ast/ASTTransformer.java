@@ -0,0 +1,528 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser.ast;
+
+import com.evolvedbinary.j8fu.Either;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites an AST bottom-up.
+ *
+ * By default each visit method transforms the children of a node
+ * and returns the node itself if none of its children changed,
+ * so only the path from the root to a rewritten node is reallocated
+ * and unchanged sub-trees are shared with the original AST.
+ *
+ * Sub-classes override the visit methods of the nodes that they
+ * wish to rewrite. A replacement node must be assignable to the
+ * type of the child it replaces, e.g. a {@link NodeTest} may only
+ * be replaced by another {@link NodeTest}.
+ */
+public class ASTTransformer implements ASTVisitor<ASTNode> {
+
+    /**
+     * Transforms a node.
+     *
+     * @param node The node to transform, may be null
+     *
+     * @return The transformed node, or null if the node was null
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable <T extends ASTNode> T transform(@Nullable final T node) {
+        if(node == null) {
+            return null;
+        }
+        return (T)node.accept(this);
+    }
+
+    /**
+     * Transforms each node of a list.
+     *
+     * @param nodes The nodes to transform
+     *
+     * @return The same list if no node changed, otherwise a new list of the transformed nodes
+     */
+    protected <T extends ASTNode> List<T> transformAll(final List<T> nodes) {
+        List<T> transformed = null;
+        for(int i = 0; i < nodes.size(); i++) {
+            final T node = nodes.get(i);
+            final T result = transform(node);
+            if(transformed == null && result != node) {
+                transformed = new ArrayList<T>(nodes.size());
+                transformed.addAll(nodes.subList(0, i));
+            }
+            if(transformed != null) {
+                transformed.add(result);
+            }
+        }
+        return transformed == null ? nodes : transformed;
+    }
+
+    /**
+     * Gets the operand of an op of a node, and rebuilds
+     * the op with a transformed operand.
+     *
+     * @param <O> The type of the op
+     */
+    private static abstract class OpRebuilder<O> {
+        abstract AbstractOperand operand(O op);
+
+        abstract O rebuild(O op, AbstractOperand operand);
+    }
+
+    private static final OpRebuilder<AdditiveExpr.AdditiveOp> ADDITIVE_OPS = new OpRebuilder<AdditiveExpr.AdditiveOp>() {
+        @Override
+        AbstractOperand operand(final AdditiveExpr.AdditiveOp op) {
+            return op.operand;
+        }
+
+        @Override
+        AdditiveExpr.AdditiveOp rebuild(final AdditiveExpr.AdditiveOp op, final AbstractOperand operand) {
+            return new AdditiveExpr.AdditiveOp(op.additive, operand);
+        }
+    };
+
+    private static final OpRebuilder<IntersectExceptExpr.IntersectExceptOp> INTERSECT_EXCEPT_OPS = new OpRebuilder<IntersectExceptExpr.IntersectExceptOp>() {
+        @Override
+        AbstractOperand operand(final IntersectExceptExpr.IntersectExceptOp op) {
+            return op.operand;
+        }
+
+        @Override
+        IntersectExceptExpr.IntersectExceptOp rebuild(final IntersectExceptExpr.IntersectExceptOp op, final AbstractOperand operand) {
+            return new IntersectExceptExpr.IntersectExceptOp(op.intersectExcept, operand);
+        }
+    };
+
+    private static final OpRebuilder<MultiplicativeExpr.MultiplicativeOp> MULTIPLICATIVE_OPS = new OpRebuilder<MultiplicativeExpr.MultiplicativeOp>() {
+        @Override
+        AbstractOperand operand(final MultiplicativeExpr.MultiplicativeOp op) {
+            return op.operand;
+        }
+
+        @Override
+        MultiplicativeExpr.MultiplicativeOp rebuild(final MultiplicativeExpr.MultiplicativeOp op, final AbstractOperand operand) {
+            return new MultiplicativeExpr.MultiplicativeOp(op.multiplicative, operand);
+        }
+    };
+
+    /**
+     * Transforms the operand of each op of a node.
+     *
+     * @param ops The ops to transform
+     * @param rebuilder Rebuilds an op whose operand changed
+     *
+     * @return The same list if no operand changed, otherwise a new list of the ops
+     */
+    private <O> List<? extends O> transformOps(final List<? extends O> ops, final OpRebuilder<O> rebuilder) {
+        List<O> transformed = null;
+        for(int i = 0; i < ops.size(); i++) {
+            final O op = ops.get(i);
+            final AbstractOperand operand = rebuilder.operand(op);
+            final AbstractOperand result = transform(operand);
+            if(transformed == null && result != operand) {
+                transformed = new ArrayList<O>(ops.size());
+                transformed.addAll(ops.subList(0, i));
+            }
+            if(transformed != null) {
+                transformed.add(result != operand ? rebuilder.rebuild(op, result) : op);
+            }
+        }
+        return transformed == null ? ops : transformed;
+    }
+
+    @Override
+    public ASTNode visit(final AdditiveExpr additiveExpr) {
+        final AbstractOperand operand = transform(additiveExpr.getOperand());
+        final List<? extends AdditiveExpr.AdditiveOp> ops = transformOps(additiveExpr.getOps(), ADDITIVE_OPS);
+        return operand != additiveExpr.getOperand() || ops != additiveExpr.getOps() ? new AdditiveExpr(operand, ops) : additiveExpr;
+    }
+
+    @Override
+    public ASTNode visit(final AndExpr andExpr) {
+        final AbstractOperand operand = transform(andExpr.getOperand());
+        final List<? extends AbstractOperand> ops = transformAll(andExpr.getOps());
+        return operand != andExpr.getOperand() || ops != andExpr.getOps() ? new AndExpr(operand, ops) : andExpr;
+    }
+
+    @Override
+    public ASTNode visit(final AnyKindTest anyKindTest) {
+        return anyKindTest;
+    }
+
+    @Override
+    public ASTNode visit(final AtomicType atomicType) {
+        final QNameW typeName = transform(atomicType.getTypeName());
+        return typeName != atomicType.getTypeName() ? new AtomicType(typeName) : atomicType;
+    }
+
+    @Override
+    public ASTNode visit(final AttributeTest attributeTest) {
+        final QNameW name = transform(attributeTest.getName());
+        final QNameW typeName = transform(attributeTest.getTypeName());
+        return name != attributeTest.getName() || typeName != attributeTest.getTypeName() ? new AttributeTest(name, typeName) : attributeTest;
+    }
+
+    @Override
+    public ASTNode visit(final Axis axis) {
+        return axis;
+    }
+
+    @Override
+    public ASTNode visit(final AxisStep axisStep) {
+        final Step step = transform(axisStep.getStep());
+        final PredicateList predicateList = transform(axisStep.getPredicateList());
+        return step != axisStep.getStep() || predicateList != axisStep.getPredicateList() ? new AxisStep(step, predicateList) : axisStep;
+    }
+
+    @Override
+    public ASTNode visit(final CastExpr castExpr) {
+        final AbstractOperand operand = transform(castExpr.getOperand());
+        final SingleType type = transform(castExpr.getType());
+        return operand != castExpr.getOperand() || type != castExpr.getType() ? new CastExpr(operand, type) : castExpr;
+    }
+
+    @Override
+    public ASTNode visit(final CastableExpr castableExpr) {
+        final AbstractOperand operand = transform(castableExpr.getOperand());
+        final SingleType type = transform(castableExpr.getType());
+        return operand != castableExpr.getOperand() || type != castableExpr.getType() ? new CastableExpr(operand, type) : castableExpr;
+    }
+
+    @Override
+    public ASTNode visit(final CommentTest commentTest) {
+        return commentTest;
+    }
+
+    @Override
+    public ASTNode visit(final ComparisonExpr comparisonExpr) {
+        final AbstractOperand left = transform(comparisonExpr.getLeft());
+        final Comparison comparison = transform(comparisonExpr.getComparison());
+        final AbstractOperand right = transform(comparisonExpr.getRight());
+        return left != comparisonExpr.getLeft() || comparison != comparisonExpr.getComparison() || right != comparisonExpr.getRight() ? new ComparisonExpr(left, comparison, right) : comparisonExpr;
+    }
+
+    @Override
+    public ASTNode visit(final ContextItemExpr contextItemExpr) {
+        return contextItemExpr;
+    }
+
+    @Override
+    public ASTNode visit(final DecimalLiteral decimalLiteral) {
+        return decimalLiteral;
+    }
+
+    @Override
+    public ASTNode visit(final DocumentTest documentTest) {
+        final Either<ElementTest, SchemaElementTest> elementTest = documentTest.getElementTest();
+        if(elementTest == null) {
+            return documentTest;
+        }
+
+        if(elementTest.isLeft()) {
+            final ElementTest left = elementTest.left().get();
+            final ElementTest transformed = transform(left);
+            return transformed != left ? new DocumentTest(Either.<ElementTest, SchemaElementTest>Left(transformed)) : documentTest;
+        } else {
+            final SchemaElementTest right = elementTest.right().get();
+            final SchemaElementTest transformed = transform(right);
+            return transformed != right ? new DocumentTest(Either.<ElementTest, SchemaElementTest>Right(transformed)) : documentTest;
+        }
+    }
+
+    @Override
+    public ASTNode visit(final DoubleLiteral doubleLiteral) {
+        return doubleLiteral;
+    }
+
+    @Override
+    public ASTNode visit(final ElementTest elementTest) {
+        final QNameW name = transform(elementTest.getName());
+        final QNameW typeName = transform(elementTest.getTypeName());
+        return name != elementTest.getName() || typeName != elementTest.getTypeName() ? new ElementTest(name, typeName, elementTest.isOptionalType()) : elementTest;
+    }
+
+    @Override
+    public ASTNode visit(final Expr expr) {
+        final List<? extends ASTNode> exprSingles = transformAll(expr.getExprSingles());
+        return exprSingles != expr.getExprSingles() ? new Expr(exprSingles) : expr;
+    }
+
+    @Override
+    public ASTNode visit(final FilterExpr filterExpr) {
+        final PrimaryExpr primaryExpr = transform(filterExpr.getPrimaryExpr());
+        final PredicateList predicateList = transform(filterExpr.getPredicateList());
+        return primaryExpr != filterExpr.getPrimaryExpr() || predicateList != filterExpr.getPredicateList() ? new FilterExpr(primaryExpr, predicateList) : filterExpr;
+    }
+
+    @Override
+    public ASTNode visit(final ForExpr forExpr) {
+        final SimpleForClause simpleForClause = transform(forExpr.getSimpleForClause());
+        final ASTNode returnExpression = transform(forExpr.getReturnExpression());
+        return simpleForClause != forExpr.getSimpleForClause() || returnExpression != forExpr.getReturnExpression() ? new ForExpr(simpleForClause, returnExpression) : forExpr;
+    }
+
+    @Override
+    public ASTNode visit(final FunctionCall functionCall) {
+        final QNameW functionName = transform(functionCall.getFunctionName());
+        final List<? extends ASTNode> arguments = transformAll(functionCall.getArguments());
+        return functionName != functionCall.getFunctionName() || arguments != functionCall.getArguments() ? new FunctionCall(functionName, arguments) : functionCall;
+    }
+
+    @Override
+    public ASTNode visit(final GeneralComp generalComp) {
+        return generalComp;
+    }
+
+    @Override
+    public ASTNode visit(final IfExpr ifExpr) {
+        final Expr testExpression = transform(ifExpr.getTestExpression());
+        final ASTNode thenExpression = transform(ifExpr.getThenExpression());
+        final ASTNode elseExpression = transform(ifExpr.getElseExpression());
+        return testExpression != ifExpr.getTestExpression() || thenExpression != ifExpr.getThenExpression() || elseExpression != ifExpr.getElseExpression() ? new IfExpr(testExpression, thenExpression, elseExpression) : ifExpr;
+    }
+
+    @Override
+    public ASTNode visit(final InstanceOfExpr instanceOfExpr) {
+        final AbstractOperand operand = transform(instanceOfExpr.getOperand());
+        final SequenceType type = transform(instanceOfExpr.getType());
+        return operand != instanceOfExpr.getOperand() || type != instanceOfExpr.getType() ? new InstanceOfExpr(operand, type) : instanceOfExpr;
+    }
+
+    @Override
+    public ASTNode visit(final IntegerLiteral integerLiteral) {
+        return integerLiteral;
+    }
+
+    @Override
+    public ASTNode visit(final IntersectExceptExpr intersectExceptExpr) {
+        final AbstractOperand operand = transform(intersectExceptExpr.getOperand());
+        final List<? extends IntersectExceptExpr.IntersectExceptOp> ops = transformOps(intersectExceptExpr.getOps(), INTERSECT_EXCEPT_OPS);
+        return operand != intersectExceptExpr.getOperand() || ops != intersectExceptExpr.getOps() ? new IntersectExceptExpr(operand, ops) : intersectExceptExpr;
+    }
+
+    @Override
+    public ASTNode visit(final ItemTypeItem itemTypeItem) {
+        return itemTypeItem;
+    }
+
+    @Override
+    public ASTNode visit(final MultiplicativeExpr multiplicativeExpr) {
+        final AbstractOperand operand = transform(multiplicativeExpr.getOperand());
+        final List<? extends MultiplicativeExpr.MultiplicativeOp> ops = transformOps(multiplicativeExpr.getOps(), MULTIPLICATIVE_OPS);
+        return operand != multiplicativeExpr.getOperand() || ops != multiplicativeExpr.getOps() ? new MultiplicativeExpr(operand, ops) : multiplicativeExpr;
+    }
+
+    @Override
+    public ASTNode visit(final NameTest nameTest) {
+        final QNameW name = transform(nameTest.getName());
+        return name != nameTest.getName() ? new NameTest(name) : nameTest;
+    }
+
+    @Override
+    public ASTNode visit(final NodeComp nodeComp) {
+        return nodeComp;
+    }
+
+    @Override
+    public ASTNode visit(final OccurrenceIndicator occurrenceIndicator) {
+        return occurrenceIndicator;
+    }
+
+    @Override
+    public ASTNode visit(final OrExpr orExpr) {
+        final AbstractOperand operand = transform(orExpr.getOperand());
+        final List<? extends AbstractOperand> ops = transformAll(orExpr.getOps());
+        return operand != orExpr.getOperand() || ops != orExpr.getOps() ? new OrExpr(operand, ops) : orExpr;
+    }
+
+    @Override
+    public ASTNode visit(final PITest piTest) {
+        return piTest;
+    }
+
+    @Override
+    public ASTNode visit(final ParenthesizedExpr parenthesizedExpr) {
+        final ASTNode expr = transform(parenthesizedExpr.getExpr());
+        return expr != parenthesizedExpr.getExpr() ? new ParenthesizedExpr(expr) : parenthesizedExpr;
+    }
+
+    @Override
+    public ASTNode visit(final PathExpr pathExpr) {
+        final List<? extends StepExpr> steps = transformAll(pathExpr.getSteps());
+        return steps != pathExpr.getSteps() ? new PathExpr(pathExpr.isRelative(), steps) : pathExpr;
+    }
+
+    @Override
+    public ASTNode visit(final Predicate predicate) {
+        final ASTNode expr = transform(predicate.getExpr());
+        return expr != predicate.getExpr() ? new Predicate(expr) : predicate;
+    }
+
+    @Override
+    public ASTNode visit(final PredicateList predicateList) {
+        final List<Predicate> predicates = transformAll(predicateList.getPredicates());
+        return predicates != predicateList.getPredicates() ? new PredicateList(predicates) : predicateList;
+    }
+
+    @Override
+    public ASTNode visit(final QNameW qName) {
+        return qName;
+    }
+
+    @Override
+    public ASTNode visit(final QuantifiedExpr quantifiedExpr) {
+        final List<QuantifiedExpr.InClause> inClauses = quantifiedExpr.getInClauses();
+        List<QuantifiedExpr.InClause> transformed = null;
+        for(int i = 0; i < inClauses.size(); i++) {
+            final QuantifiedExpr.InClause inClause = inClauses.get(i);
+            final QNameW varName = transform(inClause.varName);
+            final ASTNode in = transform(inClause.in);
+            final boolean changed = varName != inClause.varName || in != inClause.in;
+            if(transformed == null && changed) {
+                transformed = new ArrayList<QuantifiedExpr.InClause>(inClauses.size());
+                transformed.addAll(inClauses.subList(0, i));
+            }
+            if(transformed != null) {
+                transformed.add(changed ? new QuantifiedExpr.InClause(varName, in) : inClause);
+            }
+        }
+        final ASTNode satisfies = transform(quantifiedExpr.getSatisfies());
+        if(transformed != null) {
+            return new QuantifiedExpr(quantifiedExpr.getQuantifier(), transformed, satisfies);
+        }
+        return satisfies != quantifiedExpr.getSatisfies() ? new QuantifiedExpr(quantifiedExpr.getQuantifier(), inClauses, satisfies) : quantifiedExpr;
+    }
+
+    @Override
+    public ASTNode visit(final RangeExpr rangeExpr) {
+        final AbstractOperand from = transform(rangeExpr.getFrom());
+        final AbstractOperand to = transform(rangeExpr.getTo());
+        return from != rangeExpr.getFrom() || to != rangeExpr.getTo() ? new RangeExpr(from, to) : rangeExpr;
+    }
+
+    @Override
+    public ASTNode visit(final RelativePathExpr relativePathExpr) {
+        final List<? extends StepExpr> steps = transformAll(relativePathExpr.getSteps());
+        return steps != relativePathExpr.getSteps() ? new RelativePathExpr(steps) : relativePathExpr;
+    }
+
+    @Override
+    public ASTNode visit(final SchemaAttributeTest schemaAttributeTest) {
+        final QNameW name = transform(schemaAttributeTest.getName());
+        return name != schemaAttributeTest.getName() ? new SchemaAttributeTest(name) : schemaAttributeTest;
+    }
+
+    @Override
+    public ASTNode visit(final SchemaElementTest schemaElementTest) {
+        final QNameW name = transform(schemaElementTest.getName());
+        return name != schemaElementTest.getName() ? new SchemaElementTest(name) : schemaElementTest;
+    }
+
+    @Override
+    public ASTNode visit(final SequenceType sequenceType) {
+        final ItemType itemType = transform(sequenceType.getItemType());
+        final OccurrenceIndicator occurrenceIndicator = transform(sequenceType.getOccurrenceIndicator());
+        return itemType != sequenceType.getItemType() || occurrenceIndicator != sequenceType.getOccurrenceIndicator() ? new SequenceType(itemType, occurrenceIndicator) : sequenceType;
+    }
+
+    @Override
+    public ASTNode visit(final SimpleForClause simpleForClause) {
+        final List<SimpleForClause.RangeVariable> rangeVariables = simpleForClause.getRangeVariables();
+        List<SimpleForClause.RangeVariable> transformed = null;
+        for(int i = 0; i < rangeVariables.size(); i++) {
+            final SimpleForClause.RangeVariable rangeVariable = rangeVariables.get(i);
+            final QNameW varName = transform(rangeVariable.varName);
+            final ASTNode exprSingle = transform(rangeVariable.exprSingle);
+            final boolean changed = varName != rangeVariable.varName || exprSingle != rangeVariable.exprSingle;
+            if(transformed == null && changed) {
+                transformed = new ArrayList<SimpleForClause.RangeVariable>(rangeVariables.size());
+                transformed.addAll(rangeVariables.subList(0, i));
+            }
+            if(transformed != null) {
+                transformed.add(changed ? new SimpleForClause.RangeVariable(varName, exprSingle) : rangeVariable);
+            }
+        }
+        return transformed != null ? new SimpleForClause(transformed) : simpleForClause;
+    }
+
+    @Override
+    public ASTNode visit(final SingleType singleType) {
+        final AtomicType atomicType = transform(singleType.getAtomicType());
+        return atomicType != singleType.getAtomicType() ? new SingleType(atomicType, singleType.isOptional()) : singleType;
+    }
+
+    @Override
+    public ASTNode visit(final Step step) {
+        final Axis axis = transform(step.getAxis());
+        final NodeTest nodeTest = transform(step.getNodeTest());
+        return axis != step.getAxis() || nodeTest != step.getNodeTest() ? new Step(axis, nodeTest) : step;
+    }
+
+    @Override
+    public ASTNode visit(final StringLiteral stringLiteral) {
+        return stringLiteral;
+    }
+
+    @Override
+    public ASTNode visit(final TextTest textTest) {
+        return textTest;
+    }
+
+    @Override
+    public ASTNode visit(final TreatExpr treatExpr) {
+        final AbstractOperand operand = transform(treatExpr.getOperand());
+        final SequenceType type = transform(treatExpr.getType());
+        return operand != treatExpr.getOperand() || type != treatExpr.getType() ? new TreatExpr(operand, type) : treatExpr;
+    }
+
+    @Override
+    public ASTNode visit(final UnaryExpr unaryExpr) {
+        final ValueExpr valueExpr = transform(unaryExpr.getValueExpr());
+        return valueExpr != unaryExpr.getValueExpr() ? new UnaryExpr(unaryExpr.getSigns(), valueExpr) : unaryExpr;
+    }
+
+    @Override
+    public ASTNode visit(final UnionExpr unionExpr) {
+        final AbstractOperand operand = transform(unionExpr.getOperand());
+        final List<? extends AbstractOperand> ops = transformAll(unionExpr.getOps());
+        return operand != unionExpr.getOperand() || ops != unionExpr.getOps() ? new UnionExpr(operand, ops) : unionExpr;
+    }
+
+    @Override
+    public ASTNode visit(final ValueComp valueComp) {
+        return valueComp;
+    }
+
+    @Override
+    public ASTNode visit(final ValueExpr valueExpr) {
+        final ASTNode pathExpr = transform(valueExpr.getPathExpr());
+        return pathExpr != valueExpr.getPathExpr() ? new ValueExpr(pathExpr) : valueExpr;
+    }
+
+    @Override
+    public ASTNode visit(final VarRef varRef) {
+        final QNameW varName = transform(varRef.getVarName());
+        return varName != varRef.getVarName() ? new VarRef(varName) : varRef;
+    }
+}
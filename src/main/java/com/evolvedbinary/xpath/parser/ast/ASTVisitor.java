@@ -0,0 +1,86 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser.ast;
+
+/**
+ * A visitor over the AST, with a visit method
+ * for each type of node.
+ *
+ * A visitor is dispatched to by calling {@link ASTNode#accept(ASTVisitor)},
+ * it is the responsibility of the visitor to visit any child nodes.
+ *
+ * @param <R> The type of the result of visiting a node
+ */
+public interface ASTVisitor<R> {
+    R visit(AdditiveExpr additiveExpr);
+    R visit(AndExpr andExpr);
+    R visit(AnyKindTest anyKindTest);
+    R visit(AtomicType atomicType);
+    R visit(AttributeTest attributeTest);
+    R visit(Axis axis);
+    R visit(AxisStep axisStep);
+    R visit(CastExpr castExpr);
+    R visit(CastableExpr castableExpr);
+    R visit(CommentTest commentTest);
+    R visit(ComparisonExpr comparisonExpr);
+    R visit(ContextItemExpr contextItemExpr);
+    R visit(DecimalLiteral decimalLiteral);
+    R visit(DocumentTest documentTest);
+    R visit(DoubleLiteral doubleLiteral);
+    R visit(ElementTest elementTest);
+    R visit(Expr expr);
+    R visit(FilterExpr filterExpr);
+    R visit(ForExpr forExpr);
+    R visit(FunctionCall functionCall);
+    R visit(GeneralComp generalComp);
+    R visit(IfExpr ifExpr);
+    R visit(InstanceOfExpr instanceOfExpr);
+    R visit(IntegerLiteral integerLiteral);
+    R visit(IntersectExceptExpr intersectExceptExpr);
+    R visit(ItemTypeItem itemTypeItem);
+    R visit(MultiplicativeExpr multiplicativeExpr);
+    R visit(NameTest nameTest);
+    R visit(NodeComp nodeComp);
+    R visit(OccurrenceIndicator occurrenceIndicator);
+    R visit(OrExpr orExpr);
+    R visit(PITest piTest);
+    R visit(ParenthesizedExpr parenthesizedExpr);
+    R visit(PathExpr pathExpr);
+    R visit(Predicate predicate);
+    R visit(PredicateList predicateList);
+    R visit(QNameW qName);
+    R visit(QuantifiedExpr quantifiedExpr);
+    R visit(RangeExpr rangeExpr);
+    R visit(RelativePathExpr relativePathExpr);
+    R visit(SchemaAttributeTest schemaAttributeTest);
+    R visit(SchemaElementTest schemaElementTest);
+    R visit(SequenceType sequenceType);
+    R visit(SimpleForClause simpleForClause);
+    R visit(SingleType singleType);
+    R visit(Step step);
+    R visit(StringLiteral stringLiteral);
+    R visit(TextTest textTest);
+    R visit(TreatExpr treatExpr);
+    R visit(UnaryExpr unaryExpr);
+    R visit(UnionExpr unionExpr);
+    R visit(ValueComp valueComp);
+    R visit(ValueExpr valueExpr);
+    R visit(VarRef varRef);
+}
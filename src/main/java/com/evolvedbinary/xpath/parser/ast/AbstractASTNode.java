@@ -19,12 +19,202 @@
  */
 package com.evolvedbinary.xpath.parser.ast;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
 /**
  * Created by aretter on 28/01/2016.
+ *
+ * {@link #toString()}, {@link #equals(Object)} and {@link #hashCode()}
+ * walk the AST with an explicit stack rather than by recursion, so
+ * that they are safe for arbitrarily deep expressions.
  */
 public abstract class AbstractASTNode implements ASTNode {
 
-    protected abstract String describe();
+    // lazily computed by hashCode(), 0 until then
+    private int hashCode;
+
+    /**
+     * Describes this node by appending its parts to a description.
+     *
+     * Child nodes should be appended themselves rather than
+     * their {@link #toString()}, they are then described in turn
+     * by the caller without recursion.
+     *
+     * @param description The description to append to
+     */
+    protected abstract void describe(final Description description);
+
+    protected String describe() {
+        return Description.describe(this);
+    }
+
+    /**
+     * Compares the state of this node with another object.
+     *
+     * Child nodes must be compared with {@link Equality#test(Object, Object)}
+     * rather than {@link #equals(Object)}, their comparison is then
+     * deferred to the caller without recursion.
+     *
+     * By default nodes are only equal to themselves.
+     *
+     * @param obj The object to compare with
+     * @param equality Compares the children of the nodes
+     *
+     * @return false if the object is not equal to this node, otherwise true
+     *     if this node is equal to the object providing the children compared
+     *     by {@code equality} are also equal
+     */
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
+        return false;
+    }
+
+    @Override
+    public final boolean equals(final Object obj) {
+        if(obj == this) {
+            return true;
+        }
+
+        if(obj != null && obj instanceof AbstractASTNode) {
+            return Equality.equals(this, (AbstractASTNode)obj);
+        }
+
+        return false;
+    }
+
+    /**
+     * Computes a structural hash code for this node
+     * which is consistent with {@link #equals(Object)}.
+     *
+     * AST nodes are immutable, so this is called at most
+     * once per node (or once per thread if racing), after which
+     * {@link #hashCode()} returns the cached value. The hash codes
+     * of any child nodes are always computed first, so calling
+     * {@link #hashCode()} on a child does not recurse.
+     *
+     * @return the hash code
+     */
+    protected abstract int computeHashCode();
+
+    @Override
+    public final int hashCode() {
+        int h = hashCode;
+        if(h == 0) {
+            computeChildHashCodes(this);
+            h = cacheHashCode();
+        }
+        return h;
+    }
+
+    private int cacheHashCode() {
+        int h = computeHashCode();
+        if(h == 0) {
+            // 0 marks an uncomputed hash code
+            h = 1;
+        }
+        hashCode = h;
+        return h;
+    }
+
+    /**
+     * Computes and caches the hash codes of all descendants of a node
+     * whose hash codes are not yet known, children before their parents.
+     *
+     * @param node The node whose descendants should have their hash codes computed
+     */
+    private static void computeChildHashCodes(final AbstractASTNode node) {
+        final Description description = new Description();
+        final Deque<AbstractASTNode> pending = new ArrayDeque<AbstractASTNode>();
+        final List<AbstractASTNode> uncomputed = new ArrayList<AbstractASTNode>();
+
+        // pre-order, so that every node is listed before its descendants
+        pending.push(node);
+        while(!pending.isEmpty()) {
+            final AbstractASTNode next = pending.pop();
+            uncomputed.add(next);
+            next.describe(description);
+            for(final Object part : description.parts) {
+                if(part instanceof AbstractASTNode && ((AbstractASTNode)part).hashCode == 0) {
+                    pending.push((AbstractASTNode)part);
+                }
+            }
+            description.parts.clear();
+        }
+
+        // in reverse, so that every node is computed after its descendants
+        for(int i = uncomputed.size() - 1; i > 0; i--) {
+            final AbstractASTNode descendant = uncomputed.get(i);
+            if(descendant.hashCode == 0) {
+                descendant.cacheHashCode();
+            }
+        }
+    }
+
+    /**
+     * Counts this node and all of its descendants
+     * by walking the AST with an explicit stack.
+     *
+     * @param limit The number of nodes after which counting stops
+     *
+     * @return the number of nodes, or {@code limit + 1} if there are more than {@code limit}
+     */
+    public final int countNodes(final int limit) {
+        final Description description = new Description();
+        final Deque<AbstractASTNode> pending = new ArrayDeque<AbstractASTNode>();
+
+        int count = 0;
+        pending.push(this);
+        while(!pending.isEmpty() && count <= limit) {
+            count++;
+            pending.pop().describe(description);
+            for(final Object part : description.parts) {
+                if(part instanceof AbstractASTNode) {
+                    pending.push((AbstractASTNode)part);
+                }
+            }
+            description.parts.clear();
+        }
+        return count;
+    }
+
+    /**
+     * Measures the depth of the AST rooted at this node, i.e. the
+     * number of nodes on the longest path from this node to a leaf,
+     * by walking the AST one level at a time.
+     *
+     * @return the depth, which is 1 for a leaf
+     */
+    public final int depth() {
+        final Description description = new Description();
+        List<AbstractASTNode> level = new ArrayList<AbstractASTNode>();
+        level.add(this);
+
+        int depth = 0;
+        while(!level.isEmpty()) {
+            depth++;
+            final List<AbstractASTNode> next = new ArrayList<AbstractASTNode>();
+            for(final AbstractASTNode node : level) {
+                node.describe(description);
+                for(final Object part : description.parts) {
+                    if(part instanceof AbstractASTNode) {
+                        next.add((AbstractASTNode)part);
+                    }
+                }
+                description.parts.clear();
+            }
+            level = next;
+        }
+        return depth;
+    }
+
+    /**
+     * @return the cached hash code of this node, or 0 if it is not yet known
+     */
+    final int cachedHashCode() {
+        return hashCode;
+    }
 
     @Override
     public String toString() {
@@ -33,25 +33,68 @@ public abstract class AbstractOperandWithOps<T> extends AbstractOperand {
         this.ops = ops;
     }
 
-    protected abstract void describeOp(final StringBuilder builder, final T op);
+    protected abstract void describeOp(final Description description, final T op);
 
     @Override
-    protected String describe() {
-        final StringBuilder builder = new StringBuilder();
+    protected void describe(final Description description) {
+        description
+                .append(getClass().getSimpleName())
+                .append("(")
+                .append(operand);
         for(final T op : ops) {
-            describeOp(builder, op);
+            describeOp(description, op);
         }
-        return getClass().getSimpleName() + "(" + operand + builder.toString() + ")";
+        description.append(")");
+    }
+
+    /**
+     * Compares two ops, any operands must be
+     * compared with {@link Equality#test(Object, Object)}.
+     *
+     * @param op The op
+     * @param otherOp The op to compare with
+     * @param equality Compares the operands of the ops
+     *
+     * @return false if the ops are not equal
+     */
+    protected boolean opEquals(final T op, final T otherOp, final Equality equality) {
+        return equality.test(op, otherOp);
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj.getClass().isInstance(this)) {
-            final AbstractOperandWithOps other = (AbstractOperandWithOps)obj;
-            return other.operand.equals(operand)
-                    && other.ops.equals(ops);
+            @SuppressWarnings("unchecked") final AbstractOperandWithOps<T> other = (AbstractOperandWithOps<T>)obj;
+            if(!equality.test(other.operand, operand)
+                    || other.ops.size() != ops.size()) {
+                return false;
+            }
+
+            for(int i = 0; i < ops.size(); i++) {
+                if(!opEquals(other.ops.get(i), ops.get(i), equality)) {
+                    return false;
+                }
+            }
+
+            return true;
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        int result = getClass().getName().hashCode();
+        result = 31 * result + operand.hashCode();
+        result = 31 * result + ops.hashCode();
+        return result;
+    }
+
+    public AbstractOperand getOperand() {
+        return operand;
+    }
+
+    public List<? extends T> getOps() {
+        return ops;
+    }
 }
@@ -60,6 +60,10 @@ public class AdditiveExpr extends AbstractOperandWithOps<AdditiveExpr.AdditiveOp
 
         @Override
         public boolean equals(final Object obj) {
+            if(obj == this) {
+                return true;
+            }
+
             if(obj != null && obj instanceof AdditiveOp) {
                 final AdditiveOp other = (AdditiveOp)obj;
                 return other.additive == additive
@@ -68,9 +72,14 @@ public class AdditiveExpr extends AbstractOperandWithOps<AdditiveExpr.AdditiveOp
 
             return false;
         }
+
+        @Override
+        public int hashCode() {
+            return 31 * additive.ordinal() + operand.hashCode();
+        }
     }
 
-    public AdditiveExpr(final AbstractOperand operand, final List<AdditiveOp> additiveOps) {
+    public AdditiveExpr(final AbstractOperand operand, final List<? extends AdditiveOp> additiveOps) {
         super(operand, additiveOps);
     }
 
@@ -79,11 +88,22 @@ public class AdditiveExpr extends AbstractOperandWithOps<AdditiveExpr.AdditiveOp
     }
 
     @Override
-    protected void describeOp(final StringBuilder builder, final AdditiveOp additiveOp) {
-        builder
+    protected void describeOp(final Description description, final AdditiveOp additiveOp) {
+        description
                 .append(" ")
                 .append(additiveOp.additive)
                 .append(" ")
                 .append(additiveOp.operand);
     }
+
+    @Override
+    protected boolean opEquals(final AdditiveOp additiveOp, final AdditiveOp otherAdditiveOp, final Equality equality) {
+        return additiveOp.additive == otherAdditiveOp.additive
+                && equality.test(additiveOp.operand, otherAdditiveOp.operand);
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -36,9 +36,14 @@ public class AndExpr extends AbstractOperandWithOps<AbstractOperand> {
     }
 
     @Override
-    protected void describeOp(final StringBuilder builder, final AbstractOperand andOp) {
-        builder
+    protected void describeOp(final Description description, final AbstractOperand andOp) {
+        description
                 .append(" and ")
                 .append(andOp);
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
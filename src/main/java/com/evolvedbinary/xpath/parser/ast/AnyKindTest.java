@@ -32,4 +32,9 @@ public class AnyKindTest extends KindTest {
     public final static AnyKindTest instance() {
         return instance;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
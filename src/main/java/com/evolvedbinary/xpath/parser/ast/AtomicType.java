@@ -31,16 +31,33 @@ public class AtomicType extends PrimaryExpr implements ItemType {
     }
 
     @Override
-    protected String describe() {
-        return "AtomicType(" + typeName + ")";
+    protected void describe(final Description description) {
+        description
+                .append("AtomicType(")
+                .append(typeName)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof AtomicType) {
-            return ((AtomicType)obj).typeName.equals(typeName);
+            return equality.test(((AtomicType)obj).typeName, typeName);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return typeName.hashCode();
+    }
+
+    public QNameW getTypeName() {
+        return typeName;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -43,25 +43,48 @@ public class AttributeTest extends KindTest {
     }
 
     @Override
-    protected String describeParams() {
-        return (name == null ? "" : name.toString()) +
-                (typeName == null ? "" : ", " + typeName.toString());
+    protected void describeParams(final Description description) {
+        if(name != null) {
+            description.append(name);
+        }
+        if(typeName != null) {
+            description
+                    .append(", ")
+                    .append(typeName);
+        }
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof AttributeTest) {
             final AttributeTest other = (AttributeTest)obj;
 
             return
-                ((this.name == null && other.name == null) || this.name.equals(other.name)) &&
-                ((this.typeName == null && other.typeName == null) || this.typeName.equals(other.typeName));
+                (this.name == null ? other.name == null : equality.test(this.name, other.name)) &&
+                (this.typeName == null ? other.typeName == null : equality.test(this.typeName, other.typeName));
         }
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        int result = name == null ? 0 : name.hashCode();
+        result = 31 * result + (typeName == null ? 0 : typeName.hashCode());
+        return result;
+    }
+
     @Nullable
     public QNameW getName() {
         return name;
     }
+
+    @Nullable
+    public QNameW getTypeName() {
+        return typeName;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -81,12 +81,15 @@ public class Axis extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        return "Axis(" + getSyntax() + ")";
+    protected void describe(final Description description) {
+        description
+                .append("Axis(")
+                .append(getSyntax())
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof Axis) {
             return ((Axis)obj).direction == direction;
         }
@@ -94,7 +97,17 @@ public class Axis extends AbstractASTNode {
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return direction.ordinal();
+    }
+
     public Direction getDirection() {
         return direction;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -34,21 +34,31 @@ public class AxisStep extends AbstractASTNode implements StepExpr {
     }
 
     @Override
-    public final String describe() {
-        return "AxisStep(" + step + ", " + predicateList + ")";
+    protected void describe(final Description description) {
+        description
+                .append("AxisStep(")
+                .append(step)
+                .append(", ")
+                .append(predicateList)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof AxisStep) {
             final AxisStep other = (AxisStep)obj;
-            return other.step.equals(step)
-                    && other.predicateList.equals(predicateList);
+            return equality.test(other.step, step)
+                    && equality.test(other.predicateList, predicateList);
         }
 
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return 31 * step.hashCode() + predicateList.hashCode();
+    }
+
     public Step getStep() {
         return step;
     }
@@ -56,4 +66,9 @@ public class AxisStep extends AbstractASTNode implements StepExpr {
     public PredicateList getPredicateList() {
         return predicateList;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -32,18 +32,41 @@ public class CastableExpr extends AbstractOperand {
     }
 
     @Override
-    protected String describe() {
-        return "CastableExpr(" + operand + " castable as " + type + ")";
+    protected void describe(final Description description) {
+        description
+                .append("CastableExpr(")
+                .append(operand)
+                .append(" castable as ")
+                .append(type)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof CastableExpr) {
             final CastableExpr other = (CastableExpr)obj;
-            return other.operand.equals(operand)
-                    && other.type.equals(type);
+            return equality.test(other.operand, operand)
+                    && equality.test(other.type, type);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * operand.hashCode() + type.hashCode();
+    }
+
+    public AbstractOperand getOperand() {
+        return operand;
+    }
+
+    public SingleType getType() {
+        return type;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
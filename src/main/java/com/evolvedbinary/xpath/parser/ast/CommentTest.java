@@ -32,4 +32,9 @@ public class CommentTest extends KindTest {
     public final static CommentTest instance() {
         return instance;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
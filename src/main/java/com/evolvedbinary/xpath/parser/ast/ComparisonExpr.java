@@ -34,19 +34,51 @@ public class ComparisonExpr extends AbstractOperand {
     }
 
     @Override
-    protected String describe() {
-        return "ComparisonExpr(" + left + " " + comparison + " " + right + ")";
+    protected void describe(final Description description) {
+        description
+                .append("ComparisonExpr(")
+                .append(left)
+                .append(" ")
+                .append(comparison)
+                .append(" ")
+                .append(right)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof ComparisonExpr) {
             final ComparisonExpr other = (ComparisonExpr)obj;
-            return other.left.equals(left)
-                    && other.comparison.equals(comparison)
-                    && other.right.equals(right);
+            return equality.test(other.left, left)
+                    && equality.test(other.comparison, comparison)
+                    && equality.test(other.right, right);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        int result = left.hashCode();
+        result = 31 * result + comparison.hashCode();
+        result = 31 * result + right.hashCode();
+        return result;
+    }
+
+    public AbstractOperand getLeft() {
+        return left;
+    }
+
+    public Comparison getComparison() {
+        return comparison;
+    }
+
+    public AbstractOperand getRight() {
+        return right;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
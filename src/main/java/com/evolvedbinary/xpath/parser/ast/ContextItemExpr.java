@@ -31,7 +31,17 @@ public class ContextItemExpr extends PrimaryExpr {
     }
 
     @Override
-    protected String describe() {
-        return "ContextItemExpr";
+    protected void describe(final Description description) {
+        description.append("ContextItemExpr");
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
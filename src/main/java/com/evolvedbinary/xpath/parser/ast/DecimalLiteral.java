@@ -30,7 +30,15 @@ public class DecimalLiteral extends NumericLiteral<BigDecimal> {
     }
 
     @Override
-    protected String describe() {
-        return "DecimalLiteral(" + getValue() + ")";
+    protected void describe(final Description description) {
+        description
+                .append("DecimalLiteral(")
+                .append(getValue())
+                .append(")");
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser.ast;
+
+import com.evolvedbinary.xpath.parser.ast.partial.PartialASTNode;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The parts of the description of an AST node,
+ * see {@link AbstractASTNode#describe(Description)}.
+ *
+ * Each part is either a child AST node, which is
+ * itself described, or any other object whose
+ * {@link Object#toString()} is used.
+ */
+public final class Description {
+    final List<Object> parts = new ArrayList<Object>();
+
+    Description() {
+    }
+
+    /**
+     * Appends a part to the description.
+     *
+     * @param part The part to append
+     *
+     * @return this
+     */
+    public Description append(@Nullable final Object part) {
+        parts.add(part == null ? "null" : part);
+        return this;
+    }
+
+    /**
+     * Describes a node and all of its descendants
+     * by walking the AST with an explicit stack.
+     *
+     * @param node The node to describe
+     *
+     * @return The description of the node
+     */
+    static String describe(final AbstractASTNode node) {
+        final StringBuilder builder = new StringBuilder();
+        final Description description = new Description();
+        final Deque<Object> pending = new ArrayDeque<Object>();
+
+        node.describe(description);
+        description.pushParts(pending);
+        while(!pending.isEmpty()) {
+            final Object part = pending.pop();
+            if(part instanceof AbstractASTNode && !(part instanceof PartialASTNode)) {
+                builder.append("AST_");
+                ((AbstractASTNode)part).describe(description);
+                description.pushParts(pending);
+            } else {
+                builder.append(part);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Moves the parts onto a stack, so that the first part is on top.
+     */
+    private void pushParts(final Deque<Object> pending) {
+        for(int i = parts.size() - 1; i >= 0; i--) {
+            pending.push(parts.get(i));
+        }
+        parts.clear();
+    }
+}
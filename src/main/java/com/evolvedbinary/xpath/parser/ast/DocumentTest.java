@@ -34,18 +34,44 @@ public class DocumentTest extends KindTest {
     }
 
     @Override
-    protected String describeParams() {
-        return elementTest == null ? "" : elementTest.toString();
+    protected void describeParams(final Description description) {
+        if(elementTest != null) {
+            if(elementTest.isLeft()) {
+                description
+                        .append("Left(")
+                        .append(elementTest.left().get())
+                        .append(")");
+            } else {
+                description
+                        .append("Right(")
+                        .append(elementTest.right().get())
+                        .append(")");
+            }
+        }
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof DocumentTest) {
             final DocumentTest other = (DocumentTest)obj;
-            return (other.elementTest == null && this.elementTest == null) ||
-                    other.elementTest.equals(this.elementTest);
+            return other.elementTest == null ? this.elementTest == null : equality.test(other.elementTest, this.elementTest);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return elementTest == null ? 0 : elementTest.hashCode();
+    }
+
+    @Nullable
+    public Either<ElementTest, SchemaElementTest> getElementTest() {
+        return elementTest;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
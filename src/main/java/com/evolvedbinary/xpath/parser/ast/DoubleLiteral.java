@@ -30,7 +30,15 @@ public class DoubleLiteral extends NumericLiteral<BigDecimal> {
     }
 
     @Override
-    protected String describe() {
-        return "DoubleLiteral(" + getValue() + ")";
+    protected void describe(final Description description) {
+        description
+                .append("DoubleLiteral(")
+                .append(getValue())
+                .append(")");
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
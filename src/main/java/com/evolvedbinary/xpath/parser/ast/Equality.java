@@ -0,0 +1,130 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser.ast;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compares the children of AST nodes,
+ * see {@link AbstractASTNode#shallowEquals(Object, Equality)}.
+ *
+ * Child AST nodes are not compared immediately, instead
+ * they are queued and compared afterwards by walking
+ * the AST with an explicit stack.
+ */
+public final class Equality {
+    // pairs of nodes still to be compared
+    private final Deque<AbstractASTNode> pending = new ArrayDeque<AbstractASTNode>();
+
+    Equality() {
+    }
+
+    /**
+     * Tests whether two children are equal.
+     *
+     * @param child The child of one node
+     * @param otherChild The child of the other node
+     *
+     * @return false if the children are not equal, true if they are
+     *     equal or are AST nodes which have been queued for comparison
+     */
+    public boolean test(@Nullable final Object child, @Nullable final Object otherChild) {
+        if(child == otherChild) {
+            return true;
+        }
+
+        if(child == null || otherChild == null) {
+            return false;
+        }
+
+        if(child instanceof AbstractASTNode && otherChild instanceof AbstractASTNode) {
+            pending.push((AbstractASTNode)child);
+            pending.push((AbstractASTNode)otherChild);
+            return true;
+        }
+
+        return child.equals(otherChild);
+    }
+
+    /**
+     * Tests whether two lists of children are equal,
+     * by testing each pair of children in turn.
+     *
+     * @param children The children of one node
+     * @param otherChildren The children of the other node
+     *
+     * @return false if the lists are not equal, true if they are
+     *     equal or any AST nodes have been queued for comparison
+     */
+    public boolean testAll(final List<?> children, final List<?> otherChildren) {
+        if(children == otherChildren) {
+            return true;
+        }
+
+        if(children.size() != otherChildren.size()) {
+            return false;
+        }
+
+        for(int i = 0; i < children.size(); i++) {
+            if(!test(children.get(i), otherChildren.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compares two nodes and all of their descendants.
+     *
+     * @param node The node
+     * @param other The node to compare with
+     *
+     * @return true if the nodes are equal
+     */
+    static boolean equals(final AbstractASTNode node, final AbstractASTNode other) {
+        final Equality equality = new Equality();
+        equality.pending.push(node);
+        equality.pending.push(other);
+
+        while(!equality.pending.isEmpty()) {
+            final AbstractASTNode b = equality.pending.pop();
+            final AbstractASTNode a = equality.pending.pop();
+            if(a == b) {
+                continue;
+            }
+
+            final int aHashCode = a.cachedHashCode();
+            final int bHashCode = b.cachedHashCode();
+            if(aHashCode != 0 && bHashCode != 0 && aHashCode != bHashCode) {
+                return false;
+            }
+
+            if(!a.shallowEquals(b, equality)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -37,28 +37,37 @@ public class Expr extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        final StringBuilder builder = new StringBuilder();
-        for(final ASTNode exprSingle : exprSingles) {
-            if(builder.length() > 0) {
-                builder.append(", ");
+    protected void describe(final Description description) {
+        description.append("Expr(");
+        for(int i = 0; i < exprSingles.size(); i++) {
+            if(i > 0) {
+                description.append(", ");
             }
-            builder.append(exprSingle.toString());
+            description.append(exprSingles.get(i));
         }
-
-        return "Expr(" + builder.toString() + ")";
+        description.append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof Expr) {
-            return ((Expr)obj).exprSingles.equals(exprSingles);
+            return equality.testAll(((Expr)obj).exprSingles, exprSingles);
         }
 
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return exprSingles.hashCode();
+    }
+
     public List<? extends ASTNode> getExprSingles() {
         return exprSingles;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
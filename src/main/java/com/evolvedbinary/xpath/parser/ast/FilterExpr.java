@@ -32,18 +32,41 @@ public class FilterExpr extends AbstractASTNode implements StepExpr {
     }
 
     @Override
-    protected String describe() {
-        return "FilterExpr(" + primaryExpr + ", " + predicateList + ")";
+    protected void describe(final Description description) {
+        description
+                .append("FilterExpr(")
+                .append(primaryExpr)
+                .append(", ")
+                .append(predicateList)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof FilterExpr) {
             final FilterExpr other = (FilterExpr)obj;
-            return other.primaryExpr.equals(primaryExpr)
-                    && other.predicateList.equals(predicateList);
+            return equality.test(other.primaryExpr, primaryExpr)
+                    && equality.test(other.predicateList, predicateList);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * primaryExpr.hashCode() + predicateList.hashCode();
+    }
+
+    public PrimaryExpr getPrimaryExpr() {
+        return primaryExpr;
+    }
+
+    public PredicateList getPredicateList() {
+        return predicateList;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -32,18 +32,41 @@ public class ForExpr extends AbstractASTNode implements ExprSingle {
     }
 
     @Override
-    protected String describe() {
-        return "ForExpr(" + simpleForClause.toString() + " return " + returnExpression + ")";
+    protected void describe(final Description description) {
+        description
+                .append("ForExpr(")
+                .append(simpleForClause)
+                .append(" return ")
+                .append(returnExpression)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof ForExpr) {
             final ForExpr other = (ForExpr)obj;
-            return other.simpleForClause.equals(simpleForClause)
-                    && other.returnExpression.equals(returnExpression);
+            return equality.test(other.simpleForClause, simpleForClause)
+                    && equality.test(other.returnExpression, returnExpression);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * simpleForClause.hashCode() + returnExpression.hashCode();
+    }
+
+    public SimpleForClause getSimpleForClause() {
+        return simpleForClause;
+    }
+
+    public ASTNode getReturnExpression() {
+        return returnExpression;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -40,25 +40,46 @@ public class FunctionCall extends PrimaryExpr {
     }
 
     @Override
-    protected String describe() {
-        final  StringBuilder builder = new StringBuilder();
-        for(final ASTNode argument : arguments) {
-            if(builder.length() > 0) {
-                builder.append(", ");
+    protected void describe(final Description description) {
+        description
+                .append("FunctionCall(")
+                .append(functionName)
+                .append("(");
+        for(int i = 0; i < arguments.size(); i++) {
+            if(i > 0) {
+                description.append(", ");
             }
-            builder.append(argument.toString());
+            description.append(arguments.get(i));
         }
-        return "FunctionCall(" + functionName + "(" + builder.toString() + "))";
+        description.append("))");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof FunctionCall) {
             final FunctionCall other = (FunctionCall)obj;
-            return other.functionName.equals(functionName)
-                    && other.arguments.equals(arguments);
+            return equality.test(other.functionName, functionName)
+                    && equality.testAll(other.arguments, arguments);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * functionName.hashCode() + arguments.hashCode();
+    }
+
+    public QNameW getFunctionName() {
+        return functionName;
+    }
+
+    public List<? extends ASTNode> getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
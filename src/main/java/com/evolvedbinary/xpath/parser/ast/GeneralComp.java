@@ -65,16 +65,29 @@ public class GeneralComp extends AbstractASTNode implements Comparison  {
     }
 
     @Override
-    protected String describe() {
-        return "GeneralComp(" + operator + ")";
+    protected void describe(final Description description) {
+        description
+                .append("GeneralComp(")
+                .append(operator)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof GeneralComp) {
             return ((GeneralComp)obj).operator == operator;
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return operator.ordinal();
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -34,19 +34,51 @@ public class IfExpr extends AbstractASTNode implements ExprSingle {
     }
 
     @Override
-    protected String describe() {
-        return "IfExpr(" + testExpression + " then " + thenExpression + " else " + elseExpression + ")";
+    protected void describe(final Description description) {
+        description
+                .append("IfExpr(")
+                .append(testExpression)
+                .append(" then ")
+                .append(thenExpression)
+                .append(" else ")
+                .append(elseExpression)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof IfExpr) {
             final IfExpr other = (IfExpr)obj;
-            return other.testExpression.equals(testExpression)
-                    && other.thenExpression.equals(thenExpression)
-                    && other.elseExpression.equals(elseExpression);
+            return equality.test(other.testExpression, testExpression)
+                    && equality.test(other.thenExpression, thenExpression)
+                    && equality.test(other.elseExpression, elseExpression);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        int result = testExpression.hashCode();
+        result = 31 * result + thenExpression.hashCode();
+        result = 31 * result + elseExpression.hashCode();
+        return result;
+    }
+
+    public Expr getTestExpression() {
+        return testExpression;
+    }
+
+    public ASTNode getThenExpression() {
+        return thenExpression;
+    }
+
+    public ASTNode getElseExpression() {
+        return elseExpression;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -34,7 +34,15 @@ public class IntegerLiteral extends NumericLiteral<BigInteger> {
 
 
     @Override
-    protected String describe() {
-        return "IntegerLiteral(" + getValue() + ")";
+    protected void describe(final Description description) {
+        description
+                .append("IntegerLiteral(")
+                .append(getValue())
+                .append(")");
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
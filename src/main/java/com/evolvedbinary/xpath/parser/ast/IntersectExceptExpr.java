@@ -61,6 +61,10 @@ public class IntersectExceptExpr extends AbstractOperandWithOps<IntersectExceptE
 
         @Override
         public boolean equals(final Object obj) {
+            if(obj == this) {
+                return true;
+            }
+
             if(obj != null && obj instanceof IntersectExceptOp) {
                 final IntersectExceptOp other = (IntersectExceptOp)obj;
                 return other.intersectExcept == intersectExcept
@@ -69,9 +73,14 @@ public class IntersectExceptExpr extends AbstractOperandWithOps<IntersectExceptE
 
             return false;
         }
+
+        @Override
+        public int hashCode() {
+            return 31 * intersectExcept.ordinal() + operand.hashCode();
+        }
     }
 
-    public IntersectExceptExpr(final AbstractOperand operand, final List<IntersectExceptOp> interceptExceptOps) {
+    public IntersectExceptExpr(final AbstractOperand operand, final List<? extends IntersectExceptOp> interceptExceptOps) {
         super(operand, interceptExceptOps);
     }
 
@@ -80,11 +89,22 @@ public class IntersectExceptExpr extends AbstractOperandWithOps<IntersectExceptE
     }
 
     @Override
-    protected void describeOp(final StringBuilder builder, final IntersectExceptOp intersectExceptOp) {
-            builder
-                    .append(" ")
-                    .append(intersectExceptOp.intersectExcept)
-                    .append(" ")
-                    .append(intersectExceptOp.operand);
+    protected void describeOp(final Description description, final IntersectExceptOp intersectExceptOp) {
+        description
+                .append(" ")
+                .append(intersectExceptOp.intersectExcept)
+                .append(" ")
+                .append(intersectExceptOp.operand);
+    }
+
+    @Override
+    protected boolean opEquals(final IntersectExceptOp intersectExceptOp, final IntersectExceptOp otherIntersectExceptOp, final Equality equality) {
+        return intersectExceptOp.intersectExcept == otherIntersectExceptOp.intersectExcept
+                && equality.test(intersectExceptOp.operand, otherIntersectExceptOp.operand);
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
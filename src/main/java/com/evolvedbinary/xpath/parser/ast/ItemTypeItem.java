@@ -31,7 +31,17 @@ public class ItemTypeItem extends AbstractASTNode implements ItemType {
     }
 
     @Override
-    protected String describe() {
-        return "item()";
+    protected void describe(final Description description) {
+        description.append("item()");
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
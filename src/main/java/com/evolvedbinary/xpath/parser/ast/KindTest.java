@@ -51,11 +51,19 @@ public abstract class KindTest extends AbstractASTNode implements NodeTest, Item
     }
 
     @Override
-    protected String describe() {
-        return kind.xpathName + "(" + describeParams() + ")";
+    protected void describe(final Description description) {
+        description
+                .append(kind.xpathName)
+                .append("(");
+        describeParams(description);
+        description.append(")");
     }
 
-    protected String describeParams() {
-        return "";
+    protected void describeParams(final Description description) {
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return kind.ordinal();
     }
 }
@@ -62,6 +62,10 @@ public class MultiplicativeExpr extends AbstractOperandWithOps<MultiplicativeExp
 
         @Override
         public boolean equals(final Object obj) {
+            if(obj == this) {
+                return true;
+            }
+
             if(obj != null && obj instanceof MultiplicativeOp) {
                 final MultiplicativeOp other = (MultiplicativeOp)obj;
                 return other.multiplicative == multiplicative
@@ -70,9 +74,14 @@ public class MultiplicativeExpr extends AbstractOperandWithOps<MultiplicativeExp
 
             return false;
         }
+
+        @Override
+        public int hashCode() {
+            return 31 * multiplicative.ordinal() + operand.hashCode();
+        }
     }
 
-    public MultiplicativeExpr(final AbstractOperand operand, final List<MultiplicativeOp> multiplicativeOps) {
+    public MultiplicativeExpr(final AbstractOperand operand, final List<? extends MultiplicativeOp> multiplicativeOps) {
         super(operand, multiplicativeOps);
     }
 
@@ -81,11 +90,22 @@ public class MultiplicativeExpr extends AbstractOperandWithOps<MultiplicativeExp
     }
 
     @Override
-    protected void describeOp(final StringBuilder builder, final MultiplicativeOp multiplicativeOp) {
-            builder
-                    .append(" ")
-                    .append(multiplicativeOp.multiplicative)
-                    .append(" ")
-                    .append(multiplicativeOp.operand);
+    protected void describeOp(final Description description, final MultiplicativeOp multiplicativeOp) {
+        description
+                .append(" ")
+                .append(multiplicativeOp.multiplicative)
+                .append(" ")
+                .append(multiplicativeOp.operand);
+    }
+
+    @Override
+    protected boolean opEquals(final MultiplicativeOp multiplicativeOp, final MultiplicativeOp otherMultiplicativeOp, final Equality equality) {
+        return multiplicativeOp.multiplicative == otherMultiplicativeOp.multiplicative
+                && equality.test(multiplicativeOp.operand, otherMultiplicativeOp.operand);
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
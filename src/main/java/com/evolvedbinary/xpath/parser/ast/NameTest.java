@@ -30,20 +30,33 @@ public class NameTest extends AbstractASTNode implements NodeTest {
     }
 
     @Override
-    public final String describe() {
-        return "NameTest(" + name + ")";
+    protected void describe(final Description description) {
+        description
+                .append("NameTest(")
+                .append(name)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof NameTest) {
-            return ((NameTest)obj).name.equals(name);
+            return equality.test(((NameTest)obj).name, name);
         }
 
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return name.hashCode();
+    }
+
     public QNameW getName() {
         return name;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -59,16 +59,29 @@ public class NodeComp extends AbstractASTNode implements Comparison  {
     }
 
     @Override
-    protected String describe() {
-        return "NodeComp(" + operator + ")";
+    protected void describe(final Description description) {
+        description
+                .append("NodeComp(")
+                .append(operator)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof NodeComp) {
             return ((NodeComp)obj).operator == operator;
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return operator.ordinal();
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -30,7 +30,7 @@ public abstract class NumericLiteral<T extends Number> extends Literal {
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof NumericLiteral) {
             return ((NumericLiteral)obj).value.equals(value);
         }
@@ -38,6 +38,11 @@ public abstract class NumericLiteral<T extends Number> extends Literal {
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return value.hashCode();
+    }
+
     public T getValue() {
         return value;
     }
@@ -58,16 +58,29 @@ public class OccurrenceIndicator extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        return "OccurrenceIndicator(" + getSyntax() + ")";
+    protected void describe(final Description description) {
+        description
+                .append("OccurrenceIndicator(")
+                .append(getSyntax())
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof OccurrenceIndicator) {
             return ((OccurrenceIndicator)obj).occurrence == occurrence;
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return occurrence.ordinal();
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
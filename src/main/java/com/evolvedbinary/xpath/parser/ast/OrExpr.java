@@ -36,9 +36,14 @@ public class OrExpr extends AbstractOperandWithOps<AbstractOperand> implements E
     }
 
     @Override
-    protected void describeOp(final StringBuilder builder, final AbstractOperand orOp) {
-        builder
+    protected void describeOp(final Description description, final AbstractOperand orOp) {
+        description
                 .append(" or ")
                 .append(orOp);
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
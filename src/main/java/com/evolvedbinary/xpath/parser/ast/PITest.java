@@ -38,17 +38,34 @@ public class PITest extends KindTest {
     }
 
     @Override
-    protected String describeParams() {
-        return name == null ? "" : name;
+    protected void describeParams(final Description description) {
+        if(name != null) {
+            description.append(name);
+        }
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof PITest) {
             final PITest other = (PITest)obj;
-            return (other.name == null && this.name == null) || other.name.equals(this.name);
+            return other.name == null ? this.name == null : other.name.equals(this.name);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return name == null ? 0 : name.hashCode();
+    }
+
+    @Nullable
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -30,16 +30,33 @@ public class ParenthesizedExpr extends PrimaryExpr {
     }
 
     @Override
-    protected String describe() {
-        return "ParenthesizedExpr(" + expr + ")";
+    protected void describe(final Description description) {
+        description
+                .append("ParenthesizedExpr(")
+                .append(expr)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof ParenthesizedExpr) {
-            return ((ParenthesizedExpr)obj).expr.equals(expr);
+            return equality.test(((ParenthesizedExpr)obj).expr, expr);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return expr.hashCode();
+    }
+
+    public ASTNode getExpr() {
+        return expr;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -61,29 +61,43 @@ public class PathExpr extends AbstractASTNode  {
     }
 
     @Override
-    protected String describe() {
-        final StringBuilder builder = new StringBuilder();
-        for(final StepExpr step : steps) {
-            if(builder.length() > 0) {
-                builder.append(", ");
+    protected void describe(final Description description) {
+        description.append("PathExpr(");
+        for(int i = 0; i < steps.size(); i++) {
+            if(i > 0) {
+                description.append(", ");
             }
-            builder.append(step.toString());
+            description.append(steps.get(i));
         }
-        return "PathExpr(" + builder.toString() + ")";
+        description.append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof PathExpr) {
             final PathExpr other = (PathExpr)obj;
             return other.relative == relative
-                    && other.steps.equals(steps);
+                    && equality.testAll(other.steps, steps);
         }
 
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return 31 * (relative ? 1 : 0) + steps.hashCode();
+    }
+
     public List<? extends StepExpr> getSteps() {
         return steps;
     }
+
+    public boolean isRelative() {
+        return relative;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -40,23 +40,37 @@ public class PredicateList extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        final StringBuilder builder = new StringBuilder();
-        for(final Predicate predicate : predicates) {
-            if(builder.length() > 0) {
-                builder.append(", ");
+    protected void describe(final Description description) {
+        description.append("PredicateList(");
+        for(int i = 0; i < predicates.size(); i++) {
+            if(i > 0) {
+                description.append(", ");
             }
-            builder.append(predicate.toString());
+            description.append(predicates.get(i));
         }
-        return "PredicateList(" + builder.toString() + ")";
+        description.append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof PredicateList) {
-            return ((PredicateList)obj).predicates.equals(predicates);
+            return equality.testAll(((PredicateList)obj).predicates, predicates);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return predicates.hashCode();
+    }
+
+    public List<Predicate> getPredicates() {
+        return predicates;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
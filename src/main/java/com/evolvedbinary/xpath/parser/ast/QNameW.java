@@ -41,16 +41,24 @@ public class QNameW extends AbstractASTNode {
     }
 
     @Override
-    public final String describe() {
+    protected void describe(final Description description) {
         if(prefix != null) {
-            return "QNameW(" + prefix + ":" + localPart + ")";
+            description
+                    .append("QNameW(")
+                    .append(prefix)
+                    .append(":")
+                    .append(localPart)
+                    .append(")");
         } else {
-            return "QNameW(" + localPart + ")";
+            description
+                    .append("QNameW(")
+                    .append(localPart)
+                    .append(")");
         }
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof QNameW) {
             final QNameW other = (QNameW)obj;
 
@@ -61,6 +69,14 @@ public class QNameW extends AbstractASTNode {
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        // a null prefix is equal to "", which also hashes to 0
+        int result = prefix == null ? 0 : prefix.hashCode();
+        result = 31 * result + localPart.hashCode();
+        return result;
+    }
+
     @Nullable
     public String getPrefix() {
         return prefix;
@@ -69,4 +85,9 @@ public class QNameW extends AbstractASTNode {
     public String getLocalPart() {
         return localPart;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
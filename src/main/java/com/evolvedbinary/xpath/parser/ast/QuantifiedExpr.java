@@ -55,6 +55,10 @@ public class QuantifiedExpr extends AbstractASTNode implements ExprSingle {
 
         @Override
         public boolean equals(final Object obj) {
+            if(obj == this) {
+                return true;
+            }
+
             if(obj != null && obj instanceof InClause) {
                 final InClause other = (InClause)obj;
                 return other.varName.equals(varName)
@@ -63,6 +67,11 @@ public class QuantifiedExpr extends AbstractASTNode implements ExprSingle {
 
             return false;
         }
+
+        @Override
+        public int hashCode() {
+            return 31 * varName.hashCode() + in.hashCode();
+        }
     }
 
     private final Quantifier quantifier;
@@ -76,31 +85,74 @@ public class QuantifiedExpr extends AbstractASTNode implements ExprSingle {
     }
 
     @Override
-    protected String describe() {
-        final StringBuilder builder = new StringBuilder();
-        for(final InClause inClause : inClauses) {
-            if(builder.length() > 0) {
-                builder.append(", ");
+    protected void describe(final Description description) {
+        description
+                .append("QuantifiedExpr(")
+                .append(quantifier.getSyntax())
+                .append(" ");
+        for(int i = 0; i < inClauses.size(); i++) {
+            if(i > 0) {
+                description.append(", ");
             }
-
-            builder
+            final InClause inClause = inClauses.get(i);
+            description
                     .append("$")
-                    .append(inClause.varName.toString())
+                    .append(inClause.varName)
                     .append(" in ")
-                    .append(inClause.in.toString());
+                    .append(inClause.in);
         }
-        return "QuantifiedExpr(" + quantifier.getSyntax() + " " + builder.toString() + " satisfies " + satisfies.toString() + ")";
+        description
+                .append(" satisfies ")
+                .append(satisfies)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof QuantifiedExpr) {
             final QuantifiedExpr other = (QuantifiedExpr)obj;
-            return other.quantifier == quantifier
-                    && other.inClauses.equals(inClauses)
-                    && other.satisfies.equals(satisfies);
+            if(other.quantifier != quantifier
+                    || other.inClauses.size() != inClauses.size()) {
+                return false;
+            }
+
+            for(int i = 0; i < inClauses.size(); i++) {
+                final InClause otherInClause = other.inClauses.get(i);
+                final InClause inClause = inClauses.get(i);
+                if(!(equality.test(otherInClause.varName, inClause.varName)
+                        && equality.test(otherInClause.in, inClause.in))) {
+                    return false;
+                }
+            }
+
+            return equality.test(other.satisfies, satisfies);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        int result = quantifier.ordinal();
+        result = 31 * result + inClauses.hashCode();
+        result = 31 * result + satisfies.hashCode();
+        return result;
+    }
+
+    public Quantifier getQuantifier() {
+        return quantifier;
+    }
+
+    public List<InClause> getInClauses() {
+        return inClauses;
+    }
+
+    public ASTNode getSatisfies() {
+        return satisfies;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -32,18 +32,41 @@ public class RangeExpr extends AbstractOperand {
     }
 
     @Override
-    protected String describe() {
-        return "RangeExpr(" + from + " to " + to + ")";
+    protected void describe(final Description description) {
+        description
+                .append("RangeExpr(")
+                .append(from)
+                .append(" to ")
+                .append(to)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof RangeExpr) {
             final RangeExpr other = (RangeExpr)obj;
-            return other.from.equals(from)
-                    && other.to.equals(to);
+            return equality.test(other.from, from)
+                    && equality.test(other.to, to);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * from.hashCode() + to.hashCode();
+    }
+
+    public AbstractOperand getFrom() {
+        return from;
+    }
+
+    public AbstractOperand getTo() {
+        return to;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -41,23 +41,33 @@ public class RelativePathExpr extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        final StringBuilder builder = new StringBuilder();
-        for(final StepExpr step : steps) {
-            if(builder.length() > 0) {
-                builder.append(", ");
+    protected void describe(final Description description) {
+        description.append("RelativePathExpr(");
+        for(int i = 0; i < steps.size(); i++) {
+            if(i > 0) {
+                description.append(", ");
             }
-            builder.append(step.toString());
+            description.append(steps.get(i));
         }
-        return "RelativePathExpr(" + builder.toString() + ")";
+        description.append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof RelativePathExpr) {
-            return ((RelativePathExpr)obj).steps.equals(steps);
+            return equality.testAll(((RelativePathExpr)obj).steps, steps);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return steps.hashCode();
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
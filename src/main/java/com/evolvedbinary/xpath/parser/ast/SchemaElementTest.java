@@ -31,20 +31,30 @@ public class SchemaElementTest extends KindTest {
     }
 
     @Override
-    protected String describeParams() {
-        return name.toString();
+    protected void describeParams(final Description description) {
+        description.append(name);
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof SchemaElementTest) {
-            return ((SchemaElementTest)obj).name.equals(this.name);
+            return equality.test(((SchemaElementTest)obj).name, this.name);
         }
 
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return name.hashCode();
+    }
+
     public QNameW getName() {
         return name;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
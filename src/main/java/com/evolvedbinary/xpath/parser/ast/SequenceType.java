@@ -36,30 +36,34 @@ public class SequenceType extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
+    protected void describe(final Description description) {
         if(itemType == null && occurrenceIndicator == null) {
-            return "empty-sequence()";
+            description.append("empty-sequence()");
         } else {
-            return "SequenceType(" + itemType + (occurrenceIndicator == null ? "" : occurrenceIndicator) + ")";
+            description
+                    .append("SequenceType(")
+                    .append(itemType)
+                    .append(occurrenceIndicator == null ? "" : occurrenceIndicator)
+                    .append(")");
         }
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof SequenceType) {
             final SequenceType other = (SequenceType)obj;
             if(other.itemType == null && itemType == null) {
                 if(other.occurrenceIndicator == null && occurrenceIndicator == null) {
                     return true;
                 } else if(other.occurrenceIndicator != null && occurrenceIndicator != null) {
-                    return other.occurrenceIndicator.equals(occurrenceIndicator);
+                    return equality.test(other.occurrenceIndicator, occurrenceIndicator);
                 }
             } else if(other.itemType != null && itemType != null) {
-                if(other.itemType.equals(itemType)) {
+                if(equality.test(other.itemType, itemType)) {
                     if(other.occurrenceIndicator == null && occurrenceIndicator == null) {
                         return true;
                     } else if(other.occurrenceIndicator != null && occurrenceIndicator != null) {
-                        return other.occurrenceIndicator.equals(occurrenceIndicator);
+                        return equality.test(other.occurrenceIndicator, occurrenceIndicator);
                     }
                 }
             }
@@ -67,4 +71,26 @@ public class SequenceType extends AbstractASTNode {
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        int result = itemType == null ? 0 : itemType.hashCode();
+        result = 31 * result + (occurrenceIndicator == null ? 0 : occurrenceIndicator.hashCode());
+        return result;
+    }
+
+    @Nullable
+    public ItemType getItemType() {
+        return itemType;
+    }
+
+    @Nullable
+    public OccurrenceIndicator getOccurrenceIndicator() {
+        return occurrenceIndicator;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
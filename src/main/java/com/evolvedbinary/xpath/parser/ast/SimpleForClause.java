@@ -38,6 +38,10 @@ public class SimpleForClause extends AbstractASTNode {
 
         @Override
         public boolean equals(final Object obj) {
+            if(obj == this) {
+                return true;
+            }
+
             if(obj != null && obj instanceof RangeVariable) {
                 final RangeVariable other = (RangeVariable)obj;
                 return other.varName.equals(varName)
@@ -46,6 +50,11 @@ public class SimpleForClause extends AbstractASTNode {
 
             return false;
         }
+
+        @Override
+        public int hashCode() {
+            return 31 * varName.hashCode() + exprSingle.hashCode();
+        }
     }
 
     private final List<RangeVariable> rangeVariables;
@@ -59,27 +68,56 @@ public class SimpleForClause extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        final StringBuilder builder = new StringBuilder();
-        for(final RangeVariable rangeVariable : rangeVariables) {
-            if(builder.length() > 0) {
-                builder.append(", ");
+    protected void describe(final Description description) {
+        description.append("SimpleForClause(");
+        for(int i = 0; i < rangeVariables.size(); i++) {
+            if(i > 0) {
+                description.append(", ");
             }
-            builder
+            final RangeVariable rangeVariable = rangeVariables.get(i);
+            description
                     .append("$")
-                    .append(rangeVariable.varName.toString())
+                    .append(rangeVariable.varName)
                     .append(" in ")
-                    .append(rangeVariable.exprSingle.toString());
+                    .append(rangeVariable.exprSingle);
         }
-        return "SimpleForClause(" + builder.toString() + ")";
+        description.append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof SimpleForClause) {
-            return ((SimpleForClause)obj).rangeVariables.equals(rangeVariables);
+            final SimpleForClause other = (SimpleForClause)obj;
+            if(other.rangeVariables.size() != rangeVariables.size()) {
+                return false;
+            }
+
+            for(int i = 0; i < rangeVariables.size(); i++) {
+                final RangeVariable otherRangeVariable = other.rangeVariables.get(i);
+                final RangeVariable rangeVariable = rangeVariables.get(i);
+                if(!(equality.test(otherRangeVariable.varName, rangeVariable.varName)
+                        && equality.test(otherRangeVariable.exprSingle, rangeVariable.exprSingle))) {
+                    return false;
+                }
+            }
+
+            return true;
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return rangeVariables.hashCode();
+    }
+
+    public List<RangeVariable> getRangeVariables() {
+        return rangeVariables;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
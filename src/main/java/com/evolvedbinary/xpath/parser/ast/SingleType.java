@@ -33,18 +33,40 @@ public class SingleType extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        return "SingleType(" + atomicType + (optional ? "?" : "") + ")";
+    protected void describe(final Description description) {
+        description
+                .append("SingleType(")
+                .append(atomicType)
+                .append(optional ? "?" : "")
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof SingleType) {
             final SingleType other = (SingleType)obj;
-            return other.atomicType.equals(atomicType)
+            return equality.test(other.atomicType, atomicType)
                     && other.optional == optional;
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * atomicType.hashCode() + (optional ? 1 : 0);
+    }
+
+    public AtomicType getAtomicType() {
+        return atomicType;
+    }
+
+    public boolean isOptional() {
+        return optional;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
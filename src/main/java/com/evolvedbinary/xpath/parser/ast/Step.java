@@ -32,21 +32,31 @@ public class Step extends AbstractASTNode {
     }
 
     @Override
-    protected String describe() {
-        return "Step(" + axis.getSyntax() + "::" + nodeTest + ")";
+    protected void describe(final Description description) {
+        description
+                .append("Step(")
+                .append(axis.getSyntax())
+                .append("::")
+                .append(nodeTest)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof Step) {
             final Step other = (Step)obj;
-            return other.axis.equals(this.axis) &&
-                    other.nodeTest.equals(this.nodeTest);
+            return equality.test(other.axis, this.axis) &&
+                    equality.test(other.nodeTest, this.nodeTest);
         }
 
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return 31 * axis.hashCode() + nodeTest.hashCode();
+    }
+
     public Axis getAxis() {
         return axis;
     }
@@ -54,4 +64,9 @@ public class Step extends AbstractASTNode {
     public NodeTest getNodeTest() {
         return nodeTest;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -30,12 +30,15 @@ public class StringLiteral extends Literal {
     }
 
     @Override
-    protected String describe() {
-        return "StringLiteral(" + value + ")";
+    protected void describe(final Description description) {
+        description
+                .append("StringLiteral(")
+                .append(value)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof StringLiteral) {
             return ((StringLiteral)obj).value.equals(value);
         }
@@ -43,7 +46,17 @@ public class StringLiteral extends Literal {
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return value.hashCode();
+    }
+
     public String getValue() {
         return value;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
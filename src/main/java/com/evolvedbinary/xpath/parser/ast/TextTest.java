@@ -22,16 +22,19 @@ package com.evolvedbinary.xpath.parser.ast;
 /**
  * Created by aretter on 11/02/2016.
  */
-public class TextTest extends AbstractASTNode {
+public class TextTest extends KindTest {
     private final static TextTest instance = new TextTest();
-    private TextTest() {}
+
+    private TextTest() {
+        super(Kind.TEXT);
+    }
 
     public final static TextTest instance() {
         return instance;
     }
 
     @Override
-    protected String describe() {
-        return "TextTest";
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
     }
 }
@@ -32,18 +32,41 @@ public class TreatExpr extends AbstractOperand {
     }
 
     @Override
-    protected String describe() {
-        return "TreatExpr(" + operand + " treat as " + type + ")";
+    protected void describe(final Description description) {
+        description
+                .append("TreatExpr(")
+                .append(operand)
+                .append(" treat as ")
+                .append(type)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof TreatExpr) {
             final TreatExpr other = (TreatExpr)obj;
-            return other.operand.equals(operand)
-                    && other.type.equals(type);
+            return equality.test(other.operand, operand)
+                    && equality.test(other.type, type);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * operand.hashCode() + type.hashCode();
+    }
+
+    public AbstractOperand getOperand() {
+        return operand;
+    }
+
+    public SequenceType getType() {
+        return type;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -32,18 +32,40 @@ public class UnaryExpr extends AbstractOperand {
     }
 
     @Override
-    protected String describe() {
-        return "UnaryExpr(" + signs + valueExpr + ")";
+    protected void describe(final Description description) {
+        description
+                .append("UnaryExpr(")
+                .append(signs)
+                .append(valueExpr)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof UnaryExpr) {
             final UnaryExpr other = (UnaryExpr)obj;
-            return other.signs.equals(signs)
-                    && other.valueExpr.equals(valueExpr);
+            return equality.test(other.signs, signs)
+                    && equality.test(other.valueExpr, valueExpr);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * signs.hashCode() + valueExpr.hashCode();
+    }
+
+    public String getSigns() {
+        return signs;
+    }
+
+    public ValueExpr getValueExpr() {
+        return valueExpr;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
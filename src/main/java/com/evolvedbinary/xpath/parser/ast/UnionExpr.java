@@ -35,9 +35,14 @@ public class UnionExpr extends AbstractOperandWithOps<AbstractOperand> {
     }
 
     @Override
-    protected void describeOp(final StringBuilder builder, final AbstractOperand unionOp) {
-        builder
+    protected void describeOp(final Description description, final AbstractOperand unionOp) {
+        description
                 .append(" union ")
                 .append(unionOp);
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
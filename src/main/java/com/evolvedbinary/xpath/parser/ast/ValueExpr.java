@@ -30,20 +30,33 @@ public class ValueExpr extends AbstractOperand {
     }
 
     @Override
-    protected String describe() {
-        return "ValueExpr(" + pathExpr + ")";
+    protected void describe(final Description description) {
+        description
+                .append("ValueExpr(")
+                .append(pathExpr)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof ValueExpr) {
-            return ((ValueExpr)obj).pathExpr.equals(pathExpr);
+            return equality.test(((ValueExpr)obj).pathExpr, pathExpr);
         }
 
         return false;
     }
 
+    @Override
+    protected int computeHashCode() {
+        return pathExpr.hashCode();
+    }
+
     public ASTNode getPathExpr() {
         return pathExpr;
     }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
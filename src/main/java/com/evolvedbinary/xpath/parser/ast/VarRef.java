@@ -31,16 +31,33 @@ public class VarRef extends PrimaryExpr {
     }
 
     @Override
-    protected String describe() {
-        return "VarRef(" + varName + ")";
+    protected void describe(final Description description) {
+        description
+                .append("VarRef(")
+                .append(varName)
+                .append(")");
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    protected boolean shallowEquals(final Object obj, final Equality equality) {
         if(obj != null && obj instanceof VarRef) {
-            return ((VarRef)obj).varName.equals(varName);
+            return equality.test(((VarRef)obj).varName, varName);
         }
 
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return varName.hashCode();
+    }
+
+    public QNameW getVarName() {
+        return varName;
+    }
+
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -20,7 +20,9 @@
 package com.evolvedbinary.xpath.parser.ast.partial;
 
 import com.evolvedbinary.xpath.parser.ast.ASTNode;
+import com.evolvedbinary.xpath.parser.ast.ASTVisitor;
 import com.evolvedbinary.xpath.parser.ast.AbstractASTNode;
+import com.evolvedbinary.xpath.parser.ast.Description;
 
 /**
  * @param <T> The type of the ASTNode which is to be completed
@@ -28,8 +30,36 @@ import com.evolvedbinary.xpath.parser.ast.AbstractASTNode;
  */
 public abstract class AbstractPartialASTNode<T extends AbstractASTNode, U> extends AbstractASTNode implements PartialASTNode<T, U> {
 
+    @Override
+    protected abstract String describe();
+
+    /**
+     * Partial nodes are only short-lived, so they
+     * are simply described by {@link #describe()}.
+     */
+    @Override
+    protected void describe(final Description description) {
+        description.append(describe());
+    }
+
     @Override
     public String toString() {
         return "P_" + super.toString();
     }
+
+    @Override
+    protected int computeHashCode() {
+        return System.identityHashCode(this);
+    }
+
+    /**
+     * Partial nodes only exist on the value stack whilst parsing,
+     * they never appear in a complete AST and so cannot be visited.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public <R> R accept(final ASTVisitor<R> visitor) {
+        throw new UnsupportedOperationException("Cannot visit partial AST Node: " + getClass());
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CharClassTest {
+
+    @Test
+    public void nameStartChar() {
+        assertSameAsRanges(CharClass.NAME_START_CHAR,
+                'A', 'Z', '_', '_', 'a', 'z', 0xC0, 0xD6, 0xD8, 0xF6, 0xF8, 0x2FF, 0x370, 0x37D, 0x37F, 0x1FFF,
+                0x200C, 0x200D, 0x2070, 0x218F, 0x2C00, 0x2FEF, 0x3001, 0xD7FF, 0xF900, 0xFDCF, 0xFDF0, 0xFFFD);
+    }
+
+    @Test
+    public void nameChar() {
+        assertSameAsRanges(CharClass.NAME_CHAR,
+                'A', 'Z', '_', '_', 'a', 'z', 0xC0, 0xD6, 0xD8, 0xF6, 0xF8, 0x2FF, 0x370, 0x37D, 0x37F, 0x1FFF,
+                0x200C, 0x200D, 0x2070, 0x218F, 0x2C00, 0x2FEF, 0x3001, 0xD7FF, 0xF900, 0xFDCF, 0xFDF0, 0xFFFD,
+                '-', '-', '.', '.', '0', '9', 0xB7, 0xB7, 0x300, 0x36F, 0x203F, 0x2040);
+    }
+
+    @Test
+    public void xmlChar() {
+        assertSameAsRanges(CharClass.CHAR, 0x9, 0x9, 0xA, 0xA, 0xD, 0xD, 0x20, 0xD7FF, 0xE000, 0xFFFD);
+    }
+
+    @Test
+    public void xmlS() {
+        assertSameAsRanges(CharClass.S, 0x20, 0x20, 0x9, 0x9, 0xD, 0xD, 0xA, 0xA);
+    }
+
+    private static void assertSameAsRanges(final CharClass charClass, final int... ranges) {
+        for(int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            boolean expected = false;
+            for(int i = 0; i < ranges.length; i += 2) {
+                if(c >= ranges[i] && c <= ranges[i + 1]) {
+                    expected = true;
+                    break;
+                }
+            }
+            assertEquals("U+" + Integer.toHexString(c), expected, charClass.contains((char)c));
+        }
+    }
+}
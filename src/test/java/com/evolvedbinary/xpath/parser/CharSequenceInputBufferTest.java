@@ -0,0 +1,68 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.junit.Test;
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+
+import static org.junit.Assert.*;
+
+public class CharSequenceInputBufferTest {
+
+    @Test
+    public void readsFromOffset() {
+        final InputBuffer buffer = new CharSequenceInputBuffer(new StringBuilder("{a/b"), 1);
+        assertEquals('a', buffer.charAt(0));
+        assertEquals('b', buffer.charAt(2));
+        assertEquals(Chars.EOI, buffer.charAt(3));
+        assertEquals(Chars.EOI, buffer.charAt(-1));
+        assertEquals("a/b", buffer.extract(0, 10));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void offsetOutOfBounds() {
+        new CharSequenceInputBuffer("{a/b", 5);
+    }
+
+    @Test
+    public void sameAsDefaultInputBuffer() {
+        final String input = "a\n(: b :)\r\n\nc/d";
+        final InputBuffer expected = new DefaultInputBuffer(input.toCharArray());
+        final InputBuffer actual = new CharSequenceInputBuffer("x\ny" + input, 3);
+
+        assertEquals(expected.getLineCount(), actual.getLineCount());
+        for(int line = 1; line <= expected.getLineCount(); line++) {
+            assertEquals(expected.extractLine(line), actual.extractLine(line));
+        }
+
+        for(int i = 0; i <= input.length(); i++) {
+            assertEquals(expected.charAt(i), actual.charAt(i));
+            assertEquals(expected.getPosition(i), actual.getPosition(i));
+            assertEquals(expected.test(i, "c/".toCharArray()), actual.test(i, "c/".toCharArray()));
+            for(int j = i; j <= input.length() + 1; j++) {
+                assertEquals(expected.extract(i, j), actual.extract(i, j));
+            }
+            assertEquals(expected.extract(new IndexRange(i, input.length())), actual.extract(new IndexRange(i, input.length())));
+        }
+    }
+}
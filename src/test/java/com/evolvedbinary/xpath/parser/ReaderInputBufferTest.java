@@ -0,0 +1,77 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.junit.Test;
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.Chars;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class ReaderInputBufferTest {
+
+    @Test
+    public void slidesWindow() {
+        final String input = "0123456789abcdef";
+        final ReaderInputBuffer buffer = new ReaderInputBuffer(new StringReader(input), 4);
+        for(int i = 0; i < input.length(); i++) {
+            assertEquals(input.charAt(i), buffer.charAt(i));
+            if(i >= 2) {
+                // the most recent half of the window is kept
+                assertEquals(input.charAt(i - 1), buffer.charAt(i - 1));
+            }
+        }
+        assertEquals(Chars.EOI, buffer.charAt(input.length()));
+        assertEquals(Chars.EOI, buffer.charAt(input.length() + 1));
+        assertEquals(input.length(), buffer.getFurthestIndex());
+        assertEquals("ef", buffer.extract(14, 20));
+
+        try {
+            buffer.charAt(2);
+            fail("Expected WindowExceededException");
+        } catch(final ReaderInputBuffer.WindowExceededException e) {
+            assertTrue(e.getMessage().contains("index 2"));
+        }
+    }
+
+    @Test
+    public void sameAsDefaultInputBuffer() {
+        final String input = "a\n(: b :)\r\n\nc/d";
+        final InputBuffer expected = new DefaultInputBuffer(input.toCharArray());
+        final InputBuffer actual = new ReaderInputBuffer(new StringReader(input));
+
+        for(int i = 0; i <= input.length(); i++) {
+            assertEquals(expected.charAt(i), actual.charAt(i));
+            assertEquals(expected.getPosition(i), actual.getPosition(i));
+            assertEquals(expected.test(i, "c/".toCharArray()), actual.test(i, "c/".toCharArray()));
+            for(int j = i; j <= input.length() + 1; j++) {
+                assertEquals(expected.extract(i, j), actual.extract(i, j));
+            }
+        }
+
+        assertEquals(expected.getLineCount(), actual.getLineCount());
+        for(int line = 1; line <= expected.getLineCount(); line++) {
+            assertEquals(expected.extractLine(line), actual.extractLine(line));
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RecursiveDescentXPathParserTest {
+
+    private final static XPathParserPool PARBOILED = new XPathParserPool(false);
+    private final static RecursiveDescentXPathParser RECURSIVE_DESCENT = new RecursiveDescentXPathParser();
+
+    private final static String[] NAMES = {"a", "b", "xs:int", "fn:root", "child", "div", "or", "text", "element", "\u00E9-1.x"};
+    private final static String[] SEPARATORS = {" ", " ", " ", "  ", "\n", "\t", "(: c :)", "(: a (: b :) c :)"};
+
+    @Test
+    public void parseSimple() throws XPathParseException {
+        final Expr expected = new Expr(
+                new OrExpr(
+                        new ValueExpr(new PathExpr(true, new AxisStep(new Step(Axis.CHILD, new NameTest(new QNameW("a"))), PredicateList.EMPTY))),
+                        new ValueExpr(new PathExpr(true, new FilterExpr(new IntegerLiteral("1"), PredicateList.EMPTY)))
+                )
+        );
+        assertEquals(expected, RECURSIVE_DESCENT.parseExpr("a or 1"));
+    }
+
+    @Test
+    public void parseSameAsParboiled() {
+        final String[] xpaths = {
+                "/",
+                "//a/b//c[@d = 'e'][1]/..",
+                "a/(b)",
+                "a//(b/(c))/d",
+                "a/(b, c)",
+                "a/(if (b) then c else d, e)",
+                "a/(for $i in b return c, d)",
+                "a/f(b/(c))[(d)]",
+                "child::text() | self::node()",
+                "1.5e3 + .5E-2 + 1. + 3 + 1.e2",
+                "\"a\"\"b\" || 'c''d'",
+                "a (: c :) + b",
+                "a orb",
+                "some $x in a, $y in b satisfies $x eq $y",
+                "every $x in (1 to 10) satisfies $x castable as xs:int?",
+                "$a instance of element(*, xs:int?)+ and . treat as empty-sequence()",
+                "document-node(schema-element(a)) , processing-instruction(\"x\")",
+                "-+-a cast as xs:int",
+                "a/*:b/c:*/* idiv 2 mod 3 div 4 * 5",
+                "a intersect b except c union d",
+                "a << b, a >> b, a is b, a != b, a <= b"
+        };
+        for(final String xpath : xpaths) {
+            assertSameAst(xpath);
+        }
+    }
+
+    @Test
+    public void parseErrors() {
+        final String[] xpaths = {"", "a or", "..", "a/* ", "(: c :) 1", "a[1", "'a", "1 + ", "f(", "()", "a/()", "1e99999999999"};
+        for(final String xpath : xpaths) {
+            assertSameAst(xpath);
+            try {
+                RECURSIVE_DESCENT.parseExpr(xpath);
+                fail("Expected XPathParseException for: " + xpath);
+            } catch(final XPathParseException e) {
+                assertTrue(e.getIndex() >= 0 && e.getIndex() <= xpath.length());
+            }
+        }
+    }
+
+    @Test
+    public void parseErrorIndex() {
+        try {
+            RECURSIVE_DESCENT.parseExpr("a or");
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertEquals(4, e.getIndex());
+        }
+    }
+
+    @Test
+    public void parseCharacters() throws XPathParseException {
+        final String xpath = "//a/b//c[@d = 'e'][1] or 1.5e3";
+        final Expr expected = RECURSIVE_DESCENT.parseExpr(xpath);
+        assertEquals(expected, RECURSIVE_DESCENT.parseExpr(new StringBuilder(xpath)));
+
+        final char[] chars = ("(" + xpath + ")").toCharArray();
+        assertEquals(expected, RECURSIVE_DESCENT.parseExpr(chars, 1, xpath.length()));
+        try {
+            RECURSIVE_DESCENT.parseExpr(chars, 0, xpath.length());
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertEquals(xpath.length(), e.getIndex());
+        }
+    }
+
+    @Test
+    public void parsePrefix() throws XPathParseException {
+        final String host = "<a href=\"{b/c[1] }\" title=\"{$d, 'e}'}\">";
+
+        final XPathPrefixParseResult first = RECURSIVE_DESCENT.parsePrefix(host, 10);
+        assertEquals(RECURSIVE_DESCENT.parseExpr("b/c[1]"), first.getExpr());
+        assertEquals(17, first.getEndIndex());
+        assertEquals('}', host.charAt(first.getEndIndex()));
+
+        final XPathPrefixParseResult second = RECURSIVE_DESCENT.parsePrefix(host, 28);
+        assertEquals(RECURSIVE_DESCENT.parseExpr("$d, 'e}'"), second.getExpr());
+        assertEquals(36, second.getEndIndex());
+
+        try {
+            RECURSIVE_DESCENT.parsePrefix(host, 17);
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertEquals(17, e.getIndex());
+        }
+    }
+
+    @Test
+    public void parsePrefixSameAsParboiled() {
+        final Random random = new Random(20160211);
+        final String[] suffixes = {"}", " }", "]", ";", " ", "", ")", "/", "\" title=\"{a}\""};
+        for(int i = 0; i < 500; i++) {
+            final String xpath = generateExpr(random, 3);
+            final String suffix = suffixes[random.nextInt(suffixes.length)];
+            assertSamePrefix("{" + xpath + suffix);
+            assertSamePrefix("{" + mutate(random, xpath) + suffix);
+        }
+    }
+
+    /**
+     * Asserts that both backends either fail to parse the XPath
+     * which starts at index 1, or produce equal ASTs which end
+     * at the same index.
+     *
+     * @param text The text which contains the XPath
+     */
+    private static void assertSamePrefix(final String text) {
+        XPathPrefixParseResult expected;
+        try {
+            expected = PARBOILED.parsePrefix(text, 1);
+        } catch(final XPathParseException e) {
+            expected = null;
+        }
+
+        XPathPrefixParseResult actual;
+        try {
+            actual = RECURSIVE_DESCENT.parsePrefix(text, 1);
+        } catch(final XPathParseException e) {
+            actual = null;
+        }
+
+        if(expected == null || actual == null) {
+            assertSame("Backends differ for: " + text, expected, actual);
+        } else {
+            assertEquals("Backends differ for: " + text, expected.getExpr(), actual.getExpr());
+            assertEquals("Backends differ for: " + text, expected.getEndIndex(), actual.getEndIndex());
+        }
+    }
+
+    @Test
+    public void parseGeneratedCorpus() {
+        final Random random = new Random(20160210);
+        for(int i = 0; i < 2000; i++) {
+            final String xpath = generateExpr(random, 3);
+            assertSameAst(xpath);
+            assertSameAst(mutate(random, xpath));
+        }
+    }
+
+    /**
+     * Asserts that both backends either fail to parse
+     * the XPath, or produce equal ASTs.
+     *
+     * @param xpath The XPath to parse
+     */
+    static void assertSameAst(final String xpath) {
+        Expr expected;
+        try {
+            final XPathParseResult result = PARBOILED.parse(xpath, ParseMode.FAST);
+            expected = result.isSuccess() ? result.getExpr() : null;
+        } catch(final RuntimeException e) {
+            // actions of XPathParser may fail on some invalid input
+            expected = null;
+        }
+
+        Expr actual;
+        try {
+            actual = RECURSIVE_DESCENT.parseExpr(xpath);
+        } catch(final XPathParseException e) {
+            actual = null;
+        }
+
+        assertEquals("Backends differ for: " + xpath, expected, actual);
+        if(expected != null) {
+            assertEquals("Backends differ for: " + xpath, expected.toString(), actual.toString());
+        }
+    }
+
+    static String generateExpr(final Random random, final int depth) {
+        final StringBuilder builder = new StringBuilder(generateExprSingle(random, depth));
+        while(random.nextInt(4) == 0) {
+            builder.append(',').append(separator(random)).append(generateExprSingle(random, depth));
+        }
+        return builder.toString();
+    }
+
+    private static String generateExprSingle(final Random random, final int depth) {
+        if(depth > 0) {
+            switch(random.nextInt(12)) {
+                case 0:
+                    return "for $" + name(random) + " in " + generateExprSingle(random, depth - 1) + " return " + generateExprSingle(random, depth - 1);
+                case 1:
+                    return (random.nextBoolean() ? "some" : "every") + " $" + name(random) + " in " + generateExprSingle(random, depth - 1) + " satisfies " + generateExprSingle(random, depth - 1);
+                case 2:
+                    return "if (" + generateExpr(random, depth - 1) + ") then " + generateExprSingle(random, depth - 1) + " else " + generateExprSingle(random, depth - 1);
+                default:
+                    break;
+            }
+        }
+        return generateOperand(random, depth);
+    }
+
+    private static String generateOperand(final Random random, final int depth) {
+        final String[] ops = {"or", "and", "eq", "ne", "lt", "le", "gt", "ge", "is", "<<", ">>", "<=", "!=", ">=", "<", "=", ">",
+                "to", "+", "-", "*", "idiv", "div", "mod", "union", "|", "intersect", "except"};
+        final StringBuilder builder = new StringBuilder(generateUnary(random, depth));
+        while(depth > 0 && random.nextInt(3) == 0) {
+            builder.append(separator(random)).append(ops[random.nextInt(ops.length)]).append(separator(random)).append(generateUnary(random, depth - 1));
+        }
+        switch(random.nextInt(10)) {
+            case 0:
+                builder.append(" instance of ").append(generateSequenceType(random));
+                break;
+            case 1:
+                builder.append(" treat as ").append(generateSequenceType(random));
+                break;
+            case 2:
+                builder.append(" castable as ").append(name(random)).append(random.nextBoolean() ? "?" : "");
+                break;
+            case 3:
+                builder.append(" cast as ").append(name(random)).append(random.nextBoolean() ? " ?" : "");
+                break;
+            default:
+                break;
+        }
+        return builder.toString();
+    }
+
+    private static String generateUnary(final Random random, final int depth) {
+        final String[] signs = {"", "", "", "", "-", "+", "-+", "--"};
+        return signs[random.nextInt(signs.length)] + generatePath(random, depth);
+    }
+
+    private static String generatePath(final Random random, final int depth) {
+        final String[] prefixes = {"", "", "", "/", "//", "/ "};
+        final StringBuilder builder = new StringBuilder(prefixes[random.nextInt(prefixes.length)]);
+        builder.append(generateStep(random, depth));
+        while(random.nextInt(3) == 0) {
+            builder.append(random.nextBoolean() ? "/" : "//").append(generateStep(random, depth));
+        }
+        return builder.toString();
+    }
+
+    private static String generateStep(final Random random, final int depth) {
+        final String step;
+        switch(random.nextInt(depth > 0 ? 16 : 12)) {
+            case 0:
+                step = name(random);
+                break;
+            case 1:
+                step = "@" + name(random);
+                break;
+            case 2:
+                final String[] axes = {"child", "attribute", "self", "descendant-or-self", "descendant", "following-sibling",
+                        "following", "namespace", "parent", "ancestor-or-self", "ancestor", "preceding-sibling", "preceding"};
+                step = axes[random.nextInt(axes.length)] + (random.nextBoolean() ? "::" : " :: ") + generateNodeTest(random);
+                break;
+            case 3:
+                final String[] wildcards = {"*", "a:*", "*:a"};
+                step = wildcards[random.nextInt(wildcards.length)];
+                break;
+            case 4:
+                step = "..";
+                break;
+            case 5:
+                step = ".";
+                break;
+            case 6:
+                final String[] numbers = {"1", "12", "1.5", ".5", "1.", "1e3", "1.5E-3", ".5e+2", "007"};
+                step = numbers[random.nextInt(numbers.length)];
+                break;
+            case 7:
+                final String[] strings = {"'a'", "\"b\"", "'it''s'", "\"say \"\"hi\"\"\"", "''"};
+                step = strings[random.nextInt(strings.length)];
+                break;
+            case 8:
+                step = "$" + name(random);
+                break;
+            case 9:
+                step = name(random) + "()";
+                break;
+            case 10:
+            case 11:
+                step = generateNodeTest(random);
+                break;
+            case 12:
+            case 13:
+                step = "(" + generateExpr(random, depth - 1) + ")";
+                break;
+            default:
+                final StringBuilder call = new StringBuilder(name(random)).append('(').append(generateExprSingle(random, depth - 1));
+                while(random.nextBoolean()) {
+                    call.append(", ").append(generateExprSingle(random, depth - 1));
+                }
+                step = call.append(')').toString();
+                break;
+        }
+        if(depth > 0 && random.nextInt(4) == 0) {
+            return step + "[" + generateExpr(random, depth - 1) + "]";
+        }
+        return step;
+    }
+
+    private static String generateNodeTest(final Random random) {
+        final String[] nodeTests = {"node()", "text()", "comment()", "document-node()", "document-node(element(a))",
+                "document-node(schema-element(b))", "element()", "element(*)", "element(a, xs:int)", "element(a, b?)",
+                "attribute()", "attribute(*, b)", "attribute(a)", "schema-element(a)", "schema-attribute(b)",
+                "processing-instruction()", "processing-instruction(a)", "processing-instruction('b')", "a", "*", "a:*"};
+        return nodeTests[random.nextInt(nodeTests.length)];
+    }
+
+    private static String generateSequenceType(final Random random) {
+        final String[] itemTypes = {"empty-sequence()", "item()", "xs:int", "node()", "element(a)", "text()"};
+        final String[] occurrenceIndicators = {"", "", "?", "*", "+"};
+        return itemTypes[random.nextInt(itemTypes.length)] + occurrenceIndicators[random.nextInt(occurrenceIndicators.length)];
+    }
+
+    private static String name(final Random random) {
+        return NAMES[random.nextInt(NAMES.length)];
+    }
+
+    static String separator(final Random random) {
+        return SEPARATORS[random.nextInt(SEPARATORS.length)];
+    }
+
+    /**
+     * Inserts, deletes or replaces a random character,
+     * which will usually make the XPath invalid.
+     */
+    static String mutate(final Random random, final String xpath) {
+        final String characters = " ()[]/:.,$@*'\"-+e0a";
+        final int index = random.nextInt(xpath.length() + 1);
+        final char c = characters.charAt(random.nextInt(characters.length()));
+        switch(index == xpath.length() ? 0 : random.nextInt(3)) {
+            case 0:
+                return xpath.substring(0, index) + c + xpath.substring(index);
+            case 1:
+                return xpath.substring(0, index) + xpath.substring(index + 1);
+            default:
+                return xpath.substring(0, index) + c + xpath.substring(index + 1);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class XPathBatchParserTest {
+
+    @Test
+    public void failuresAreIsolated() throws XPathParseException {
+        final XPathBatchParser batchParser = new XPathBatchParser(new XPathParserPool(false));
+        final List<Either<XPathParseException, Expr>> results = batchParser.parseAll(Arrays.asList("a/b", "a or", "()", "1 + 2"));
+
+        assertEquals(4, results.size());
+        assertEquals(new XPathParserPool(false).parseExpr("a/b"), results.get(0).right().get());
+        assertEquals(4, results.get(1).left().get().getIndex());
+        assertTrue(results.get(2).isLeft());
+        assertEquals(new XPathParserPool(false).parseExpr("1 + 2"), results.get(3).right().get());
+
+        assertTrue(batchParser.parseAll(Collections.<String>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void resultsInInputOrder() throws XPathParseException {
+        final List<String> xpaths = new ArrayList<String>();
+        for(int i = 0; i < 5000; i++) {
+            xpaths.add(i % 7 == 0 ? "a[" + i : "a[" + i + "]/b");
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final XPathBatchParser batchParser = new XPathBatchParser(new RecursiveDescentXPathParser(), pool);
+            final List<Either<XPathParseException, Expr>> results = batchParser.parseAll(xpaths.stream());
+
+            assertEquals(xpaths.size(), results.size());
+            final RecursiveDescentXPathParser parser = new RecursiveDescentXPathParser();
+            for(int i = 0; i < xpaths.size(); i++) {
+                if(i % 7 == 0) {
+                    assertTrue(results.get(i).isLeft());
+                } else {
+                    assertEquals(parser.parseExpr(xpaths.get(i)), results.get(i).right().get());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parseExprSplitsTopLevelSequence() throws XPathParseException {
+        final XPathBatchParser batchParser = new XPathBatchParser(new XPathParserPool(false));
+        final String xpath = "'a, b',(: c, d :) e, f(1, 2),(: g :)(: h :) i[1, 2]/j, ((k, l), m)";
+        assertArrayEquals(new int[] {0, 6, 18, 19, 21, 28, 44, 53, 55, 66}, ExprSplitter.split(xpath.toCharArray(), 0, xpath.length()));
+        assertEquals(new XPathParserPool(false).parseExpr(xpath), batchParser.parseExpr(xpath));
+
+        // the commas separate the clauses of the for expression, so it is parsed sequentially
+        final String forExpr = "for $a in b, $c in d return ($a, $c), e";
+        assertEquals(new XPathParserPool(false).parseExpr(forExpr), batchParser.parseExpr(forExpr));
+    }
+
+    @Test
+    public void parseExprSameAsSequential() {
+        final RecursiveDescentXPathParser parser = new RecursiveDescentXPathParser();
+        final XPathBatchParser batchParser = new XPathBatchParser(parser, ForkJoinPool.commonPool());
+        final Random random = new Random(20160212);
+        for(int i = 0; i < 500; i++) {
+            final StringBuilder builder = new StringBuilder(RecursiveDescentXPathParserTest.generateExpr(random, 2));
+            for(int j = random.nextInt(20); j > 0; j--) {
+                builder.append(',').append(RecursiveDescentXPathParserTest.separator(random)).append(RecursiveDescentXPathParserTest.generateExpr(random, 2));
+            }
+            final String xpath = builder.toString();
+            assertSameAsSequential(parser, batchParser, xpath);
+            assertSameAsSequential(parser, batchParser, RecursiveDescentXPathParserTest.mutate(random, xpath));
+        }
+    }
+
+    private static void assertSameAsSequential(final XPathExpressionParser parser, final XPathBatchParser batchParser, final String xpath) {
+        Expr expected;
+        int expectedIndex = -1;
+        try {
+            expected = parser.parseExpr(xpath);
+        } catch(final XPathParseException e) {
+            expected = null;
+            expectedIndex = e.getIndex();
+        }
+
+        Expr actual;
+        int actualIndex = -1;
+        try {
+            actual = batchParser.parseExpr(xpath);
+        } catch(final XPathParseException e) {
+            actual = null;
+            actualIndex = e.getIndex();
+        }
+
+        assertEquals("Differs for: " + xpath, expected, actual);
+        assertEquals("Differs for: " + xpath, expectedIndex, actualIndex);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class XPathParseCacheTest {
+
+    @Test
+    public void hitReturnsSameAst() throws XPathParseException {
+        final XPathParseCache cache = new XPathParseCache(10);
+
+        final Expr expr = cache.parse("a/b[1]");
+        assertEquals(new XPathParserPool().parseExpr("a/b[1]"), expr);
+        assertSame(expr, cache.parse("a/b[1]"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void invalidIsNotCached() {
+        final XPathParseCache cache = new XPathParseCache(10);
+        for(int i = 0; i < 2; i++) {
+            try {
+                cache.parse("a or");
+                fail("Expected XPathParseException");
+            } catch(final XPathParseException e) {
+                // expected
+            }
+        }
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void evictsUnreferencedFirst() throws XPathParseException {
+        final XPathParseCache cache = new XPathParseCache(2);
+
+        final Expr a = cache.parse("a");
+        cache.parse("b");
+        assertSame(a, cache.parse("a"));
+
+        // "b" has not been referenced since it was added, so is evicted before "a"
+        cache.parse("c");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(a, cache.parse("a"));
+        assertEquals(2, cache.getHitCount());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void boundedUnderConcurrentAccess() throws Exception {
+        final int maximumSize = 16;
+        final XPathParseCache cache = new XPathParseCache(maximumSize);
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for(int i = 0; i < 8; i++) {
+                final int seed = i;
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws XPathParseException {
+                        for(int j = 0; j < 200; j++) {
+                            final int n = (seed * 7 + j) % 40;
+                            assertEquals(cache.parse("a" + n), cache.parse("a" + n));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= maximumSize);
+        assertEquals(8 * 200 * 2, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+}
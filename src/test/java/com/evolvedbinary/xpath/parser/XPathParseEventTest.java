@@ -0,0 +1,123 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class XPathParseEventTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void disabledByDefault() throws IOException, XPathParseException {
+        final List<RecordedEvent> events;
+        try(final Recording recording = new Recording()) {
+            recording.start();
+            new RecursiveDescentXPathParser().parseExpr("a/b");
+            new XPathParseCache(10).parse("a/b");
+            recording.stop();
+            events = events(recording);
+        }
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void parseEvents() throws IOException, XPathParseException {
+        final List<RecordedEvent> events;
+        try(final Recording recording = new Recording()) {
+            recording.enable(XPathParseEvent.NAME).withoutThreshold();
+            recording.start();
+            new RecursiveDescentXPathParser().parseExpr("a/b");
+            try {
+                new XPathParserPool(false).parseExpr("a or");
+                fail("Expected XPathParseException");
+            } catch(final XPathParseException e) {
+                // expected
+            }
+            new XPathParserPool(false).parsePrefix("{a} b", 1);
+            recording.stop();
+            events = events(recording);
+        }
+
+        assertEquals(3, events.size());
+
+        final RecordedEvent valid = events.get(0);
+        assertEquals(XPathParseEvent.RECURSIVE_DESCENT, valid.getString("parser"));
+        assertEquals(3, valid.getInt("inputLength"));
+        assertEquals(new RecursiveDescentXPathParser().parseExpr("a/b").countNodes(Integer.MAX_VALUE), valid.getInt("nodeCount"));
+        assertFalse(valid.getBoolean("recoveryUsed"));
+        assertEquals(0, valid.getInt("errorCount"));
+
+        final RecordedEvent invalid = events.get(1);
+        assertEquals(XPathParseEvent.PARBOILED, invalid.getString("parser"));
+        assertEquals(4, invalid.getInt("inputLength"));
+        assertEquals(0, invalid.getInt("nodeCount"));
+        assertTrue(invalid.getBoolean("recoveryUsed"));
+        assertTrue(invalid.getInt("errorCount") > 0);
+
+        final RecordedEvent prefix = events.get(2);
+        assertEquals(1, prefix.getInt("inputLength"));
+        assertEquals(0, prefix.getInt("errorCount"));
+    }
+
+    @Test
+    public void cacheEvents() throws IOException, XPathParseException {
+        final List<RecordedEvent> events;
+        try(final Recording recording = new Recording()) {
+            recording.enable(XPathParseCacheEvent.NAME).withoutThreshold();
+            recording.start();
+            final XPathParseCache cache = new XPathParseCache(10);
+            cache.parse("a/b");
+            cache.parse("a/b");
+            recording.stop();
+            events = events(recording);
+        }
+
+        assertEquals(2, events.size());
+        assertFalse(events.get(0).getBoolean("hit"));
+        assertTrue(events.get(1).getBoolean("hit"));
+        assertEquals(3, events.get(1).getInt("inputLength"));
+    }
+
+    private List<RecordedEvent> events(final Recording recording) throws IOException {
+        final Path file = temporaryFolder.newFile("recording.jfr").toPath();
+        recording.dump(file);
+        final List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+        for(final RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if(event.getEventType().getName().startsWith("com.evolvedbinary.xpath.")) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+}
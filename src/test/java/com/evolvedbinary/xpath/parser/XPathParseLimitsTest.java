@@ -0,0 +1,279 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.XPathParseLimitException.Limit;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class XPathParseLimitsTest {
+
+    // far deeper than could be parsed with the default stack size
+    private static final String DEEP = repeat("(", 100000) + "a" + repeat(")", 100000);
+
+    private static final String LONG = repeat("a, ", 10000) + "a";
+
+    @Test
+    public void maxDepth() throws XPathParseException {
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            final XPathExpressionParser parser = backend.newParser(XPathParseLimits.NONE.withMaxDepth(3));
+            assertEquals(backend.newParser().parseExpr("((a))"), parser.parseExpr("((a))"));
+            assertLimitExceeded(Limit.DEPTH, 3, parser, "(((a)))");
+            assertLimitExceeded(Limit.DEPTH, 5, parser, "a(:(:(::):):)");
+            assertLimitExceeded(Limit.DEPTH, 8, backend.newParser(XPathParseLimits.NONE.withMaxDepth(4)), "a[b[c[d[e]]]]");
+
+            assertLimitExceeded(Limit.DEPTH, 64, backend.newParser(XPathParseLimits.NONE.withMaxDepth(64)), DEEP);
+        }
+    }
+
+    @Test
+    public void defaultMaxDepth() {
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            final XPathExpressionParser parser = backend.newParser(XPathParseLimits.DEFAULT);
+            assertLimitExceeded(Limit.DEPTH, 32, parser, DEEP);
+            assertLimitExceeded(Limit.DEPTH, 96, parser, repeat("a/(", 1000) + "a" + repeat(")", 1000));
+            assertLimitExceeded(Limit.DEPTH, 80, parser, repeat("a[b/(", 1000) + "a" + repeat(")]", 1000));
+        }
+    }
+
+    @Test
+    public void stackExhausted() throws Throwable {
+        runWithSmallStack(new Runnable() {
+            @Override
+            public void run() {
+                for(final XPathParserBackend backend : XPathParserBackend.values()) {
+                    assertLimitExceeded(Limit.DEPTH, -2, backend.newParser(), DEEP);
+                    assertLimitExceeded(Limit.DEPTH, -2, backend.newParser(XPathParseLimits.NONE.withMaxDepth(100000)), DEEP);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void stackExhaustedWhilstRecovering() throws Throwable {
+        runWithSmallStack(new Runnable() {
+            @Override
+            public void run() {
+                final XPathParserPool pool = new XPathParserPool(false, null, XPathParseLimits.NONE.withMaxDepth(100000));
+                assertLimitExceeded(Limit.DEPTH, -1, pool, "a) " + DEEP);
+            }
+        });
+    }
+
+    /**
+     * Runs on a thread with a small stack, which is
+     * exhausted far more quickly than the default.
+     */
+    private static void runWithSmallStack(final Runnable runnable) throws Throwable {
+        final Throwable[] thrown = new Throwable[1];
+        final Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } catch(final Throwable t) {
+                    thrown[0] = t;
+                }
+            }
+        }, "small-stack", 256 * 1024);
+        thread.start();
+        thread.join();
+        if(thrown[0] != null) {
+            throw thrown[0];
+        }
+    }
+
+    @Test
+    public void maxLength() throws XPathParseException {
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            final XPathExpressionParser parser = backend.newParser(XPathParseLimits.NONE.withMaxLength(5));
+            assertEquals(backend.newParser().parseExpr("a/b/c"), parser.parseExpr("a/b/c"));
+            assertLimitExceeded(Limit.LENGTH, 5, parser, "a/b/c/d");
+        }
+    }
+
+    @Test
+    public void maxLengthOfReader() throws XPathParseException, IOException {
+        final XPathParserPool pool = new XPathParserPool(false, null, XPathParseLimits.NONE.withMaxLength(5));
+        assertEquals(pool.parseExpr("a/b/c"), pool.parseExpr(new StringReader("a/b/c")));
+        try {
+            pool.parseExpr(new StringReader("a/b/c/d"));
+            fail("Expected XPathParseLimitException");
+        } catch(final XPathParseLimitException e) {
+            assertEquals(Limit.LENGTH, e.getLimit());
+        }
+    }
+
+    @Test
+    public void maxNodeCount() throws XPathParseException {
+        final int count = new RecursiveDescentXPathParser().parseExpr("a/b").countNodes(Integer.MAX_VALUE);
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            assertEquals(backend.newParser().parseExpr("a/b"), backend.newParser(XPathParseLimits.NONE.withMaxNodeCount(count)).parseExpr("a/b"));
+            assertLimitExceeded(Limit.NODE_COUNT, -1, backend.newParser(XPathParseLimits.NONE.withMaxNodeCount(count - 1)), "a/b");
+        }
+    }
+
+    @Test
+    public void maxRecoveryAttempts() throws XPathParseException {
+        final XPathParserPool pool = new XPathParserPool(false, null, XPathParseLimits.NONE.withMaxRecoveryAttempts(0));
+        assertEquals(new XPathParserPool(false).parseExpr("a/b"), pool.parseExpr("a/b"));
+        try {
+            new XPathParserPool(false).parseExpr("a or");
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertFalse(e instanceof XPathParseLimitException);
+        }
+        assertLimitExceeded(Limit.RECOVERY_ATTEMPTS, 4, pool, "a or");
+    }
+
+    @Test
+    public void timeout() {
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            assertLimitExceeded(Limit.TIME, -2, backend.newParser(XPathParseLimits.NONE.withTimeout(0, TimeUnit.SECONDS)), LONG);
+        }
+    }
+
+    @Test
+    public void cancelled() {
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            final XPathExpressionParser parser = backend.newParser(XPathParseLimits.NONE.withTimeout(1, TimeUnit.HOURS));
+            Thread.currentThread().interrupt();
+            try {
+                assertLimitExceeded(Limit.CANCELLED, -2, parser, LONG);
+            } finally {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    @Test
+    public void parsePrefix() throws XPathParseException {
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            final XPathExpressionParser parser = backend.newParser(XPathParseLimits.NONE.withMaxDepth(2));
+            final XPathPrefixParseResult result = parser.parsePrefix("{(a)} {((a))}", 1);
+            assertEquals(4, result.getEndIndex());
+            try {
+                parser.parsePrefix("{(a)} {((a))}", 7);
+                fail("Expected XPathParseLimitException");
+            } catch(final XPathParseLimitException e) {
+                assertEquals(Limit.DEPTH, e.getLimit());
+                assertEquals(9, e.getIndex());
+            }
+        }
+    }
+
+    @Test
+    public void parsePrefixErrorWithinLimits() {
+        for(final XPathParserBackend backend : XPathParserBackend.values()) {
+            final int index = prefixErrorIndex(backend.newParser(), "{(a +)}", 1);
+            assertEquals(index, prefixErrorIndex(backend.newParser(XPathParseLimits.NONE.withMaxDepth(2).withTimeout(1, TimeUnit.HOURS)), "{(a +)}", 1));
+        }
+    }
+
+    private static int prefixErrorIndex(final XPathExpressionParser parser, final String input, final int offset) {
+        try {
+            parser.parsePrefix(input, offset);
+            fail("Expected XPathParseException");
+        } catch(final XPathParseLimitException e) {
+            fail("Expected XPathParseException, but: " + e.getMessage());
+        } catch(final XPathParseException e) {
+            return e.getIndex();
+        }
+        return -1;
+    }
+
+    @Test
+    public void sameAsUnlimited() {
+        final XPathParseLimits limits = XPathParseLimits.NONE.withMaxLength(100000).withMaxDepth(1000)
+                .withMaxNodeCount(100000).withMaxRecoveryAttempts(1000).withTimeout(1, TimeUnit.HOURS);
+        final XPathParserBackend[] backends = XPathParserBackend.values();
+        final XPathExpressionParser[] unlimited = new XPathExpressionParser[backends.length];
+        final XPathExpressionParser[] limited = new XPathExpressionParser[backends.length];
+        for(int i = 0; i < backends.length; i++) {
+            unlimited[i] = backends[i].newParser();
+            limited[i] = backends[i].newParser(limits);
+        }
+
+        final Random random = new Random(22);
+        for(int i = 0; i < 60; i++) {
+            final String xpath = RecursiveDescentXPathParserTest.generateExpr(random, 3);
+            final String mutated = RecursiveDescentXPathParserTest.mutate(random, xpath);
+            for(int j = 0; j < backends.length; j++) {
+                assertSameAsUnlimited(unlimited[j], limited[j], xpath);
+                assertSameAsUnlimited(unlimited[j], limited[j], mutated);
+            }
+        }
+    }
+
+    private static void assertSameAsUnlimited(final XPathExpressionParser unlimited, final XPathExpressionParser limited, final String xpath) {
+        Object expected;
+        try {
+            expected = unlimited.parseExpr(xpath);
+        } catch(final XPathParseException e) {
+            expected = e.getIndex();
+        } catch(final RuntimeException e) {
+            expected = e.getClass();
+        }
+
+        Object actual;
+        try {
+            actual = limited.parseExpr(xpath);
+        } catch(final XPathParseException e) {
+            actual = e.getIndex();
+        } catch(final RuntimeException e) {
+            actual = e.getClass();
+        }
+
+        assertEquals(xpath, expected, actual);
+    }
+
+    /**
+     * @param index The expected index of the exception,
+     *     or -2 if it may be any index
+     */
+    private static void assertLimitExceeded(final Limit limit, final int index, final XPathExpressionParser parser, final String xpath) {
+        try {
+            final Expr expr = parser.parseExpr(xpath);
+            fail("Expected XPathParseLimitException, but parsed: " + expr);
+        } catch(final XPathParseLimitException e) {
+            assertEquals(limit, e.getLimit());
+            if(index != -2) {
+                assertEquals(index, e.getIndex());
+            }
+        } catch(final XPathParseException e) {
+            fail("Expected XPathParseLimitException, but: " + e.getMessage());
+        }
+    }
+
+    private static String repeat(final String s, final int count) {
+        final StringBuilder builder = new StringBuilder(s.length() * count);
+        for(int i = 0; i < count; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.j8fu.Either;
+import com.evolvedbinary.xpath.parser.XPathParseProfile.RuleProfile;
+import com.evolvedbinary.xpath.parser.ast.Expr;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class XPathParseProfilerTest {
+
+    @Test
+    public void profile() throws XPathParseException {
+        final XPathParseProfiler profiler = new XPathParseProfiler();
+        assertEquals(new XPathParserPool(false).parseExpr("a/b"), profiler.parseExpr("a/b"));
+        try {
+            profiler.parseExpr("a or");
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertEquals(4, e.getIndex());
+        }
+
+        final XPathParseProfile profile = profiler.getProfile();
+        assertEquals(2, profile.getRuns());
+
+        final RuleProfile xpath = getRule(profile, "XPath");
+        assertEquals(2, xpath.getInvocations());
+        assertEquals(xpath.getInvocations(), xpath.getMatches() + xpath.getMismatches());
+
+        // whitespace is tried again wherever an alternative backtracks over it
+        final RuleProfile ws = getRule(profile, "WS");
+        assertTrue(ws.getReinvocations() > 0);
+        assertEquals(ws.getReinvocations(), ws.getRematches() + ws.getRemismatches());
+
+        final List<RuleProfile> rules = profile.getRules();
+        for(int i = 1; i < rules.size(); i++) {
+            assertTrue(rules.get(i - 1).getTime(TimeUnit.NANOSECONDS) >= rules.get(i).getTime(TimeUnit.NANOSECONDS));
+        }
+        assertTrue(profile.print(10).contains(rules.get(0).getRule()));
+    }
+
+    @Test
+    public void aggregatesAcrossThreads() throws XPathParseException {
+        final List<String> xpaths = new ArrayList<String>();
+        for(int i = 0; i < 1000; i++) {
+            xpaths.add("a[" + i + "]/b");
+        }
+
+        final XPathParseProfiler profiler = new XPathParseProfiler();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final List<Either<XPathParseException, Expr>> results = new XPathBatchParser(profiler, pool).parseAll(xpaths);
+            assertEquals(new XPathParserPool(false).parseExpr(xpaths.get(999)), results.get(999).right().get());
+        } finally {
+            pool.shutdown();
+        }
+
+        final XPathParseProfile profile = profiler.getProfile();
+        assertEquals(1000, profile.getRuns());
+        assertEquals(1000, getRule(profile, "XPath").getMatches());
+        assertEquals(1000, getRule(profile, "Predicate").getMatches());
+    }
+
+    private static RuleProfile getRule(final XPathParseProfile profile, final String label) {
+        for(final RuleProfile rule : profile.getRules()) {
+            if(rule.getRule().equals(label)) {
+                return rule;
+            }
+        }
+        throw new AssertionError("No profile of rule: " + label);
+    }
+}
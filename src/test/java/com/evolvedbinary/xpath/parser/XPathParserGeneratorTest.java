@@ -0,0 +1,120 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.parboiled.Parboiled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+
+import static org.junit.Assert.*;
+
+public class XPathParserGeneratorTest {
+
+    private static final String PARSER_CLASS_NAME = XPathParser.class.getName() + "$$parboiled";
+    private static final String PACKAGE_PATH = XPathParser.class.getPackage().getName().replace('.', '/') + '/';
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void parserClassIsGeneratedAheadOfTime() {
+        assertNotNull("The build should have generated " + PARSER_CLASS_NAME,
+                XPathParser.class.getClassLoader().getResource(PARSER_CLASS_NAME.replace('.', '/') + ".class"));
+    }
+
+    @Test
+    public void createParserLoadsGeneratedClass() throws IOException {
+        final URL generated = XPathParser.class.getClassLoader().getResource(PARSER_CLASS_NAME.replace('.', '/') + ".class");
+        assertNotNull(generated);
+
+        // a class which Parboiled generates at runtime is defined without a code source
+        final CodeSource codeSource = Parboiled.createParser(XPathParser.class, Boolean.TRUE).getClass().getProtectionDomain().getCodeSource();
+        assertNotNull("The parser class was generated at runtime", codeSource);
+        try(final URLClassLoader classLoader = new URLClassLoader(new URL[] { codeSource.getLocation() }, null)) {
+            assertEquals(generated, classLoader.findResource(PARSER_CLASS_NAME.replace('.', '/') + ".class"));
+        }
+    }
+
+    @Test
+    public void generatedClassesAreNotStale() throws IOException {
+        assertFalse(XPathParserGenerator.isStale(XPathParser.class.getClassLoader()));
+    }
+
+    @Test
+    public void staleWhenDigestDiffers() throws IOException {
+        final Path classes = copyParserClasses();
+        Files.write(classes.resolve(PACKAGE_PATH + XPathParserGenerator.DIGEST_FILE_NAME),
+                "0000".getBytes(StandardCharsets.US_ASCII));
+        try(final URLClassLoader classLoader = classLoader(classes)) {
+            assertTrue(XPathParserGenerator.isStale(classLoader));
+        }
+    }
+
+    @Test
+    public void staleWhenDigestIsAbsent() throws IOException {
+        final Path classes = copyParserClasses();
+        Files.delete(classes.resolve(PACKAGE_PATH + XPathParserGenerator.DIGEST_FILE_NAME));
+        try(final URLClassLoader classLoader = classLoader(classes)) {
+            assertTrue(XPathParserGenerator.isStale(classLoader));
+        }
+    }
+
+    @Test
+    public void notStaleWhenNotGenerated() throws IOException {
+        final Path classes = copyParserClasses();
+        Files.delete(classes.resolve(PARSER_CLASS_NAME.replace('.', '/') + ".class"));
+        Files.delete(classes.resolve(PACKAGE_PATH + XPathParserGenerator.DIGEST_FILE_NAME));
+        try(final URLClassLoader classLoader = classLoader(classes)) {
+            assertFalse(XPathParserGenerator.isStale(classLoader));
+        }
+    }
+
+    /**
+     * Copies the parser class, the extended parser class and its digest
+     * from the class path into a new directory.
+     */
+    private Path copyParserClasses() throws IOException {
+        final Path classes = temporaryFolder.newFolder().toPath();
+        Files.createDirectories(classes.resolve(PACKAGE_PATH));
+        for(final String name : new String[] { XPathParser.class.getSimpleName() + ".class",
+                PARSER_CLASS_NAME.substring(PARSER_CLASS_NAME.lastIndexOf('.') + 1) + ".class",
+                XPathParserGenerator.DIGEST_FILE_NAME }) {
+            try(final InputStream is = XPathParser.class.getClassLoader().getResourceAsStream(PACKAGE_PATH + name)) {
+                assertNotNull(name, is);
+                Files.copy(is, classes.resolve(PACKAGE_PATH + name));
+            }
+        }
+        return classes;
+    }
+
+    private static URLClassLoader classLoader(final Path classes) throws IOException {
+        return new URLClassLoader(new URL[] { classes.toUri().toURL() }, null);
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import com.evolvedbinary.xpath.parser.ast.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.parboiled.support.ParsingResult;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class XPathParserPoolTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final static Expr A_OR_B = new Expr(
+            new OrExpr(
+                    new ValueExpr(new PathExpr(true, new AxisStep(new Step(Axis.CHILD, new NameTest(new QNameW("a"))), PredicateList.EMPTY))),
+                    new ValueExpr(new PathExpr(true, new AxisStep(new Step(Axis.CHILD, new NameTest(new QNameW("b"))), PredicateList.EMPTY)))
+            )
+    );
+
+    @Test
+    public void parserIsReusedOnSameThread() {
+        final XPathParserPool pool = new XPathParserPool();
+        final XPathParser parser = pool.getParser();
+
+        assertEquals(A_OR_B, parse(pool, "a or b"));
+        assertEquals(A_OR_B, parse(pool, "a or b"));
+        assertSame(parser, pool.getParser());
+    }
+
+    @Test
+    public void parseConcurrently() throws Exception {
+        final XPathParserPool pool = new XPathParserPool();
+        final int threads = 4;
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<XPathParser>> futures = new ArrayList<Future<XPathParser>>();
+            for(int i = 0; i < threads * 4; i++) {
+                futures.add(executorService.submit(new Callable<XPathParser>() {
+                    @Override
+                    public XPathParser call() {
+                        for(int j = 0; j < 25; j++) {
+                            assertEquals(A_OR_B, parse(pool, "a or b"));
+                        }
+                        return pool.getParser();
+                    }
+                }));
+            }
+
+            final List<XPathParser> parsers = new ArrayList<XPathParser>();
+            for(final Future<XPathParser> future : futures) {
+                final XPathParser parser = future.get();
+                if(!parsers.contains(parser)) {
+                    parsers.add(parser);
+                }
+            }
+            assertTrue(parsers.size() <= threads);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fastModeDoesNotRecover() {
+        final XPathParserPool pool = new XPathParserPool();
+
+        final XPathParseResult valid = pool.parse("a or b", ParseMode.FAST);
+        assertTrue(valid.isSuccess());
+        assertFalse(valid.isRecoveryUsed());
+        assertEquals(A_OR_B, valid.getExpr());
+
+        final XPathParseResult invalid = pool.parse("a or", ParseMode.FAST);
+        assertFalse(invalid.isSuccess());
+        assertFalse(invalid.isRecoveryUsed());
+        assertNull(invalid.getExpr());
+    }
+
+    @Test
+    public void fastThenRecoveringModeRecoversOnlyOnFailure() {
+        final XPathParserPool pool = new XPathParserPool();
+
+        final XPathParseResult valid = pool.parse("a or b", ParseMode.FAST_THEN_RECOVERING);
+        assertTrue(valid.isSuccess());
+        assertFalse(valid.isRecoveryUsed());
+        assertEquals(A_OR_B, valid.getExpr());
+
+        final XPathParseResult invalid = pool.parse("a or", ParseMode.FAST_THEN_RECOVERING);
+        assertFalse(invalid.isSuccess());
+        assertTrue(invalid.isRecoveryUsed());
+        assertFalse(invalid.getParsingResult().parseErrors.isEmpty());
+    }
+
+    @Test
+    public void recoveringMode() {
+        final XPathParseResult valid = new XPathParserPool().parse("a or b", ParseMode.RECOVERING);
+        assertTrue(valid.isSuccess());
+        assertTrue(valid.isRecoveryUsed());
+        assertEquals(A_OR_B, valid.getExpr());
+    }
+
+    @Test
+    public void astOnly() throws XPathParseException {
+        final XPathParserPool pool = new XPathParserPool(false);
+
+        final ParsingResult<ASTNode> result = pool.parse("a or b");
+        assertFalse(result.hasErrors());
+        assertNull(result.parseTreeRoot);
+        assertEquals(A_OR_B, result.resultValue);
+
+        assertEquals(A_OR_B, pool.parseExpr("a or b"));
+    }
+
+    @Test
+    public void parseExprInvalid() {
+        for(final XPathParserPool pool : new XPathParserPool[] { new XPathParserPool(), new XPathParserPool(false) }) {
+            try {
+                pool.parseExpr("a or");
+                fail("Expected XPathParseException");
+            } catch(final XPathParseException e) {
+                assertEquals(4, e.getIndex());
+                assertFalse(e.getErrors().isEmpty());
+            }
+        }
+    }
+
+    /**
+     * The actions of the parser fail on these, either as they
+     * are first matched, or once recovery has repaired them.
+     */
+    @Test
+    public void parseExprActionFails() {
+        final XPathParserPool pool = new XPathParserPool(false);
+        final XPathParserPool limitedPool = new XPathParserPool(false, null, XPathParseLimits.NONE.withMaxDepth(100));
+        final String[] xpaths = { "1e", "()", "(:x:)1", "(:a(:b:)c:)d", "* " };
+        final int[] indexes = { 2, 0, 1, 1, 2 };
+        for(int i = 0; i < xpaths.length; i++) {
+            assertEquals(xpaths[i], indexes[i], parseExprErrorIndex(pool, xpaths[i]));
+            assertEquals(xpaths[i], indexes[i], parseExprErrorIndex(limitedPool, xpaths[i]));
+            try {
+                pool.parseExprWithStats(xpaths[i]).getExpr();
+                fail("Expected XPathParseException");
+            } catch(final XPathParseException e) {
+                assertEquals(xpaths[i], indexes[i], e.getIndex());
+            }
+        }
+    }
+
+    private static int parseExprErrorIndex(final XPathParserPool pool, final String xpath) {
+        try {
+            pool.parseExpr(xpath);
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            return e.getIndex();
+        }
+        return -1;
+    }
+
+    @Test
+    public void parseCharacters() throws XPathParseException {
+        final XPathParserPool pool = new XPathParserPool(false);
+        final char[] chars = "(a or b) and (a or".toCharArray();
+
+        assertEquals(A_OR_B, pool.parseExpr(new StringBuilder("a or b")));
+        assertEquals(A_OR_B, pool.parseExpr(chars, 1, 6));
+        assertEquals(A_OR_B, pool.parse(chars, 1, 6, ParseMode.FAST).getExpr());
+        assertEquals(A_OR_B, pool.parse(chars, 1, 6, ParseMode.RECOVERING).getExpr());
+
+        final CharBuffer direct = ByteBuffer.allocateDirect(32).asCharBuffer();
+        direct.put("xx a or b").flip().position(3);
+        assertEquals(A_OR_B, pool.parseExpr(direct));
+        assertEquals(3, direct.position());
+
+        try {
+            pool.parseExpr(chars, 14, 4);
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertEquals(4, e.getIndex());
+            assertFalse(e.getErrors().isEmpty());
+        }
+    }
+
+    @Test
+    public void parsePrefix() throws XPathParseException {
+        final XPathParserPool pool = new XPathParserPool();
+        final String host = "if={a or b }, then={a or}";
+
+        final XPathPrefixParseResult result = pool.parsePrefix(host, 4);
+        assertEquals(A_OR_B, result.getExpr());
+        assertEquals(11, result.getEndIndex());
+
+        assertEquals(new XPathParserPool(false).parsePrefix(host, 4).getEndIndex(), result.getEndIndex());
+
+        // the longest XPath is "a", as "a or" is incomplete
+        assertEquals(22, pool.parsePrefix(host, 20).getEndIndex());
+
+        try {
+            pool.parsePrefix(host, 3);
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertEquals(3, e.getIndex());
+            assertFalse(e.getErrors().isEmpty());
+        }
+    }
+
+    @Test
+    public void parseReader() throws IOException, XPathParseException {
+        final XPathParserPool pool = new XPathParserPool(false);
+        final StringBuilder xpath = new StringBuilder("a or b");
+        for(int i = 0; i < 1000; i++) {
+            xpath.append(" or a or b");
+        }
+
+        assertEquals(A_OR_B, pool.parseExpr(new StringReader("a or b")));
+        assertEquals(pool.parseExpr(xpath.toString()), pool.parseExpr(new StringReader(xpath.toString()), 64));
+
+        for(final String invalid : new String[] { "a or", "a or b]", "a or b )", "" }) {
+            try {
+                pool.parseExpr(new StringReader(invalid));
+                fail("Expected XPathParseException");
+            } catch(final XPathParseException e) {
+                try {
+                    pool.parseExpr(invalid);
+                    fail("Expected XPathParseException");
+                } catch(final XPathParseException expected) {
+                    assertEquals(expected.getIndex(), e.getIndex());
+                }
+            }
+        }
+
+        try {
+            pool.parseExpr(new Reader() {
+                @Override
+                public int read(final char[] cbuf, final int off, final int len) throws IOException {
+                    throw new IOException("unreadable");
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+            fail("Expected IOException");
+        } catch(final IOException e) {
+            assertEquals("unreadable", e.getMessage());
+        }
+    }
+
+    @Test
+    public void parseMappedFile() throws IOException, XPathParseException {
+        final XPathParserPool pool = new XPathParserPool(false);
+        final StringBuilder xpath = new StringBuilder("'\u00E9'");
+        for(int i = 0; i < 5000; i++) {
+            // multi-byte characters which straddle the chunks that are decoded
+            xpath.append(" or '\u00E9\u4E2D'");
+        }
+
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, xpath.toString().getBytes(StandardCharsets.UTF_8));
+        try(final FileChannel channel = FileChannel.open(file)) {
+            assertEquals(pool.parseExpr(xpath.toString()), pool.parseExpr(channel, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void interned() throws XPathParseException {
+        final ASTNodeInterner interner = new ASTNodeInterner();
+        final XPathParserPool pool = new XPathParserPool(false, interner);
+
+        final Expr first = pool.parseExpr("a or b");
+        assertEquals(A_OR_B, first);
+        assertSame(first, pool.parseExpr("a or b"));
+
+        final ASTNode a = pool.parseExpr("a").getExprSingles().get(0);
+        final Expr aa = pool.parseExpr("a, a");
+        assertSame(a, aa.getExprSingles().get(0));
+        assertSame(a, aa.getExprSingles().get(1));
+
+        interner.clear();
+        assertEquals(0, interner.size());
+        assertNotSame(first, pool.parseExpr("a or b"));
+    }
+
+    @Test
+    public void internedConcurrently() throws Exception {
+        final ASTNodeInterner interner = new ASTNodeInterner();
+        final XPathParserPool pool = new XPathParserPool(false, interner);
+        final int threads = 4;
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Expr>> futures = new ArrayList<Future<Expr>>();
+            for(int i = 0; i < threads * 4; i++) {
+                futures.add(executorService.submit(new Callable<Expr>() {
+                    @Override
+                    public Expr call() throws XPathParseException {
+                        return pool.parseExpr("a or b, (a or b) + c");
+                    }
+                }));
+            }
+
+            final Expr first = futures.get(0).get();
+            for(final Future<Expr> future : futures) {
+                assertSame(first, future.get());
+            }
+            assertSame(first.getExprSingles().get(0), pool.parseExpr("a or b").getExprSingles().get(0));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void internedOnlyOnceParsed() throws XPathParseException {
+        final ASTNodeInterner interner = new ASTNodeInterner();
+        final XPathParserPool pool = new XPathParserPool(false, interner);
+
+        // neither backtracked nodes nor those of an invalid XPath are interned
+        assertFalse(pool.parse("a or f(b) or", ParseMode.FAST).isSuccess());
+        assertEquals(0, interner.size());
+        assertFalse(pool.parse("a or f(b) or", ParseMode.FAST_THEN_RECOVERING).isSuccess());
+        assertEquals(0, interner.size());
+
+        final Expr expr = pool.parse("a or b", ParseMode.FAST).getExpr();
+        assertEquals(A_OR_B, expr);
+        final int size = interner.size();
+        assertTrue(size > 0);
+        assertSame(expr, pool.parse("a or b", ParseMode.FAST).getExpr());
+        assertEquals(size, interner.size());
+    }
+
+    @Test
+    public void internedWeakly() throws Exception {
+        final ASTNodeInterner interner = new ASTNodeInterner();
+        final XPathParserPool pool = new XPathParserPool(false, interner);
+
+        // the parser of a thread may still refer to parts of the last AST that it built,
+        // and an XPath without steps is used as the axes of steps are constants
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(pool.parse("1 or 'b'", ParseMode.FAST).isSuccess());
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertTrue(interner.size() > 0);
+        for(int i = 0; i < 100 && interner.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, interner.size());
+    }
+
+    @Test
+    public void parseExprWithStats() throws XPathParseException {
+        final XPathParserPool pool = new XPathParserPool(false);
+
+        final XPathParseStatsResult valid = pool.parseExprWithStats("a or b");
+        assertTrue(valid.isSuccess());
+        assertEquals(A_OR_B, valid.getExpr());
+        final ParseStats stats = valid.getStats();
+        assertEquals(A_OR_B.countNodes(Integer.MAX_VALUE), stats.getNodeCount());
+        assertEquals(A_OR_B.depth(), stats.getAstDepth());
+        assertTrue(stats.getElapsedNanos() > 0);
+        assertTrue(stats.getAllocatedBytes() > 0);
+        assertTrue(stats.getRuleInvocations() > 0);
+        assertTrue(stats.getBacktracks() > 0);
+        assertTrue(stats.getMaxValueStackDepth() > 0);
+
+        final XPathParseStatsResult invalid = pool.parseExprWithStats("a or");
+        assertFalse(invalid.isSuccess());
+        try {
+            invalid.getExpr();
+            fail("Expected XPathParseException");
+        } catch(final XPathParseException e) {
+            assertEquals(4, e.getIndex());
+        }
+        assertEquals(0, invalid.getStats().getNodeCount());
+        assertTrue(invalid.getStats().getRuleInvocations() > 0);
+    }
+
+    private static ASTNode parse(final XPathParserPool pool, final String xpath) {
+        final ParsingResult<ASTNode> result = pool.parse(xpath);
+        assertFalse(result.hasErrors());
+        return result.parseTreeRoot.getValue();
+    }
+}
@@ -24,7 +24,10 @@ import com.evolvedbinary.xpath.parser.ast.*;
 import org.junit.Test;
 import org.parboiled.Parboiled;
 import org.parboiled.Rule;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.parserunners.ErrorLocatingParseRunner;
 import org.parboiled.parserunners.ParseRunner;
+import org.parboiled.parserunners.ProfilingParseRunner;
 import org.parboiled.parserunners.RecoveringParseRunner;
 import org.parboiled.support.Chars;
 import org.parboiled.support.ParseTreeUtils;
@@ -32,6 +35,8 @@ import org.parboiled.support.ParsingResult;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 import static org.parboiled.errors.ErrorUtils.printParseErrors;
@@ -279,6 +284,24 @@ public class XPathParserTest {
         assertEquals(new DoubleLiteral("1.23E2"), parse("1.23E2", parser.NumericLiteral()));
     }
 
+    @Test
+    public void parseNumericLiteralSingleScan() {
+        // BasicParseRunner uses NumericLiteralMatcher, whereas ErrorLocatingParseRunner, like the
+        // error reporting and recovery passes of the other runners, uses the individual literal rules
+        final Rule rule = parser.withEOI(parser.NumericLiteral());
+        final String[] literals = {"1", "007", "1.", ".5", "1.5", "00.00", "1e5", "1E+5", "1.e-5", ".5e5", "1.5E05", "00.00e-00"};
+        for(final String literal : literals) {
+            final ParsingResult<ASTNode> result = new BasicParseRunner<ASTNode>(rule).run(literal + Chars.EOI);
+            assertTrue(literal, result.matched);
+            final ParsingResult<ASTNode> located = new ErrorLocatingParseRunner<ASTNode>(rule).run(literal + Chars.EOI);
+            assertTrue(literal, located.matched);
+            assertEquals(literal, located.resultValue, result.resultValue);
+            assertSame(literal, located.resultValue.getClass(), result.resultValue.getClass());
+        }
+        assertFalse(new BasicParseRunner<ASTNode>(rule).run("." + Chars.EOI).matched);
+        assertFalse(new BasicParseRunner<ASTNode>(rule).run("1e" + Chars.EOI).matched);
+    }
+
     @Test
     public void parseVarRef() {
         assertEquals(new VarRef(new QNameW("a")), parse("$a", parser.VarRef()));
@@ -647,6 +670,28 @@ public class XPathParserTest {
         );
     }
 
+    /**
+     * Each level of nesting passes through the whole operator
+     * precedence chain, so this would take exponential time
+     * if operands were parsed more than once.
+     */
+    @Test(timeout = 10000)
+    public void parseDeeplyNestedExpr() {
+        final int depth = 25;
+        final StringBuilder xpath = new StringBuilder();
+        AbstractOperand expected = new ValueExpr(new PathExpr(true, new AxisStep(new Step(Axis.CHILD, new NameTest(new QNameW("a"))), PredicateList.EMPTY)));
+        for(int i = 0; i < depth; i++) {
+            xpath.append('(');
+            expected = new ValueExpr(new PathExpr(true, new FilterExpr(new ParenthesizedExpr(new Expr(expected)), PredicateList.EMPTY)));
+        }
+        xpath.append('a');
+        for(int i = 0; i < depth; i++) {
+            xpath.append(')');
+        }
+
+        assertEquals(new Expr(expected), parse(xpath.toString()));
+    }
+
     @Test
     public void parseParenthesizedExpr() {
         assertEquals(null, parse("()", parser.ParenthesizedExpr()));
@@ -997,11 +1042,110 @@ public class XPathParserTest {
         );
     }
 
+    @Test
+    public void astHashCode() {
+        final String xpaths[] = {
+                "for $x in (1 to 10) return $x * 2.5",
+                "some $a in //b[@c = 'd'] satisfies $a instance of element(e, f:g)?",
+                "if (a/b castable as xs:int) then -a + 1 else document-node(element(h))",
+                "a union b intersect c except processing-instruction()"
+        };
+
+        final Set<ASTNode> asts = new HashSet<ASTNode>();
+        for(final String xpath : xpaths) {
+            final ASTNode ast = parse(xpath);
+            final ASTNode other = parse(xpath);
+            assertNotSame(ast, other);
+            assertEquals(ast, other);
+            assertEquals(ast.hashCode(), other.hashCode());
+            assertTrue(asts.add(ast));
+            assertTrue(asts.contains(other));
+        }
+        assertEquals(xpaths.length, asts.size());
+
+        assertEquals(new QNameW("a").hashCode(), new QNameW("", "a").hashCode());
+        assertEquals(new DecimalLiteral("1.5"), new DoubleLiteral("1.5"));
+        assertEquals(new DecimalLiteral("1.5").hashCode(), new DoubleLiteral("1.5").hashCode());
+    }
+
+    @Test
+    public void recognizeOnly() {
+        final XPathParser recognizer = Parboiled.createParser(XPathParser.class, Boolean.FALSE);
+        final Rule rule = recognizer.withEOI(recognizer.XPath());
+
+        final String valid[] = {
+                "/",
+                "//a/b[@c]/text()",
+                "for $x in (1 to 10) return $x * 2.5 - 1",
+                "some $a in //b[@c = 'd'] satisfies $a instance of element(e, f:g)?",
+                "if (a/b castable as xs:int) then -a + 1 else . treat as document-node(schema-element(h))",
+                "a union b intersect c except processing-instruction('p') | a/text() | comment()",
+                "fn:count(attribute::x cast as xs:integer?) idiv 2 mod 3 eq 0 and a is b or c << d",
+                "1 (: comment :) + 1.5e3 + .5 + 1. , attribute(a, b), element(*, c?)"
+        };
+        for(final String xpath : valid) {
+            final ParsingResult<ASTNode> result = new BasicParseRunner<ASTNode>(rule).run(xpath + Chars.EOI);
+            assertTrue(xpath, result.matched);
+            assertNull(result.resultValue);
+        }
+
+        assertFalse(new BasicParseRunner<ASTNode>(rule).run("a or" + Chars.EOI).matched);
+    }
+
+    @Test
+    public void nameStepsAreNotReparsed() {
+        final Rule rule = parser.withEOI(parser.XPath());
+        final ProfilingParseRunner<ASTNode> runner = new ProfilingParseRunner<ASTNode>(rule);
+        assertTrue(runner.run("/a/b//ns:c/child::d/f:*/attribute::e/h" + Chars.EOI).matched);
+
+        final ProfilingParseRunner.Report report = runner.getReport();
+        assertEquals(0, ruleReport(report, "FunctionCall").getInvocations());
+        assertEquals(0, ruleReport(report, "XmlNames_QName").getRematches());
+
+        // a QName followed by a "(" is still attempted as a FunctionCall
+        assertTrue(runner.run("/a/f(1)" + Chars.EOI).matched);
+        assertEquals(1, ruleReport(runner.getReport(), "FunctionCall").getMatches());
+    }
+
+    @Test
+    public void nameStepsAreDispatched() {
+        final Rule rule = parser.withEOI(parser.XPath());
+        final ProfilingParseRunner<ASTNode> runner = new ProfilingParseRunner<ASTNode>(rule);
+        assertTrue(runner.run("/a/b//ns:c/f:*/h[i]" + Chars.EOI).matched);
+
+        final ProfilingParseRunner.Report report = runner.getReport();
+        assertEquals(0, ruleReport(report, "ReverseAxis").getInvocations());
+        assertEquals(0, ruleReport(report, "ForwardAxis").getInvocations());
+        assertEquals(0, ruleReport(report, "KindTest").getInvocations());
+
+        // a step with an explicit axis still tries every alternative of AxisStep
+        final long nameStep = ruleInvocations(rule, "a/b/c") - ruleInvocations(rule, "a/b");
+        final long axisStep = ruleInvocations(rule, "a/b/child::c") - ruleInvocations(rule, "a/b");
+        assertTrue(nameStep + " rule invocations for a name step, " + axisStep + " for an axis step", nameStep < axisStep * 2 / 3);
+    }
+
+    private static long ruleInvocations(final Rule rule, final String xpath) {
+        final StatsParseRunner<ASTNode> runner = new StatsParseRunner<ASTNode>(rule, new BasicParseRunner<ASTNode>(rule));
+        assertTrue(runner.run(xpath + Chars.EOI).matched);
+        return runner.getRuleInvocations();
+    }
+
+    private static ProfilingParseRunner.RuleReport ruleReport(final ProfilingParseRunner.Report report, final String label) {
+        for(final ProfilingParseRunner.RuleReport ruleReport : report.ruleReports) {
+            if(ruleReport.getMatcher().getLabel().equals(label)) {
+                return ruleReport;
+            }
+        }
+        return new ProfilingParseRunner.RuleReport(null);
+    }
+
     private ASTNode parse(final String xpath) {
         return parse(xpath, parser.XPath());
     }
 
     private ASTNode parse(final String xpath, final Rule rule) {
+        RecursiveDescentXPathParserTest.assertSameAst(xpath);
+
         final ParseRunner<ASTNode> parseRunner = new RecoveringParseRunner(parser.withEOI(rule));
         final ParsingResult<ASTNode> result = parseRunner.run(xpath + Chars.EOI);
 
@@ -0,0 +1,126 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class XPathValidatorTest {
+
+    private final static XPathValidator VALIDATOR = new XPathValidator();
+    private final static RecursiveDescentXPathParser RECURSIVE_DESCENT = new RecursiveDescentXPathParser();
+
+    @Test
+    public void validate() {
+        assertTrue(VALIDATOR.isValid("/a/b[@c = 'd']"));
+        assertTrue(VALIDATOR.isValid(new StringBuilder("for $a in b return $a + 1")));
+        assertEquals(-1, VALIDATOR.validate("a,(: b :) c"));
+
+        assertFalse(VALIDATOR.isValid("a or"));
+        assertEquals(4, VALIDATOR.validate("a/b["));
+
+        // as RecursiveDescentXPathParser, which aborts at the empty parenthesized expression
+        assertEquals(2, VALIDATOR.validate("a/()"));
+        assertEquals(0, VALIDATOR.validate("1e99999999999"));
+    }
+
+    @Test
+    public void deeplyNestedIsInvalid() throws XPathParseException {
+        final StringBuilder xpath = new StringBuilder();
+        for(int i = 0; i < 10000; i++) {
+            xpath.append('(');
+        }
+        xpath.append('1');
+        for(int i = 0; i < 10000; i++) {
+            xpath.append(')');
+        }
+
+        // the first ExprSingle too deep is within the parenthesis at index DEFAULT_MAX_DEPTH - 1
+        assertEquals(XPathValidator.DEFAULT_MAX_DEPTH, VALIDATOR.validate(xpath));
+
+        // without a limit on the depth the stack is exhausted, which is reported in the same way
+        assertTrue(new XPathValidator(XPathParseLimits.NONE).validate(xpath) > 0);
+
+        final XPathParseLimits limits = XPathParseLimits.NONE.withMaxDepth(2);
+        assertEquals(-1, new XPathValidator(limits).validate("(1)"));
+        assertEquals(2, new XPathValidator(limits).validate("((1))"));
+        try {
+            new RecursiveDescentXPathParser(limits).parseExpr("((1))");
+            fail("Expected XPathParseLimitException");
+        } catch(final XPathParseLimitException e) {
+            assertEquals(2, e.getIndex());
+        }
+    }
+
+    @Test
+    public void limits() {
+        final XPathValidator validator = new XPathValidator(XPathParseLimits.NONE.withMaxLength(3));
+        assertEquals(-1, validator.validate("123"));
+        assertEquals(3, validator.validate("1234"));
+    }
+
+    @Test
+    public void sameAsRecursiveDescent() {
+        final Random random = new Random(20160213);
+        for(int i = 0; i < 2000; i++) {
+            final String xpath = RecursiveDescentXPathParserTest.generateExpr(random, 3);
+            assertSameAsRecursiveDescent(xpath);
+            assertSameAsRecursiveDescent(RecursiveDescentXPathParserTest.mutate(random, xpath));
+        }
+    }
+
+    private static void assertSameAsRecursiveDescent(final String xpath) {
+        int expected = -1;
+        try {
+            RECURSIVE_DESCENT.parseExpr(xpath);
+        } catch(final XPathParseException e) {
+            expected = e.getIndex();
+        }
+        assertEquals("Differs for: " + xpath, expected, VALIDATOR.validate(xpath));
+    }
+
+    @Test
+    public void doesNotAllocate() {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean)threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        final String[] xpaths = {"/a/b[@c = 'd' and position() < 10]", "for $a in (1 to 5) return $a * 2.5e1", "a or (: b :)"};
+        for(int i = 0; i < 20000; i++) {
+            VALIDATOR.validate(xpaths[i % xpaths.length]);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocations.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < 10000; i++) {
+            VALIDATOR.validate(xpaths[i % xpaths.length]);
+        }
+        final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        // allow for the measurement itself, but far less than a single byte per validation
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1000);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser.ast;
+
+import com.evolvedbinary.xpath.parser.XPathParseException;
+import com.evolvedbinary.xpath.parser.XPathParserPool;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ASTTransformerTest {
+
+    private final XPathParserPool parserPool = new XPathParserPool(false);
+
+    @Test
+    public void identity() throws XPathParseException {
+        final String xpaths[] = {
+                "for $x in (1 to 10) return $x * 2.5 - 1",
+                "some $a in //b[@c = 'd'] satisfies $a instance of element(e, f:g)?",
+                "if (a/b castable as xs:int) then -a + 1 else . treat as document-node(schema-element(h))",
+                "a union b intersect c except processing-instruction() | a/text() | comment()",
+                "fn:count(attribute::x cast as xs:integer?) idiv 2 mod 3 eq 0 and a is b or c << d"
+        };
+
+        final ASTTransformer transformer = new ASTTransformer();
+        for(final String xpath : xpaths) {
+            final Expr expr = parserPool.parseExpr(xpath);
+            assertSame(expr, transformer.transform(expr));
+        }
+    }
+
+    @Test
+    public void onlyChangedPathIsReallocated() throws XPathParseException {
+        final ASTTransformer renameA = new ASTTransformer() {
+            @Override
+            public ASTNode visit(final QNameW qName) {
+                return qName.getLocalPart().equals("a") ? new QNameW(qName.getPrefix(), "z") : qName;
+            }
+        };
+
+        final Expr expr = parserPool.parseExpr("b[1] , a/c");
+        final Expr transformed = renameA.transform(expr);
+
+        assertNotSame(expr, transformed);
+        assertEquals(parserPool.parseExpr("b[1] , z/c"), transformed);
+
+        // the sub-tree for "b[1]" did not change, so is shared
+        assertSame(expr.getExprSingles().get(0), transformed.getExprSingles().get(0));
+        assertNotSame(expr.getExprSingles().get(1), transformed.getExprSingles().get(1));
+
+        final PathExpr path = (PathExpr)((ValueExpr)expr.getExprSingles().get(1)).getPathExpr();
+        final PathExpr transformedPath = (PathExpr)((ValueExpr)transformed.getExprSingles().get(1)).getPathExpr();
+        assertSame(path.getSteps().get(1), transformedPath.getSteps().get(1));
+    }
+
+    @Test
+    public void onlyChangedOpsAreReallocated() throws XPathParseException {
+        final ASTTransformer renameA = new ASTTransformer() {
+            @Override
+            public ASTNode visit(final QNameW qName) {
+                return qName.getLocalPart().equals("a") ? new QNameW(qName.getPrefix(), "z") : qName;
+            }
+        };
+
+        for(final String xpath : new String[] { "b + c - a", "b * c div a", "b intersect c except a" }) {
+            final AbstractOperandWithOps<?> expr = (AbstractOperandWithOps<?>)parserPool.parseExpr(xpath).getExprSingles().get(0);
+            final AbstractOperandWithOps<?> transformed = (AbstractOperandWithOps<?>)renameA.transform(expr);
+
+            assertNotSame(expr, transformed);
+            assertEquals(parserPool.parseExpr(xpath.replace('a', 'z')).getExprSingles().get(0), transformed);
+            assertSame(expr.getOperand(), transformed.getOperand());
+            assertSame(expr.getOps().get(0), transformed.getOps().get(0));
+            assertNotSame(expr.getOps().get(1), transformed.getOps().get(1));
+
+            // only the operand is renamed, so the ops are not reallocated
+            final AbstractOperandWithOps<?> operandOnly = (AbstractOperandWithOps<?>)parserPool.parseExpr("a" + xpath.substring(1, xpath.length() - 1) + "b").getExprSingles().get(0);
+            assertSame(operandOnly.getOps(), ((AbstractOperandWithOps<?>)renameA.transform(operandOnly)).getOps());
+
+            // nothing to rename, so nothing is reallocated
+            final AbstractOperandWithOps<?> unchanged = (AbstractOperandWithOps<?>)parserPool.parseExpr(xpath.replace('a', 'd')).getExprSingles().get(0);
+            assertSame(unchanged, renameA.transform(unchanged));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * XPath 2 Parser
+ * A Parser for XPath 2
+ * Copyright (C) 2016 Evolved Binary Ltd.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.evolvedbinary.xpath.parser.ast;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AbstractASTNodeTest {
+
+    // far deeper than could be handled by recursion with the default stack size
+    private final static int DEPTH = 100000;
+
+    @Test
+    public void deepEquals() {
+        final ASTNode deep = deepAST("1");
+        final ASTNode other = deepAST("1");
+
+        assertEquals(deep, other);
+        assertEquals(other, deep);
+        assertNotEquals(deep, deepAST("2"));
+    }
+
+    @Test
+    public void deepHashCode() {
+        assertEquals(deepAST("1").hashCode(), deepAST("1").hashCode());
+    }
+
+    @Test
+    public void deepToString() {
+        final String description = deepAST("1").toString();
+        assertTrue(description.startsWith("AST_Expr(AST_ValueExpr(AST_ParenthesizedExpr(AST_Expr(AST_AdditiveExpr(AST_ValueExpr("));
+        assertTrue(description.endsWith(" ADD AST_ValueExpr(AST_IntegerLiteral(1)))))))"));
+    }
+
+    @Test
+    public void toStringOfParsedShape() {
+        final ASTNode expr = new Expr(new AdditiveExpr(
+                new ValueExpr(new IntegerLiteral("1")),
+                new AdditiveExpr.AdditiveOp(AdditiveExpr.Additive.SUBTRACT, new ValueExpr(new IntegerLiteral("2")))));
+        assertEquals("AST_Expr(AST_AdditiveExpr(AST_ValueExpr(AST_IntegerLiteral(1)) SUBTRACT AST_ValueExpr(AST_IntegerLiteral(2))))", expr.toString());
+    }
+
+    @Test
+    public void countNodes() {
+        final AbstractASTNode expr = new Expr(new AdditiveExpr(
+                new ValueExpr(new IntegerLiteral("1")),
+                new AdditiveExpr.AdditiveOp(AdditiveExpr.Additive.SUBTRACT, new ValueExpr(new IntegerLiteral("2")))));
+        // the ops are not themselves nodes, but their operands are
+        assertEquals(6, expr.countNodes(Integer.MAX_VALUE));
+        assertEquals(6, expr.countNodes(6));
+        assertEquals(6, expr.countNodes(5));
+
+        final AbstractASTNode deep = (AbstractASTNode)deepAST("1");
+        assertEquals(6 * DEPTH + 3, deep.countNodes(Integer.MAX_VALUE));
+        assertEquals(101, deep.countNodes(100));
+    }
+
+    @Test
+    public void depth() {
+        assertEquals(1, new IntegerLiteral("1").depth());
+        final AbstractASTNode expr = new Expr(new AdditiveExpr(
+                new ValueExpr(new IntegerLiteral("1")),
+                new AdditiveExpr.AdditiveOp(AdditiveExpr.Additive.SUBTRACT, new ValueExpr(new IntegerLiteral("2")))));
+        assertEquals(4, expr.depth());
+        assertEquals(4 * DEPTH + 3, ((AbstractASTNode)deepAST("1")).depth());
+    }
+
+    /**
+     * Builds the AST for {@code ((((1) + 1) + 1) + ...) + 1}, where
+     * the innermost literal has the value {@code innermost}.
+     */
+    private static ASTNode deepAST(final String innermost) {
+        ASTNode node = new IntegerLiteral(innermost);
+        for(int i = 0; i < DEPTH; i++) {
+            node = new Expr(new AdditiveExpr(
+                    new ValueExpr(node),
+                    new AdditiveExpr.AdditiveOp(AdditiveExpr.Additive.ADD, new ValueExpr(new IntegerLiteral("1")))));
+            node = new ParenthesizedExpr(node);
+        }
+        return new Expr(new ValueExpr(node));
+    }
+}